@@ -0,0 +1,68 @@
+package edu.sustech.xiangqi.benchmark;
+
+import edu.sustech.xiangqi.model.engine.BookCompiler;
+import edu.sustech.xiangqi.model.engine.OpeningBook;
+import edu.sustech.xiangqi.model.engine.Position;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 开局库查询的 JMH 基准：先用存档编译一个临时开局库，再对棋谱里的局面轮流查询
+ * 一半局面在库里（走之前的局面），一半不在（走之后的局面多数也在库里，残局部分不在）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BookBenchmark {
+    private final Random random = new Random(1);
+    private Path file;
+    private OpeningBook book;
+    private Position[] positions;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = Files.createTempFile("book", ".bin");
+        BookCompiler compiler = new BookCompiler(BookCompiler.DEFAULT_MAX_PLY);
+        compiler.addSaves(new File(SaveGames.SAVE_DIR));
+        compiler.write(file, 1);
+        book = OpeningBook.open(file);
+
+        List<SaveGames.Ply> plies = SaveGames.plies();
+        positions = new Position[plies.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = new Position(plies.get(i).before.getPosition());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        book.close();
+        Files.deleteIfExists(file);
+    }
+
+    private Position next() {
+        index = index + 1 == positions.length ? 0 : index + 1;
+        return positions[index];
+    }
+
+    @Benchmark
+    public int probe() {
+        return book.probe(next().key()).size();
+    }
+
+    @Benchmark
+    public int pickMove() {
+        return book.pickMove(next(), random);
+    }
+}
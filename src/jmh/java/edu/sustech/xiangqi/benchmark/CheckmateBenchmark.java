@@ -0,0 +1,96 @@
+package edu.sustech.xiangqi.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.sustech.xiangqi.model.ChessBoardModel;
+import edu.sustech.xiangqi.model.NotationAnalyzer;
+import edu.sustech.xiangqi.model.Save;
+import edu.sustech.xiangqi.model.pieces.AbstractPiece;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 将死/困毙检测吞吐量测试
+ * 逐步重放 resources/saves 里的棋谱，在每个局面上反复调用 checkForCheckmate / checkForStalemate 计时
+ * 用法: mvn -Pjmh compile exec:exec -Dtool.main=edu.sustech.xiangqi.benchmark.CheckmateBenchmark -Dtool.args="参数"
+ * 参数: [每个局面重复次数] [轮数]
+ */
+public class CheckmateBenchmark {
+    private static final String SAVE_DIR = "resources/saves";
+
+    public static void main(String[] args) throws IOException {
+        int repeat = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        List<Save> saves = loadSaves();
+        System.out.println("棋谱数量: " + saves.size() + "，每个局面重复 " + repeat + " 次");
+
+        for (int round = 1; round <= rounds; round++) {
+            long calls = 0;
+            long nanos = 0;
+            long positions = 0;
+            for (Save save : saves) {
+                ChessBoardModel model = new ChessBoardModel();
+                for (String notation : save.getMoveNotations()) {
+                    if (model.getGameState() != ChessBoardModel.GameState.PLAYING) break;
+
+                    long start = System.nanoTime();
+                    for (int i = 0; i < repeat; i++) {
+                        model.checkForCheckmate(model.isRedTurn());
+                        model.checkForStalemate(model.isRedTurn());
+                    }
+                    nanos += System.nanoTime() - start;
+                    calls += 2L * repeat;
+                    positions++;
+
+                    if (!playNotation(model, notation)) break;
+                }
+            }
+
+            // 困毙测试残局：没有合法走法，需要完整扫描
+            ChessBoardModel stalemate = new ChessBoardModel();
+            stalemate.loadStalemateTest();
+            long start = System.nanoTime();
+            for (int i = 0; i < repeat * 10; i++) {
+                stalemate.checkForStalemate(true);
+            }
+            long stalemateNanos = System.nanoTime() - start;
+
+            System.out.printf("第%d轮: %d 个局面, %.0f 次/秒 (平均 %.2f 微秒)；困毙残局 %.0f 次/秒%n",
+                    round, positions,
+                    calls * 1e9 / nanos, nanos / 1e3 / calls,
+                    repeat * 10 * 1e9 / stalemateNanos);
+        }
+    }
+
+    private static boolean playNotation(ChessBoardModel model, String notation) {
+        try {
+            NotationAnalyzer analyzer = new NotationAnalyzer(notation, model);
+            AbstractPiece piece = model.getPieceAt(analyzer.getFromRow(), analyzer.getFromCol());
+            return piece != null && model.movePiece(piece, analyzer.getToRow(), analyzer.getToCol());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static List<Save> loadSaves() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<Save> saves = new ArrayList<>();
+        File[] files = new File(SAVE_DIR).listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null) return saves;
+
+        for (File file : files) {
+            try {
+                Save save = objectMapper.readValue(file, Save.class);
+                if (save != null && save.getMoveNotations() != null) {
+                    saves.add(save);
+                }
+            } catch (IOException e) {
+                System.err.println("跳过损坏存档: " + file.getName());
+            }
+        }
+        return saves;
+    }
+}
@@ -0,0 +1,44 @@
+package edu.sustech.xiangqi.benchmark;
+
+import edu.sustech.xiangqi.model.engine.Evaluator;
+import edu.sustech.xiangqi.model.engine.Position;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 局面评估的 JMH 基准：对棋谱里的局面轮流调用 Evaluator.evaluate，不经过搜索
+ * -prof gc 下 evaluate 应当没有分配
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvaluationBenchmark {
+    private final Evaluator evaluator = new Evaluator();
+    private Position[] positions;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        List<SaveGames.Ply> plies = SaveGames.plies();
+        positions = new Position[plies.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = new Position(plies.get(i).after.getPosition());
+        }
+    }
+
+    private Position next() {
+        index = index + 1 == positions.length ? 0 : index + 1;
+        return positions[index];
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return evaluator.evaluate(next());
+    }
+}
@@ -0,0 +1,407 @@
+package edu.sustech.xiangqi.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.sustech.xiangqi.model.ChessBoardModel;
+import edu.sustech.xiangqi.model.Save;
+import edu.sustech.xiangqi.model.engine.Fen;
+import edu.sustech.xiangqi.model.engine.Move;
+import edu.sustech.xiangqi.model.engine.MoveGenerator;
+import edu.sustech.xiangqi.model.engine.Position;
+import edu.sustech.xiangqi.model.engine.Search;
+import edu.sustech.xiangqi.model.engine.SearchLimits;
+import edu.sustech.xiangqi.model.engine.SearchOptions;
+import edu.sustech.xiangqi.model.engine.SearchResult;
+import edu.sustech.xiangqi.model.engine.Square;
+import edu.sustech.xiangqi.model.engine.TranspositionTable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自对弈比赛：两组引擎设置（A、B）在多个线程上同时下很多盘棋，一个线程一盘，用来检验引擎改动是否有效
+ * 每个开局下两盘、交换先后手；胜负和按 ChessBoardModel 的规则判定（将死、困毙、长将长捉、三次重复、无进攻子力），
+ * 超过步数上限判和。每盘结束后打印 A 对 B 的 Elo 差和 95% 误差范围；给了 --sprt 时做序贯概率比检验，
+ * 结论一出来就不再开新的对局
+ * 对局写到输出目录：games.txt 每盘一行（序号、红方、黑方、结果、原因、开局 FEN、ICCS 着法）；
+ * 从标准开局开始的对局另存一份 Save JSON（用户名 match），可以放进存档目录用界面打开
+ * 开局文件每行一个开局，格式同 UCCI 的 position 命令去掉 position："startpos moves h2e2 h9g7"、
+ * "fen <FEN> moves ..."，或者直接写从标准开局起的着法；# 开头的行是注释
+ * 用法: mvn -Pjmh compile exec:exec -Dtool.main=edu.sustech.xiangqi.benchmark.MatchRunner -Dtool.args="参数"
+ * 参数: [--games n] [--concurrency n] [--openings 文件]
+ *       [--depth n | --time 毫秒 | --nodes n] [--hash MB] [--max-plies n] [--a-disable 开关,...] [--b-disable 开关,...]
+ *       [--sprt elo0,elo1] [--alpha a] [--beta b] [--out 目录]
+ */
+public class MatchRunner {
+    public static final String DEFAULT_OUTPUT = "resources/match";
+    public static final String USERNAME = "match";
+    private static final int DEFAULT_GAMES = 1000;
+    private static final long DEFAULT_NODES = 50_000;
+    private static final int DEFAULT_HASH_MB = 8;
+    private static final int DEFAULT_MAX_PLIES = 300;
+
+    private final List<Opening> openings;
+    private final SearchOptions[] options;
+    private final int depth;
+    private final long moveTimeMillis;
+    private final long nodes;
+    private final int hashMegabytes;
+    private final int maxPlies;
+    private final double[] sprt;
+    private final double alpha;
+    private final double beta;
+    private final Path outputDir;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final MatchStats stats = new MatchStats();
+    private BufferedWriter gameLog;
+    private volatile boolean finished;
+    private String verdict;
+
+    /**
+     * 一个开局：起始局面和之后的着法（ICCS）
+     */
+    static final class Opening {
+        final String fen;
+        final List<String> moves;
+        final boolean fromStart;
+
+        Opening(String fen, List<String> moves, boolean fromStart) {
+            this.fen = fen;
+            this.moves = moves;
+            this.fromStart = fromStart;
+        }
+    }
+
+    /**
+     * 每个线程自己的两个搜索实例（A、B 各一个，各带一张置换表）
+     */
+    private final class Worker {
+        final Search[] searches = {
+                new Search(new TranspositionTable(hashMegabytes)),
+                new Search(new TranspositionTable(hashMegabytes))
+        };
+        final MoveGenerator generator = new MoveGenerator();
+        final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+        Worker() {
+            searches[0].setOptions(options[0]);
+            searches[1].setOptions(options[1]);
+        }
+    }
+
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+    MatchRunner(List<Opening> openings, SearchOptions[] options, int depth, long moveTimeMillis, long nodes,
+                int hashMegabytes, int maxPlies, double[] sprt, double alpha, double beta, Path outputDir) {
+        this.openings = openings;
+        this.options = options;
+        this.depth = depth;
+        this.moveTimeMillis = moveTimeMillis;
+        this.nodes = nodes;
+        this.hashMegabytes = hashMegabytes;
+        this.maxPlies = maxPlies;
+        this.sprt = sprt;
+        this.alpha = alpha;
+        this.beta = beta;
+        this.outputDir = outputDir;
+    }
+
+    /**
+     * 下 games 盘（SPRT 有结论时提前结束），返回统计
+     */
+    MatchStats run(int games, int concurrency) throws IOException, InterruptedException {
+        Files.createDirectories(outputDir);
+        gameLog = Files.newBufferedWriter(outputDir.resolve("games.txt"), StandardCharsets.UTF_8);
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        try {
+            for (int i = 0; i < games; i++) {
+                int index = i;
+                pool.execute(() -> {
+                    if (finished) return;
+                    try {
+                        record(index, play(index));
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println("第 " + (index + 1) + " 局出错: " + e);
+                    }
+                });
+            }
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        } finally {
+            pool.shutdownNow();
+            gameLog.close();
+        }
+        return stats;
+    }
+
+    /**
+     * 一盘棋的结果
+     */
+    private static final class Game {
+        final boolean aIsRed;
+        final Opening opening;
+        final ChessBoardModel model;
+        final List<Integer> moves = new ArrayList<>();
+        String result;
+        String reason;
+        double scoreA;
+
+        Game(boolean aIsRed, Opening opening, ChessBoardModel model) {
+            this.aIsRed = aIsRed;
+            this.opening = opening;
+            this.model = model;
+        }
+    }
+
+    /**
+     * 下第 index 盘：开局 index / 2，偶数盘 A 执红
+     */
+    private Game play(int index) {
+        Worker w = workers.get();
+        Opening opening = openings.get(index / 2 % openings.size());
+        ChessBoardModel model = new ChessBoardModel();
+        if (!opening.fromStart) model.loadFromPosition(Fen.parse(opening.fen));
+        Game game = new Game(index % 2 == 0, opening, model);
+        for (String iccs : opening.moves) {
+            apply(model, Move.parseIccs(iccs, model.getPosition(), w.generator, w.moves));
+        }
+        for (Search search : w.searches) {
+            search.getTranspositionTable().clear();
+        }
+
+        int plies = 0;
+        while (model.getGameState() == ChessBoardModel.GameState.PLAYING && plies < maxPlies) {
+            Search search = w.searches[model.isRedTurn() == game.aIsRed ? 0 : 1];
+            SearchResult result = search.search(model.getPosition(), limits());
+            int move = result.getBestMove();
+            // 模型没判出来但引擎已经无棋可走：按困毙算走子方输
+            if (move == Move.NONE) break;
+            apply(model, move);
+            game.moves.add(move);
+            plies++;
+        }
+
+        ChessBoardModel.GameState state = model.getGameState();
+        boolean redWins = state == ChessBoardModel.GameState.RED_WIN
+                || (state == ChessBoardModel.GameState.PLAYING && plies < maxPlies && !model.isRedTurn());
+        boolean blackWins = state == ChessBoardModel.GameState.BLACK_WIN
+                || (state == ChessBoardModel.GameState.PLAYING && plies < maxPlies && model.isRedTurn());
+        if (redWins || blackWins) {
+            game.result = redWins ? "1-0" : "0-1";
+            game.scoreA = redWins == game.aIsRed ? 1 : 0;
+        } else {
+            game.result = "1/2-1/2";
+            game.scoreA = 0.5;
+        }
+        game.reason = state != ChessBoardModel.GameState.PLAYING ? model.getVictoryMessage()
+                : plies >= maxPlies ? "超过 " + maxPlies + " 步判和" : "无子可走";
+        return game;
+    }
+
+    private SearchLimits limits() {
+        if (moveTimeMillis > 0) return SearchLimits.moveTime(moveTimeMillis).withDepth(depth);
+        if (nodes > 0) return SearchLimits.nodes(nodes).withDepth(depth);
+        return SearchLimits.depth(depth);
+    }
+
+    private static void apply(ChessBoardModel model, int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        if (move == Move.NONE
+                || !model.movePiece(model.getPieceAt(Square.row(from), Square.col(from)), Square.row(to), Square.col(to))) {
+            throw new IllegalStateException("无法走 " + Move.toString(move));
+        }
+    }
+
+    private synchronized void record(int index, Game game) throws IOException {
+        stats.add(game.scoreA);
+
+        StringBuilder moves = new StringBuilder();
+        for (String iccs : game.opening.moves) {
+            moves.append(iccs).append(' ');
+        }
+        for (int move : game.moves) {
+            Move.appendIccs(moves, move);
+            moves.append(' ');
+        }
+        String red = game.aIsRed ? "A" : "B";
+        String black = game.aIsRed ? "B" : "A";
+        gameLog.write(String.join("\t", String.valueOf(index + 1), red, black, game.result, game.reason,
+                game.opening.fen, moves.toString().trim()));
+        gameLog.newLine();
+        gameLog.flush();
+        if (game.opening.fromStart) {
+            String saveName = String.format("game%05d", index + 1);
+            Save save = new Save(saveName, USERNAME, game.model.isRedTurn(), game.model.getMoveNotations());
+            objectMapper.writerWithDefaultPrettyPrinter()
+                    .writeValue(outputDir.resolve(USERNAME + "_" + saveName + ".json").toFile(), save);
+        }
+
+        StringBuilder line = new StringBuilder();
+        line.append(String.format("第 %d 局 %s 红 %s 黑 %s（%s） | %s", index + 1, red, black, game.result,
+                game.reason, stats));
+        if (sprt != null) {
+            double llr = stats.llr(sprt[0], sprt[1]);
+            double lower = MatchStats.lowerBound(alpha, beta);
+            double upper = MatchStats.upperBound(alpha, beta);
+            line.append(String.format(" | LLR %.2f [%.2f, %.2f]", llr, lower, upper));
+            if (!finished && (llr >= upper || llr <= lower)) {
+                finished = true;
+                verdict = llr >= upper
+                        ? String.format("SPRT 接受 H1：Elo 差为 %.0f（而不是 %.0f）", sprt[1], sprt[0])
+                        : String.format("SPRT 接受 H0：Elo 差为 %.0f（而不是 %.0f）", sprt[0], sprt[1]);
+            }
+        }
+        System.out.println(line);
+    }
+
+    /**
+     * 读开局文件；格式不对或着法不合法时抛 IllegalArgumentException
+     */
+    static List<Opening> readOpenings(Path file) throws IOException {
+        List<Opening> openings = new ArrayList<>();
+        MoveGenerator generator = new MoveGenerator();
+        int[] buffer = new int[MoveGenerator.MAX_MOVES];
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            try {
+                openings.add(parseOpening(line, generator, buffer));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(file + " 第 " + lineNumber + " 行: " + e.getMessage(), e);
+            }
+        }
+        if (openings.isEmpty()) throw new IllegalArgumentException(file + " 里没有开局");
+        return openings;
+    }
+
+    static Opening parseOpening(String line, MoveGenerator generator, int[] buffer) {
+        List<String> tokens = Arrays.asList(line.split("\\s+"));
+        int i = 0;
+        String fen = Fen.START;
+        boolean fromStart = true;
+        if (tokens.get(0).equals("startpos")) {
+            i = 1;
+        } else if (tokens.get(0).equals("fen")) {
+            StringBuilder sb = new StringBuilder();
+            for (i = 1; i < tokens.size() && !tokens.get(i).equals("moves"); i++) {
+                if (sb.length() > 0) sb.append(' ');
+                sb.append(tokens.get(i));
+            }
+            fen = sb.toString();
+            fromStart = false;
+        }
+        if (i < tokens.size() && tokens.get(i).equals("moves")) i++;
+
+        Position position = Fen.parse(fen);
+        List<String> moves = new ArrayList<>(tokens.subList(i, tokens.size()));
+        for (String iccs : moves) {
+            int move = Move.parseIccs(iccs, position, generator, buffer);
+            if (move == Move.NONE) throw new IllegalArgumentException("不合法的着法 " + iccs);
+            position.makeMove(move);
+        }
+        return new Opening(fen, moves, fromStart);
+    }
+
+    private static SearchOptions options(String disabled) {
+        SearchOptions options = SearchOptions.defaults();
+        if (disabled != null) {
+            for (String name : disabled.split(",")) {
+                options.with(name.trim(), false);
+            }
+        }
+        return options;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int games = DEFAULT_GAMES;
+        int concurrency = Runtime.getRuntime().availableProcessors();
+        Path openingsFile = null;
+        int depth = Search.MAX_DEPTH;
+        long moveTime = 0;
+        long nodes = DEFAULT_NODES;
+        int hash = DEFAULT_HASH_MB;
+        int maxPlies = DEFAULT_MAX_PLIES;
+        String disableA = null;
+        String disableB = null;
+        double[] sprt = null;
+        double alpha = 0.05;
+        double beta = 0.05;
+        String output = DEFAULT_OUTPUT;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--concurrency":
+                    concurrency = Integer.parseInt(args[++i]);
+                    break;
+                case "--openings":
+                    openingsFile = Paths.get(args[++i]);
+                    break;
+                case "--depth":
+                    depth = Integer.parseInt(args[++i]);
+                    nodes = 0;
+                    break;
+                case "--time":
+                    moveTime = Long.parseLong(args[++i]);
+                    break;
+                case "--nodes":
+                    nodes = Long.parseLong(args[++i]);
+                    break;
+                case "--hash":
+                    hash = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-plies":
+                    maxPlies = Integer.parseInt(args[++i]);
+                    break;
+                case "--a-disable":
+                    disableA = args[++i];
+                    break;
+                case "--b-disable":
+                    disableB = args[++i];
+                    break;
+                case "--sprt":
+                    String[] bounds = args[++i].split(",");
+                    sprt = new double[]{Double.parseDouble(bounds[0]), Double.parseDouble(bounds[1])};
+                    break;
+                case "--alpha":
+                    alpha = Double.parseDouble(args[++i]);
+                    break;
+                case "--beta":
+                    beta = Double.parseDouble(args[++i]);
+                    break;
+                case "--out":
+                    output = args[++i];
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知参数: " + args[i]);
+            }
+        }
+
+        List<Opening> openings = openingsFile != null ? readOpenings(openingsFile)
+                : List.of(new Opening(Fen.START, List.of(), true));
+        SearchOptions[] options = {options(disableA), options(disableB)};
+        System.out.printf("A: %s%nB: %s%n%d 个开局，%d 盘，%d 个线程%n", options[0], options[1], openings.size(), games,
+                concurrency);
+
+        long start = System.nanoTime();
+        MatchRunner runner = new MatchRunner(openings, options, depth, moveTime, nodes, hash, maxPlies, sprt,
+                alpha, beta, Paths.get(output));
+        MatchStats stats = runner.run(games, concurrency);
+        System.out.printf("结果：%s，用时 %d 秒%n", stats, (System.nanoTime() - start) / 1_000_000_000L);
+        if (sprt != null) System.out.println(runner.verdict != null ? runner.verdict : "SPRT 没有结论");
+    }
+}
@@ -0,0 +1,111 @@
+package edu.sustech.xiangqi.benchmark;
+
+/**
+ * 对局统计：A 方的胜、和、负，算 Elo 差和 95% 误差范围，以及序贯概率比检验（SPRT）
+ * SPRT 的对数似然比用正态近似：H0 为 Elo 差等于 elo0，H1 为等于 elo1，
+ * LLR 超过 log((1 - beta) / alpha) 接受 H1，低于 log(beta / (1 - alpha)) 接受 H0，否则继续下
+ * 不是线程安全的，调用方自己加锁
+ */
+public class MatchStats {
+    /** 95% 置信区间的正态分位数 */
+    private static final double Z_95 = 1.959964;
+
+    private int wins;
+    private int draws;
+    private int losses;
+
+    public void add(double score) {
+        if (score == 1) {
+            wins++;
+        } else if (score == 0) {
+            losses++;
+        } else {
+            draws++;
+        }
+    }
+
+    public int games() {
+        return wins + draws + losses;
+    }
+
+    public int getWins() {
+        return wins;
+    }
+
+    public int getDraws() {
+        return draws;
+    }
+
+    public int getLosses() {
+        return losses;
+    }
+
+    /**
+     * A 方的得分率（胜 1 和 0.5）
+     */
+    public double score() {
+        return games() == 0 ? 0.5 : (wins + draws * 0.5) / games();
+    }
+
+    /**
+     * 每盘得分的方差
+     */
+    private double variance() {
+        int n = games();
+        double s = score();
+        return (wins * (1 - s) * (1 - s) + draws * (0.5 - s) * (0.5 - s) + losses * s * s) / n;
+    }
+
+    /**
+     * A 比 B 高的 Elo 分
+     */
+    public double elo() {
+        return elo(score());
+    }
+
+    /**
+     * Elo 差 95% 置信区间的半宽（按区间两端的 Elo 差取平均）
+     */
+    public double eloError() {
+        int n = games();
+        if (n < 2) return Double.POSITIVE_INFINITY;
+        double margin = Z_95 * Math.sqrt(variance() / n);
+        double s = score();
+        return (elo(s + margin) - elo(s - margin)) / 2;
+    }
+
+    /**
+     * H1（elo1）对 H0（elo0）的对数似然比
+     */
+    public double llr(double elo0, double elo1) {
+        int n = games();
+        double variance = n == 0 ? 0 : variance();
+        if (variance <= 0) return 0;
+        double s0 = expectedScore(elo0);
+        double s1 = expectedScore(elo1);
+        return n * (s1 - s0) * (2 * score() - s0 - s1) / (2 * variance);
+    }
+
+    public static double lowerBound(double alpha, double beta) {
+        return Math.log(beta / (1 - alpha));
+    }
+
+    public static double upperBound(double alpha, double beta) {
+        return Math.log((1 - beta) / alpha);
+    }
+
+    public static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    private static double elo(double score) {
+        double s = Math.min(Math.max(score, 1e-6), 1 - 1e-6);
+        return -400 * Math.log10(1 / s - 1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d 局 +%d =%d -%d，得分率 %.1f%%，Elo %+.1f ± %.1f",
+                games(), wins, draws, losses, score() * 100, elo(), eloError());
+    }
+}
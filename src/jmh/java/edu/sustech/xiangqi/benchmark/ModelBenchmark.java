@@ -0,0 +1,92 @@
+package edu.sustech.xiangqi.benchmark;
+
+import edu.sustech.xiangqi.model.ChessBoardModel;
+import edu.sustech.xiangqi.model.pieces.AbstractPiece;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ChessBoardModel 热点方法的 JMH 基准
+ * 每次调用轮换到棋谱里的下一个局面，避免只测一个局面
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ModelBenchmark {
+    private ChessBoardModel[] models;
+    private AbstractPiece[] movers;
+    private int[] toRows;
+    private int[] toCols;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        List<SaveGames.Ply> plies = SaveGames.plies();
+        int n = plies.size();
+        models = new ChessBoardModel[n];
+        movers = new AbstractPiece[n];
+        toRows = new int[n];
+        toCols = new int[n];
+        for (int i = 0; i < n; i++) {
+            SaveGames.Ply ply = plies.get(i);
+            models[i] = ply.before;
+            movers[i] = ply.mover();
+            toRows[i] = ply.toRow;
+            toCols[i] = ply.toCol;
+        }
+    }
+
+    private int next() {
+        index = index + 1 == models.length ? 0 : index + 1;
+        return index;
+    }
+
+    /**
+     * 走一步（含合法性检查、生成棋谱、更新胜负状态）再悔棋
+     */
+    @Benchmark
+    public boolean movePiece() {
+        int i = next();
+        ChessBoardModel model = models[i];
+        boolean moved = model.movePiece(movers[i], toRows[i], toCols[i]);
+        model.undoMove();
+        return moved;
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return models[next()].isInCheck();
+    }
+
+    @Benchmark
+    public boolean checkForCheckmate() {
+        ChessBoardModel model = models[next()];
+        return model.checkForCheckmate(model.isRedTurn());
+    }
+
+    @Benchmark
+    public boolean checkForStalemate() {
+        ChessBoardModel model = models[next()];
+        return model.checkForStalemate(model.isRedTurn());
+    }
+
+    /**
+     * 扫一遍整个棋盘（界面每次重绘都会这样做）
+     */
+    @Benchmark
+    public void getPieceAt(Blackhole blackhole) {
+        ChessBoardModel model = models[next()];
+        for (int row = 0; row < ChessBoardModel.getRows(); row++) {
+            for (int col = 0; col < ChessBoardModel.getCols(); col++) {
+                blackhole.consume(model.getPieceAt(row, col));
+            }
+        }
+    }
+}
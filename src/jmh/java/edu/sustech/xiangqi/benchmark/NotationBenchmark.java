@@ -0,0 +1,77 @@
+package edu.sustech.xiangqi.benchmark;
+
+import edu.sustech.xiangqi.model.ChessBoardModel;
+import edu.sustech.xiangqi.model.NotationAnalyzer;
+import edu.sustech.xiangqi.model.NotationGenerator;
+import edu.sustech.xiangqi.model.Save;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 棋谱生成、解析和读档的 JMH 基准
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NotationBenchmark {
+    private List<SaveGames.Ply> plies;
+    private int index;
+
+    /**
+     * 读档基准的状态，只有 loadFromNotationSave 按存档展开
+     */
+    @State(Scope.Thread)
+    public static class LoadState {
+        /** 挑的是 resources/saves 里最长的几局 */
+        @Param({"test01_AutoSave_20251220_213223.json", "test01_daorude.json", "test01_kb.json"})
+        public String saveFile;
+
+        Save save;
+        ChessBoardModel model;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            save = SaveGames.load(saveFile);
+            model = new ChessBoardModel();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        plies = SaveGames.plies();
+    }
+
+    private SaveGames.Ply next() {
+        index = index + 1 == plies.size() ? 0 : index + 1;
+        return plies.get(index);
+    }
+
+    /**
+     * 和 MoveRecord 一样，在走完之后的局面上生成棋谱
+     */
+    @Benchmark
+    public String generateNotation() {
+        SaveGames.Ply ply = next();
+        return NotationGenerator.generateNotation(ply.moved(), ply.fromRow, ply.fromCol,
+                ply.toRow, ply.toCol, ply.after);
+    }
+
+    @Benchmark
+    public int parseNotation() {
+        SaveGames.Ply ply = next();
+        NotationAnalyzer analyzer = new NotationAnalyzer(ply.notation, ply.before);
+        return analyzer.getToRow() * ChessBoardModel.getCols() + analyzer.getToCol();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean loadFromNotationSave(LoadState state) {
+        return state.model.loadFromNotationSave(state.save);
+    }
+}
@@ -0,0 +1,106 @@
+package edu.sustech.xiangqi.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.sustech.xiangqi.model.ChessBoardModel;
+import edu.sustech.xiangqi.model.NotationAnalyzer;
+import edu.sustech.xiangqi.model.ReferencePerft;
+import edu.sustech.xiangqi.model.Save;
+import edu.sustech.xiangqi.model.engine.Fen;
+import edu.sustech.xiangqi.model.engine.Perft;
+import edu.sustech.xiangqi.model.engine.Position;
+import edu.sustech.xiangqi.model.pieces.AbstractPiece;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 走法生成器的 perft 测试
+ * 逐层打印节点数、吃子、将军、将死和每秒节点数；可以并行，也可以和模型里基于 canMoveTo 的规则逐层比对
+ * 用法: mvn -Pjmh compile exec:exec -Dtool.main=edu.sustech.xiangqi.benchmark.PerftBenchmark -Dtool.args="参数"
+ * 参数: [深度] [--fen "FEN"] [--save 存档.json]
+ *       [--parallel [线程数]] [--verify]
+ * 不指定 --fen / --save 时从开局局面开始；--save 会先把存档里的棋谱走完再开始
+ */
+public class PerftBenchmark {
+    public static void main(String[] args) throws IOException {
+        int depth = 4;
+        String fen = Fen.START;
+        String saveFile = null;
+        int threads = 0;
+        boolean verify = false;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--fen":
+                    fen = args[++i];
+                    break;
+                case "--save":
+                    saveFile = args[++i];
+                    break;
+                case "--parallel":
+                    threads = Runtime.getRuntime().availableProcessors();
+                    if (i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                        threads = Integer.parseInt(args[++i]);
+                    }
+                    break;
+                case "--verify":
+                    verify = true;
+                    break;
+                default:
+                    depth = Integer.parseInt(args[i]);
+            }
+        }
+
+        ChessBoardModel model = new ChessBoardModel();
+        if (saveFile != null) {
+            replaySave(model, saveFile);
+        } else {
+            model.loadFromPosition(Fen.parse(fen));
+        }
+        Position position = new Position(model.getPosition());
+        System.out.println("局面: " + Fen.toFen(position));
+
+        for (int d = 1; d <= depth; d++) {
+            Perft.Result result;
+            if (threads > 0) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                result = Perft.runParallel(position, d, pool);
+                pool.shutdown();
+            } else {
+                result = new Perft().run(position, d);
+            }
+            print(d, result);
+
+            if (verify) {
+                Perft.Result reference = ReferencePerft.run(model, d);
+                System.out.println(result.sameCounts(reference)
+                        ? "    与模型规则一致"
+                        : "    与模型规则不一致！模型: " + row(reference, d - 1));
+            }
+        }
+    }
+
+    private static void print(int depth, Perft.Result result) {
+        System.out.printf("深度 %d: %s  用时 %.3f 秒, %.0f 节点/秒%n",
+                depth, row(result, depth - 1), result.elapsedNanos / 1e9, result.nodesPerSecond());
+    }
+
+    private static String row(Perft.Result result, int ply) {
+        return String.format("节点 %d, 吃子 %d, 将军 %d, 将死 %d",
+                result.nodes[ply], result.captures[ply], result.checks[ply], result.mates[ply]);
+    }
+
+    private static void replaySave(ChessBoardModel model, String saveFile) throws IOException {
+        Save save = new ObjectMapper().readValue(new File(saveFile), Save.class);
+        if (save.getMoveNotations() == null) return;
+        for (String notation : save.getMoveNotations()) {
+            NotationAnalyzer analyzer = new NotationAnalyzer(notation, model);
+            AbstractPiece piece = model.getPieceAt(analyzer.getFromRow(), analyzer.getFromCol());
+            if (piece == null || !model.movePiece(piece, analyzer.getToRow(), analyzer.getToCol())) {
+                System.err.println("棋谱在 " + notation + " 处无法继续，从这里开始计算");
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package edu.sustech.xiangqi.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.sustech.xiangqi.model.ChessBoardModel;
+import edu.sustech.xiangqi.model.NotationAnalyzer;
+import edu.sustech.xiangqi.model.Save;
+import edu.sustech.xiangqi.model.engine.Position;
+import edu.sustech.xiangqi.model.pieces.AbstractPiece;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试用的局面集：把 resources/saves 里的棋谱逐步重放，记下每一步走之前、走之后的局面
+ * 存档目录可用 -Dxiangqi.saves=路径 指定
+ */
+final class SaveGames {
+    static final String SAVE_DIR = System.getProperty("xiangqi.saves", "resources/saves");
+
+    /**
+     * 棋谱里的一步
+     */
+    static final class Ply {
+        final ChessBoardModel before;
+        final ChessBoardModel after;
+        final String notation;
+        final int fromRow;
+        final int fromCol;
+        final int toRow;
+        final int toCol;
+
+        Ply(ChessBoardModel before, ChessBoardModel after, String notation,
+            int fromRow, int fromCol, int toRow, int toCol) {
+            this.before = before;
+            this.after = after;
+            this.notation = notation;
+            this.fromRow = fromRow;
+            this.fromCol = fromCol;
+            this.toRow = toRow;
+            this.toCol = toCol;
+        }
+
+        AbstractPiece mover() {
+            return before.getPieceAt(fromRow, fromCol);
+        }
+
+        AbstractPiece moved() {
+            return after.getPieceAt(toRow, toCol);
+        }
+    }
+
+    private SaveGames() {
+    }
+
+    static Save load(String fileName) throws IOException {
+        return new ObjectMapper().readValue(new File(SAVE_DIR, fileName), Save.class);
+    }
+
+    static List<Ply> plies() throws IOException {
+        List<Ply> plies = new ArrayList<>();
+        File[] files = new File(SAVE_DIR).listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null) {
+            throw new IOException("找不到存档目录: " + new File(SAVE_DIR).getAbsolutePath());
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        for (File file : files) {
+            Save save;
+            try {
+                save = objectMapper.readValue(file, Save.class);
+            } catch (IOException e) {
+                System.err.println("跳过损坏存档 (JSON损坏): " + file.getName() + ": " + e.getMessage());
+                continue;
+            }
+            if (save == null || save.getMoveNotations() == null) {
+                System.err.println("跳过没有棋谱的存档: " + file.getName());
+                continue;
+            }
+
+            ChessBoardModel model = new ChessBoardModel();
+            List<String> notations = save.getMoveNotations();
+            for (int i = 0; i < notations.size(); i++) {
+                String notation = notations.get(i);
+                ChessBoardModel before = snapshot(model);
+                NotationAnalyzer analyzer;
+                try {
+                    analyzer = new NotationAnalyzer(notation, model);
+                } catch (RuntimeException e) {
+                    skipRest(file, i, notations.size(), notation, "无法解析: " + e.getMessage());
+                    break;
+                }
+                AbstractPiece piece = model.getPieceAt(analyzer.getFromRow(), analyzer.getFromCol());
+                if (piece == null || !model.movePiece(piece, analyzer.getToRow(), analyzer.getToCol())) {
+                    skipRest(file, i, notations.size(), notation, "不是合法走法");
+                    break;
+                }
+                plies.add(new Ply(before, snapshot(model), notation,
+                        analyzer.getFromRow(), analyzer.getFromCol(), analyzer.getToRow(), analyzer.getToCol()));
+                if (model.getGameState() != ChessBoardModel.GameState.PLAYING) break;
+            }
+        }
+        if (plies.isEmpty()) {
+            throw new IOException("存档里没有可以重放的棋谱: " + SAVE_DIR);
+        }
+        return plies;
+    }
+
+    /**
+     * 棋谱中途走不下去时，这一步和后面的步都不用；打印出来，免得基准悄悄少测了局面
+     */
+    private static void skipRest(File file, int index, int total, String notation, String reason) {
+        System.err.println("存档 " + file.getName() + " 第 " + (index + 1) + " 步 \"" + notation + "\" " + reason
+                + "，跳过这一步及之后共 " + (total - index) + " 步");
+    }
+
+    private static ChessBoardModel snapshot(ChessBoardModel model) {
+        ChessBoardModel copy = new ChessBoardModel();
+        copy.loadFromPosition(new Position(model.getPosition()));
+        return copy;
+    }
+}
@@ -0,0 +1,90 @@
+package edu.sustech.xiangqi.benchmark;
+
+import edu.sustech.xiangqi.model.engine.Fen;
+import edu.sustech.xiangqi.model.engine.Move;
+import edu.sustech.xiangqi.model.engine.Position;
+import edu.sustech.xiangqi.model.engine.ParallelSearch;
+import edu.sustech.xiangqi.model.engine.SearchLimits;
+import edu.sustech.xiangqi.model.engine.SearchOptions;
+import edu.sustech.xiangqi.model.engine.SearchResult;
+import edu.sustech.xiangqi.model.engine.TranspositionTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 搜索引擎测试：对几组局面做固定深度或固定时间的搜索，打印每一轮的深度、分数、节点数和主要变例
+ * 用法: mvn -Pjmh compile exec:exec -Dtool.main=edu.sustech.xiangqi.benchmark.SearchBenchmark -Dtool.args="参数"
+ * 参数: [--depth n | --time 毫秒] [--hash MB] [--threads n]
+ *       [--disable nullmove,lmr,rfp,futility,razoring] [--fen "FEN"]...
+ * 多线程时比较同样 --depth 下的总用时即可看出到达同一深度的加速比
+ * 不指定 --fen 时用内置的几个局面（开局、中局、杀棋残局）
+ */
+public class SearchBenchmark {
+    private static final String[] DEFAULT_POSITIONS = {
+            Fen.START,
+            // 中局
+            "r1bakab1r/9/1cn3nc1/p1p1p1p1p/9/2P6/P3P1P1P/1CN3NC1/9/R1BAKAB1R w",
+            "2bakab2/9/n7r/p3r1p1p/8c/2N3P2/P6R1/4n1N2/9/2RAKAB2 b",
+            // 杀棋残局
+            "3ak4/9/9/2R6/9/4C4/P7P/N2C1R3/9/2BAKABN1 w",
+    };
+
+    public static void main(String[] args) {
+        SearchLimits limits = SearchLimits.depth(6);
+        int hashMegabytes = TranspositionTable.DEFAULT_SIZE_MB;
+        int threads = 1;
+        SearchOptions options = SearchOptions.defaults();
+        List<String> fens = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--depth":
+                    limits = SearchLimits.depth(Integer.parseInt(args[++i]));
+                    break;
+                case "--time":
+                    limits = SearchLimits.moveTime(Long.parseLong(args[++i]));
+                    break;
+                case "--hash":
+                    hashMegabytes = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--disable":
+                    for (String name : args[++i].split(",")) {
+                        options.with(name.trim(), false);
+                    }
+                    break;
+                case "--fen":
+                    fens.add(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知参数: " + args[i]);
+            }
+        }
+        if (fens.isEmpty()) fens.addAll(List.of(DEFAULT_POSITIONS));
+
+        TranspositionTable tt = new TranspositionTable(hashMegabytes);
+        ParallelSearch search = new ParallelSearch(threads, tt);
+        search.setOptions(options);
+        System.out.println(options);
+        search.setIterationListener(result -> System.out.println("  " + result));
+
+        long totalNodes = 0;
+        long totalMillis = 0;
+        for (String fen : fens) {
+            Position position = Fen.parse(fen);
+            System.out.println(fen);
+            tt.clear();
+            SearchResult result = search.search(position, limits);
+            System.out.printf("  最佳走法 %s，%d 节点/秒，置换表命中率 %.1f%%，填充 %d‰，第一步截断率 %.1f%%%n",
+                    Move.toString(result.getBestMove()), result.getNodesPerSecond(),
+                    search.getTtHitRate() * 100, tt.hashfull(), search.getFirstMoveCutoffRate() * 100);
+            totalNodes += result.getNodes();
+            totalMillis += result.getTimeMillis();
+        }
+        search.shutdown();
+        System.out.printf("%d 线程，合计 %d 节点, %d 毫秒, %d 节点/秒%n",
+                threads, totalNodes, totalMillis, totalMillis == 0 ? 0 : totalNodes * 1000 / totalMillis);
+    }
+}
@@ -0,0 +1,96 @@
+package edu.sustech.xiangqi.benchmark;
+
+import edu.sustech.xiangqi.model.engine.Piece;
+import edu.sustech.xiangqi.model.engine.Position;
+import edu.sustech.xiangqi.model.engine.Square;
+import edu.sustech.xiangqi.model.engine.TablebaseGenerator;
+import edu.sustech.xiangqi.model.engine.Tablebases;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 残局库查询的 JMH 基准：先在临时目录生成 KRvKAB 和它的子库，再对随机摆出的合法局面轮流查询
+ * 一半是车帅对士象将（在库里），一半多一个兵（不在库里，只数棋子就返回）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TablebaseBenchmark {
+    private static final int POSITIONS = 1024;
+
+    private Path dir;
+    private Tablebases tablebases;
+    private Position[] positions;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("tablebase");
+        TablebaseGenerator generator = new TablebaseGenerator(dir, Runtime.getRuntime().availableProcessors());
+        generator.generate("KRvKAB");
+        generator.getTablebases().close();
+        tablebases = Tablebases.open(dir);
+
+        Random random = new Random(1);
+        positions = new Position[POSITIONS];
+        for (int i = 0; i < POSITIONS; ) {
+            Position position = randomPosition(random, i % 2 == 1);
+            if (i % 2 == 1 || tablebases.probe(position) != Tablebases.UNKNOWN) {
+                positions[i++] = position;
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        tablebases.close();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    private static Position randomPosition(Random random, boolean extraPawn) {
+        Position position = new Position();
+        position.putPiece(Square.of(7 + random.nextInt(3), 3 + random.nextInt(3)), Piece.make(Piece.RED, Piece.GENERAL));
+        position.putPiece(Square.of(random.nextInt(3), 3 + random.nextInt(3)), Piece.make(Piece.BLACK, Piece.GENERAL));
+        place(position, random, Piece.make(Piece.RED, Piece.CHARIOT), Square.ROWS);
+        place(position, random, Piece.make(Piece.BLACK, Piece.ADVISOR), 3);
+        place(position, random, Piece.make(Piece.BLACK, Piece.ELEPHANT), 5);
+        if (extraPawn) place(position, random, Piece.make(Piece.RED, Piece.SOLDIER), 5);
+        position.setSideToMove(random.nextInt(2));
+        return position;
+    }
+
+    /**
+     * 放在前 rows 行的随机空格上（仕士、象的位置不一定合规，查不到的局面 setup 会丢掉）
+     */
+    private static void place(Position position, Random random, int piece, int rows) {
+        int sq;
+        do {
+            sq = Square.of(random.nextInt(rows), random.nextInt(Square.COLS));
+        } while (position.pieceAt(sq) != Piece.EMPTY);
+        position.putPiece(sq, piece);
+    }
+
+    private Position next() {
+        index = index + 1 == positions.length ? 0 : index + 1;
+        return positions[index];
+    }
+
+    @Benchmark
+    public int probe() {
+        return tablebases.probe(next());
+    }
+}
@@ -0,0 +1,94 @@
+package edu.sustech.xiangqi.model;
+
+import edu.sustech.xiangqi.model.engine.Move;
+import edu.sustech.xiangqi.model.engine.Perft;
+import edu.sustech.xiangqi.model.engine.Piece;
+import edu.sustech.xiangqi.model.engine.Square;
+import edu.sustech.xiangqi.model.pieces.AbstractPiece;
+import edu.sustech.xiangqi.model.pieces.GeneralPiece;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Perft 的参照实现：走法用各棋子的 canMoveTo 枚举，将军用 canMoveTo 和逐格扫描的将帅对面来判断，
+ * 速度很慢，只用于和位棋盘生成器的结果比对
+ * 放在 model 包里是因为要用 ChessBoardModel 不对外公开的底层走子
+ */
+public final class ReferencePerft {
+
+    private ReferencePerft() {
+    }
+
+    /**
+     * 从 model 的当前局面数到 depth 层；走完后局面恢复原样
+     */
+    public static Perft.Result run(ChessBoardModel model, int depth) {
+        Perft.Result result = new Perft.Result(depth);
+        long start = System.nanoTime();
+        if (depth > 0) {
+            walk(model, 0, depth, result);
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private static void walk(ChessBoardModel model, int ply, int depth, Perft.Result result) {
+        List<Integer> moves = moves(model);
+        boolean red = model.isRedTurn();
+        for (int move : moves) {
+            model.makeMove(move);
+            result.nodes[ply]++;
+            if (Move.isCapture(move)) result.captures[ply]++;
+            if (inCheck(model, !red)) {
+                result.checks[ply]++;
+                if (moves(model).isEmpty()) result.mates[ply]++;
+            }
+            if (depth > 1) {
+                walk(model, ply + 1, depth - 1, result);
+            }
+            model.unmakeMove(move);
+        }
+    }
+
+    private static boolean inCheck(ChessBoardModel model, boolean forRed) {
+        AbstractPiece own = null;
+        AbstractPiece enemy = null;
+        for (AbstractPiece piece : model.getPieces()) {
+            if (piece instanceof GeneralPiece) {
+                if (piece.isRed() == forRed) own = piece;
+                else enemy = piece;
+            }
+        }
+        if (own == null) return false;
+        for (AbstractPiece piece : model.getPieces()) {
+            if (piece.isRed() != forRed && piece.canMoveTo(own.getRow(), own.getCol(), model)) return true;
+        }
+        if (enemy == null || enemy.getCol() != own.getCol()) return false;
+        for (int row = Math.min(own.getRow(), enemy.getRow()) + 1; row < Math.max(own.getRow(), enemy.getRow()); row++) {
+            if (model.getPieceAt(row, own.getCol()) != null) return false;
+        }
+        return true;
+    }
+
+    private static List<Integer> moves(ChessBoardModel model) {
+        List<Integer> moves = new ArrayList<>();
+        boolean red = model.isRedTurn();
+        for (AbstractPiece piece : new ArrayList<>(model.getPieces())) {
+            if (piece.isRed() != red) continue;
+            for (int row = 0; row < ChessBoardModel.getRows(); row++) {
+                for (int col = 0; col < ChessBoardModel.getCols(); col++) {
+                    if (!piece.canMoveTo(row, col, model)) continue;
+                    AbstractPiece target = model.getPieceAt(row, col);
+                    int move = Move.encode(Square.of(piece.getRow(), piece.getCol()), Square.of(row, col),
+                            Piece.codeOf(piece), target == null ? Piece.EMPTY : Piece.codeOf(target));
+                    model.makeMove(move);
+                    boolean legal = !inCheck(model, red);
+                    model.unmakeMove(move);
+                    if (legal) moves.add(move);
+                }
+            }
+        }
+        return moves;
+    }
+}
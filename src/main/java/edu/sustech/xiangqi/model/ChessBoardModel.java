@@ -1,18 +1,55 @@
 package edu.sustech.xiangqi.model;
 
+import edu.sustech.xiangqi.model.engine.Bitboard;
+import edu.sustech.xiangqi.model.engine.LegalMoves;
+import edu.sustech.xiangqi.model.engine.Material;
+import edu.sustech.xiangqi.model.engine.Move;
+import edu.sustech.xiangqi.model.engine.MoveGenerator;
+import edu.sustech.xiangqi.model.engine.Piece;
+import edu.sustech.xiangqi.model.engine.Position;
+import edu.sustech.xiangqi.model.engine.Repetition;
+import edu.sustech.xiangqi.model.engine.Search;
+import edu.sustech.xiangqi.model.engine.See;
+import edu.sustech.xiangqi.model.engine.Square;
+import edu.sustech.xiangqi.model.engine.Tablebases;
+import edu.sustech.xiangqi.model.engine.Zobrist;
 import edu.sustech.xiangqi.model.pieces.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Stack;
 import java.util.stream.Collectors;
 
 
 public class ChessBoardModel {
-    // 储存棋盘上所有的棋子，要实现吃子的话，直接通过pieces.remove(被吃掉的棋子)删除就可以
+    // 储存棋盘上所有的棋子，增删棋子要通过 addPiece / removePiece，保证和 board 索引同步
     private final List<AbstractPiece> pieces;
     private static final int ROWS = 10;
     private static final int COLS = 9;
+    // 格子索引（row * COLS + col -> 棋子），和 pieces 同步维护，getPieceAt 直接查表
+    private final AbstractPiece[] board = new AbstractPiece[ROWS * COLS];
+    // 格子上的棋子在 pieces 里的下标，吃子时不用在列表里查找
+    private final int[] slots = new int[ROWS * COLS];
+    // 引擎用的位棋盘局面，和 board 一起在 addPiece / removePiece / relocatePiece 里更新
+    private final Position position = new Position();
+    private final MoveGenerator moveGenerator = new MoveGenerator();
+    private final int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];
+    private final Bitboard checkerSquares = new Bitboard();
+    private final See see = new See();
+    // 当前局面的合法走法和将军信息，按局面键缓存，界面和胜负判断共用
+    private final LegalMoves legalMoves = new LegalMoves();
+    // 同一局面第三次出现时按长将、长捉裁决
+    private final Repetition repetition = new Repetition();
+    private static final int REPETITION_LIMIT = 2;
+    // 残局库（可以没有）：提示用；打开 tablebaseAdjudication 后将死、困毙的判断也先查库
+    private Tablebases tablebases;
+    private boolean tablebaseAdjudication;
+    // makeMove 的撤销栈：被吃掉的棋子对象（其余信息都在走法编码里）
+    private AbstractPiece[] capturedStack = new AbstractPiece[1024];
+    // 被吃的棋子原来在 pieces 里的下标，悔棋时放回原位，列表顺序不变
+    private int[] capturedSlots = new int[1024];
+    private int undoTop = 0;
     private boolean isRedTurn = true;
 
     public enum GameState {
@@ -47,152 +84,112 @@ public class ChessBoardModel {
      * 是否在将军状态
      */
     public boolean isInCheck() {
-        // 1. 找到当前回合方的将/帅
-        GeneralPiece currentGeneral = null;
-        for (AbstractPiece piece : pieces) {
-            if (piece instanceof GeneralPiece && piece.isRed() == isRedTurn) { // 注意：是当前回合方
-                currentGeneral = (GeneralPiece) piece;
-                break;
-            }
-        }
-        if (currentGeneral == null) return false;
+        return getLegalMoves().inCheck();
+    }
 
-        // 2. 检查对方棋子是否能攻击到将/帅
-        for (AbstractPiece enemyPiece : pieces) {
-            if (enemyPiece.isRed() != isRedTurn) { // 对方棋子
-                if (enemyPiece.canMoveTo(currentGeneral.getRow(), currentGeneral.getCol(), this)) {
-                    return true; // 能攻击到，说明被将军
-                }
-            }
-        }
-        return false;
+    /**
+     * 当前局面走子方的规则信息（合法走法、将军），局面没变时不重新计算
+     */
+    public LegalMoves getLegalMoves() {
+        legalMoves.update(position);
+        return legalMoves;
+    }
+
+
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    /**
+     * 当前局面走子方在残局库里的分数（见 Tablebases.probe），没有残局库或者子力不在库里时返回 Tablebases.UNKNOWN
+     */
+    public int probeTablebase() {
+        return tablebases == null ? Tablebases.UNKNOWN : tablebases.probe(position);
+    }
+
+    /**
+     * 将死、困毙的判断是否用残局库的结果（默认不用）：打开后子力在库里的局面按库里的胜负和判定，
+     * 库里查不到时仍然看合法走法；库文件过期或损坏会导致误判，只在确认库文件可靠时打开
+     */
+    public void setTablebaseAdjudication(boolean enabled) {
+        this.tablebaseAdjudication = enabled;
     }
 
+    /**
+     * 胜负判断用的查库结果，没有打开 tablebaseAdjudication 时总是 Tablebases.UNKNOWN
+     */
+    private int probeForAdjudication() {
+        return tablebaseAdjudication ? probeTablebase() : Tablebases.UNKNOWN;
+    }
 
     /**
      * 检查是否将死
      */
     public boolean checkForCheckmate(boolean forRed) {
+        if (forRed == isRedTurn) {
+            // 库里"0 步输"就是无子可走，其余结果（胜、和、几步后输）都说明还有棋可走
+            int tb = probeForAdjudication();
+            if (tb != Tablebases.UNKNOWN) return tb == -Search.MATE && isInCheckForPlayer(forRed);
+            return getLegalMoves().isCheckmate();
+        }
+
         // 首先检查是否被将军
         if (!isInCheckForPlayer(forRed)) {
             return false; // 没有被将军，不是将死
         }
 
-        // 尝试所有可能的走法，看是否能解除将军
-        for (AbstractPiece piece : new ArrayList<>(pieces)) { // 使用副本避免并发修改
-            if (piece.isRed() == forRed) { // 己方棋子
-                // 记录原始位置
-                int originalRow = piece.getRow();
-                int originalCol = piece.getCol();
-
-                // 尝试所有可能的移动
-                for (int row = 0; row < ROWS; row++) {
-                    for (int col = 0; col < COLS; col++) {
-                        if (piece.canMoveTo(row, col, this)) {
-                            // 检查移动是否会导致将帅对面（规则不允许）
-                            // 临时模拟移动
-                            AbstractPiece captured = getPieceAt(row, col);
-                            piece.moveTo(row, col);
-                            if (captured != null) {
-                                pieces.remove(captured);
-                            }
-
-                            // 检查移动后是否仍被将军
-                            boolean stillInCheck = isInCheckForPlayer(forRed);
-
-                            // 检查是否会导致将帅对面
-                            boolean facingGenerals = willCauseFacingGeneralsAfterMove();
-
-                            // 回退
-                            piece.moveTo(originalRow, originalCol);
-                            if (captured != null) {
-                                pieces.add(captured);
-                            }
-
-                            // 如果移动后不被将军且不导致将帅对面，则不是将死
-                            if (!stillInCheck && !facingGenerals) {
-                                return false; // 有解将的方法
-                            }
-                        }
-                    }
-                }
-            }
-        }
-
-        return true; // 无解，将死
+        // 只要有一步合法走法能解除将军，就不是将死
+        return !moveGenerator.hasLegalMove(position, forRed ? Piece.RED : Piece.BLACK, moveBuffer);
     }
 
     /**
      * 检查指定玩家是否被将军 - 专用方法
      */
     public boolean isInCheckForPlayer(boolean forRed) {
-        // 1. 找到指定玩家的将/帅
-        GeneralPiece playerGeneral = null;
-        for (AbstractPiece piece : pieces) {
-            if (piece instanceof GeneralPiece && piece.isRed() == forRed) {
-                playerGeneral = (GeneralPiece) piece;
-                break;
-            }
-        }
-        if (playerGeneral == null) return false;
+        // 从将/帅所在格往外查（位置由位棋盘局面缓存），不再逐个问对方棋子
+        return position.inCheck(forRed ? Piece.RED : Piece.BLACK);
+    }
 
-        // 2. 检查对方棋子是否能攻击到将/帅
-        for (AbstractPiece enemyPiece : pieces) {
-            if (enemyPiece.isRed() != forRed) { // 对方棋子
-                if (enemyPiece.canMoveTo(playerGeneral.getRow(), playerGeneral.getCol(), this)) {
-                    return true; // 能攻击到，说明被将军
-                }
-            }
+    /**
+     * 正在将指定玩家的棋子（界面高亮、提示用），没有被将军时返回空列表
+     */
+    public List<AbstractPiece> getCheckingPieces(boolean forRed) {
+        List<AbstractPiece> checkers = new ArrayList<>();
+        if (forRed == isRedTurn) {
+            getLegalMoves().checkers(checkerSquares);
+        } else {
+            position.checkers(forRed ? Piece.RED : Piece.BLACK, checkerSquares);
+        }
+        for (int sq = checkerSquares.poll(); sq != Square.NONE; sq = checkerSquares.poll()) {
+            checkers.add(board[sq]);
         }
-        return false;
+        return checkers;
     }
 
+    /**
+     * 棋子是否被捉：对方吃它按静态交换（考虑炮架、马腿和后续互吃）能净赚子力，界面提示用
+     */
+    public boolean isHanging(AbstractPiece piece) {
+        return see.isHanging(position, Square.of(piece.getRow(), piece.getCol()));
+    }
 
     /**
      * 检查是否困毙（无子可动且不被将军）
      */
     public boolean checkForStalemate(boolean forRed) {
+        if (forRed == isRedTurn) {
+            int tb = probeForAdjudication();
+            if (tb != Tablebases.UNKNOWN) return tb == -Search.MATE && !isInCheckForPlayer(forRed);
+            return getLegalMoves().isStalemate();
+        }
+
         // 首先检查是否被将军
         if (isInCheckForPlayer(forRed)) {
             return false; // 被将军不是困毙
         }
 
-        // 检查是否有任何合法走法
-        for (AbstractPiece piece : new ArrayList<>(pieces)) { // 使用副本
-            if (piece.isRed() == forRed) { // 己方棋子
-                int originalRow = piece.getRow();
-                int originalCol = piece.getCol();
-
-                for (int row = 0; row < ROWS; row++) {
-                    for (int col = 0; col < COLS; col++) {
-                        if (piece.canMoveTo(row, col, this)) {
-                            // 模拟移动以检查是否会导致将帅对面
-                            AbstractPiece captured = getPieceAt(row, col);
-                            piece.moveTo(row, col);
-                            if (captured != null) {
-                                pieces.remove(captured);
-                            }
-
-                            // 检查移动是否会导致将帅对面or被将军
-                            boolean facingGenerals = willCauseFacingGeneralsAfterMove();
-                            boolean selfCheck = isInCheckForPlayer(forRed);
-                            // 回退
-                            piece.moveTo(originalRow, originalCol);
-                            if (captured != null) {
-                                pieces.add(captured);
-                            }
-
-                            // 如果有合法移动且不导致将帅对面，则不是困毙
-                            if (!facingGenerals && !selfCheck) {
-                                return false; // 有合法走法
-                            }
-                        }
-                    }
-                }
-            }
-        }
-
-        return true; // 无子可动
+        // 检查是否有任何合法走法（不送将、不导致将帅对面）
+        return !moveGenerator.hasLegalMove(position, forRed ? Piece.RED : Piece.BLACK, moveBuffer);
     }
 
     /**
@@ -254,6 +251,39 @@ public class ChessBoardModel {
                 gameState = GameState.RED_WIN;
                 victoryMessage = "黑方违规！将帅对面！红方胜利！";
             }
+            return;
+        }
+
+        checkRepetition();
+    }
+
+    /**
+     * 同一局面第三次出现：长将、长捉的一方判负，否则判和
+     * 重复只往回查到上一次吃子或兵卒前进，每步的将军、捉子标志算过就缓存，不会重新扫描整盘棋
+     */
+    private void checkRepetition() {
+        if (position.repetitionCount() < REPETITION_LIMIT) return;
+        int result = repetition.adjudicate(position);
+        // 走棋方是 isRedTurn，"对方"是刚走完这一步的一方
+        String mover = isRedTurn ? "黑方" : "红方";
+        String other = isRedTurn ? "红方" : "黑方";
+        switch (result) {
+            case Repetition.WIN_CHECK:
+            case Repetition.WIN_CHASE:
+                gameState = isRedTurn ? GameState.RED_WIN : GameState.BLACK_WIN;
+                victoryMessage = mover + (result == Repetition.WIN_CHECK ? "长将" : "长捉") + "判负！" + other + "胜利！";
+                break;
+            case Repetition.LOSS_CHECK:
+            case Repetition.LOSS_CHASE:
+                gameState = isRedTurn ? GameState.BLACK_WIN : GameState.RED_WIN;
+                victoryMessage = other + (result == Repetition.LOSS_CHECK ? "长将" : "长捉") + "判负！" + mover + "胜利！";
+                break;
+            case Repetition.DRAW:
+                gameState = GameState.DRAW;
+                victoryMessage = "同一局面三次重复，判和！";
+                break;
+            default:
+                break;
         }
     }
 
@@ -269,40 +299,40 @@ public class ChessBoardModel {
 
     private void initializePieces() {
         // 黑方棋子
-        pieces.add(new GeneralPiece("將", 0, 4, false));
-        pieces.add(new AdvisorPiece("士", 0, 3, false));
-        pieces.add(new AdvisorPiece("士", 0, 5, false));
-        pieces.add(new ElephantPiece("象", 0, 2, false));
-        pieces.add(new ElephantPiece("象", 0, 6, false));
-        pieces.add(new HorsePiece("馬", 0, 1, false));
-        pieces.add(new HorsePiece("馬", 0, 7, false));
-        pieces.add(new ChariotPiece("車", 0, 0, false));
-        pieces.add(new ChariotPiece("車", 0, 8, false));
-        pieces.add(new CannonPiece("砲", 2, 1, false));
-        pieces.add(new CannonPiece("砲", 2, 7, false));
-        pieces.add(new SoldierPiece("卒", 3, 0, false));
-        pieces.add(new SoldierPiece("卒", 3, 2, false));
-        pieces.add(new SoldierPiece("卒", 3, 4, false));
-        pieces.add(new SoldierPiece("卒", 3, 6, false));
-        pieces.add(new SoldierPiece("卒", 3, 8, false));
+        addPiece(new GeneralPiece("將", 0, 4, false));
+        addPiece(new AdvisorPiece("士", 0, 3, false));
+        addPiece(new AdvisorPiece("士", 0, 5, false));
+        addPiece(new ElephantPiece("象", 0, 2, false));
+        addPiece(new ElephantPiece("象", 0, 6, false));
+        addPiece(new HorsePiece("馬", 0, 1, false));
+        addPiece(new HorsePiece("馬", 0, 7, false));
+        addPiece(new ChariotPiece("車", 0, 0, false));
+        addPiece(new ChariotPiece("車", 0, 8, false));
+        addPiece(new CannonPiece("砲", 2, 1, false));
+        addPiece(new CannonPiece("砲", 2, 7, false));
+        addPiece(new SoldierPiece("卒", 3, 0, false));
+        addPiece(new SoldierPiece("卒", 3, 2, false));
+        addPiece(new SoldierPiece("卒", 3, 4, false));
+        addPiece(new SoldierPiece("卒", 3, 6, false));
+        addPiece(new SoldierPiece("卒", 3, 8, false));
 
         // 红方棋子
-        pieces.add(new GeneralPiece("帅", 9, 4, true));
-        pieces.add(new AdvisorPiece("仕", 9, 3, true));
-        pieces.add(new AdvisorPiece("仕", 9, 5, true));
-        pieces.add(new ElephantPiece("相", 9, 2, true));
-        pieces.add(new ElephantPiece("相", 9, 6, true));
-        pieces.add(new HorsePiece("马", 9, 1, true));
-        pieces.add(new HorsePiece("马", 9, 7, true));
-        pieces.add(new ChariotPiece("车", 9, 0, true));
-        pieces.add(new ChariotPiece("车", 9, 8, true));
-        pieces.add(new CannonPiece("炮", 7, 1, true));
-        pieces.add(new CannonPiece("炮", 7, 7, true));
-        pieces.add(new SoldierPiece("兵", 6, 0, true));
-        pieces.add(new SoldierPiece("兵", 6, 2, true));
-        pieces.add(new SoldierPiece("兵", 6, 4, true));
-        pieces.add(new SoldierPiece("兵", 6, 6, true));
-        pieces.add(new SoldierPiece("兵", 6, 8, true));
+        addPiece(new GeneralPiece("帅", 9, 4, true));
+        addPiece(new AdvisorPiece("仕", 9, 3, true));
+        addPiece(new AdvisorPiece("仕", 9, 5, true));
+        addPiece(new ElephantPiece("相", 9, 2, true));
+        addPiece(new ElephantPiece("相", 9, 6, true));
+        addPiece(new HorsePiece("马", 9, 1, true));
+        addPiece(new HorsePiece("马", 9, 7, true));
+        addPiece(new ChariotPiece("车", 9, 0, true));
+        addPiece(new ChariotPiece("车", 9, 8, true));
+        addPiece(new CannonPiece("炮", 7, 1, true));
+        addPiece(new CannonPiece("炮", 7, 7, true));
+        addPiece(new SoldierPiece("兵", 6, 0, true));
+        addPiece(new SoldierPiece("兵", 6, 2, true));
+        addPiece(new SoldierPiece("兵", 6, 4, true));
+        addPiece(new SoldierPiece("兵", 6, 6, true));
+        addPiece(new SoldierPiece("兵", 6, 8, true));
     }
 
     public List<AbstractPiece> getPieces() {
@@ -310,12 +340,187 @@ public class ChessBoardModel {
     }
 
     public AbstractPiece getPieceAt(int row, int col) {
-        for (AbstractPiece piece : pieces) {
-            if (piece.getRow() == row && piece.getCol() == col) {
-                return piece;
-            }
+        if (!isValidPosition(row, col)) {
+            return null;
+        }
+        return board[row * COLS + col];
+    }
+
+    /**
+     * 把棋子放上棋盘（同时登记到列表和格子索引）
+     */
+    private void addPiece(AbstractPiece piece) {
+        int index = piece.getRow() * COLS + piece.getCol();
+        slots[index] = pieces.size();
+        pieces.add(piece);
+        board[index] = piece;
+        position.putPiece(index, Piece.codeOf(piece));
+    }
+
+    /**
+     * 把棋子从棋盘上拿掉（被吃），返回它在 pieces 里的下标，交给 restorePiece 放回
+     */
+    private int removePiece(AbstractPiece piece) {
+        int index = piece.getRow() * COLS + piece.getCol();
+        int slot = slots[index];
+        takeSlot(slot);
+        board[index] = null;
+        position.removePiece(index);
+        return slot;
+    }
+
+    /**
+     * 撤销 removePiece：棋子回到原来的格子和列表下标
+     */
+    private void restorePiece(AbstractPiece piece, int slot) {
+        int index = piece.getRow() * COLS + piece.getCol();
+        putSlot(piece, slot);
+        board[index] = piece;
+        position.putPiece(index, Piece.codeOf(piece));
+    }
+
+    /**
+     * 从 pieces 里拿掉下标 slot 的棋子：用最后一个棋子填上空位，不用整体移动列表
+     */
+    private void takeSlot(int slot) {
+        AbstractPiece last = pieces.remove(pieces.size() - 1);
+        if (slot < pieces.size()) {
+            pieces.set(slot, last);
+            slots[last.getRow() * COLS + last.getCol()] = slot;
+        }
+    }
+
+    /**
+     * 撤销 takeSlot：把填空位的棋子挪回末尾，piece 放回 slot
+     */
+    private void putSlot(AbstractPiece piece, int slot) {
+        if (slot < pieces.size()) {
+            AbstractPiece moved = pieces.get(slot);
+            slots[moved.getRow() * COLS + moved.getCol()] = pieces.size();
+            pieces.add(moved);
+            pieces.set(slot, piece);
+        } else {
+            pieces.add(piece);
         }
-        return null;
+        slots[piece.getRow() * COLS + piece.getCol()] = slot;
+    }
+
+    /**
+     * 移动棋子并更新格子索引，目标格必须已经空出来
+     */
+    private void relocatePiece(AbstractPiece piece, int newRow, int newCol) {
+        int from = piece.getRow() * COLS + piece.getCol();
+        int to = newRow * COLS + newCol;
+        board[from] = null;
+        piece.moveTo(newRow, newCol);
+        board[to] = piece;
+        slots[to] = slots[from];
+        position.movePiece(from, to);
+    }
+
+    /**
+     * 清空棋盘
+     */
+    private void clearBoard() {
+        pieces.clear();
+        Arrays.fill(board, null);
+        position.clear();
+        legalMoves.invalidate();
+        Arrays.fill(capturedStack, 0, undoTop, null);
+        undoTop = 0;
+    }
+
+    /**
+     * 设置回合方（同步到位棋盘局面）
+     */
+    private void setRedTurn(boolean redTurn) {
+        this.isRedTurn = redTurn;
+        position.setSideToMove(redTurn ? Piece.RED : Piece.BLACK);
+    }
+
+    /**
+     * 模拟走一步，检查走完后是否会导致将帅对面或本方被将军，检查完立即还原
+     * 调用前需保证 piece.canMoveTo(newRow, newCol) 成立
+     */
+    private boolean isSafeAfterMove(AbstractPiece piece, int newRow, int newCol) {
+        int originalRow = piece.getRow();
+        int originalCol = piece.getCol();
+        AbstractPiece captured = getPieceAt(newRow, newCol);
+
+        int capturedSlot = captured != null ? removePiece(captured) : -1;
+        relocatePiece(piece, newRow, newCol);
+
+        // 位棋盘的将军判断已包含将帅对面
+        boolean safe = !isInCheckForPlayer(piece.isRed());
+
+        // 回退
+        relocatePiece(piece, originalRow, originalCol);
+        if (captured != null) {
+            restorePiece(captured, capturedSlot);
+        }
+        return safe;
+    }
+
+    /**
+     * 判断某一步是否完全合法（走法规则 + 不送将 + 不对脸），不改变棋盘
+     */
+    public boolean isLegalMove(AbstractPiece piece, int newRow, int newCol) {
+        if (piece.isRed() == isRedTurn) {
+            return isValidPosition(newRow, newCol) && findLegalMove(piece, newRow, newCol) != Move.NONE;
+        }
+        return isValidPosition(newRow, newCol)
+                && piece.canMoveTo(newRow, newCol, this)
+                && isSafeAfterMove(piece, newRow, newCol);
+    }
+
+    /**
+     * 生成某个棋子的全部合法走法，编码见 {@link Move}，返回走法数
+     */
+    public int generateLegalMoves(AbstractPiece piece, int[] moves) {
+        int from = Square.of(piece.getRow(), piece.getCol());
+        if (piece.isRed() == isRedTurn) {
+            return getLegalMoves().copyFrom(from, moves);
+        }
+        return moveGenerator.generateLegalFrom(position, from, moves, 0);
+    }
+
+    /**
+     * 生成当前回合方的全部合法走法，返回走法数
+     */
+    public int generateLegalMoves(int[] moves) {
+        LegalMoves cached = getLegalMoves();
+        for (int i = 0; i < cached.count(); i++) {
+            moves[i] = cached.move(i);
+        }
+        return cached.count();
+    }
+
+    /**
+     * 走子方棋子走到 (row, col) 的合法走法编码，不合法时返回 Move.NONE
+     */
+    private int findLegalMove(AbstractPiece piece, int row, int col) {
+        return getLegalMoves().find(Square.of(piece.getRow(), piece.getCol()), Square.of(row, col));
+    }
+
+    /**
+     * 当前局面的 64 位 Zobrist 键（随走子、吃子、悔棋、换边增量更新）
+     */
+    public long getZobristKey() {
+        return position.key();
+    }
+
+    /**
+     * 从头重新计算局面键，用于校验增量更新
+     */
+    public long computeZobristKey() {
+        return Zobrist.compute(position);
+    }
+
+    /**
+     * 位棋盘局面（只读使用，修改请走模型的接口）
+     */
+    public Position getPosition() {
+        return position;
     }
 
     public boolean isValidPosition(int row, int col) {
@@ -331,11 +536,13 @@ public class ChessBoardModel {
             return false; // 游戏已结束
         }
 
-        if (!piece.canMoveTo(newRow, newCol, this)) {
+        if(piece.isRed() != isRedTurn){
             return false;
         }
 
-        if(piece.isRed() != isRedTurn){
+        // 走法规则 + 不导致将帅对面 + 不导致本方被将军：直接查当前局面的合法走法表
+        int move = findLegalMove(piece, newRow, newCol);
+        if (move == Move.NONE) {
             return false;
         }
 
@@ -346,63 +553,85 @@ public class ChessBoardModel {
         // 获取目标位置的棋子（可能被吃掉）
         AbstractPiece targetPiece = this.getPieceAt(newRow, newCol);
 
-        // 临时移动棋子检查是否会导致将帅对面
-        if (targetPiece != null && targetPiece.isRed() != piece.isRed()) {
-            // 临时移除被吃的棋子
-            pieces.remove(targetPiece);
-        }
+        // 走子、吃子、切换回合
+        makeMove(move);
 
-        piece.moveTo(newRow, newCol);
+        // 记录移动历史（棋谱在这里生成）
+        MoveRecord record = new MoveRecord(move, piece, originalRow, originalCol, newRow, newCol, targetPiece, this);
+        record.gameStateBefore = gameState;
+        record.victoryMessageBefore = victoryMessage;
+        moveHistory.push(record);
 
-        // 检查移动后是否会导致将帅对面 or 导致本方被将军
-        if (willCauseFacingGeneralsAfterMove() || isInCheckForPlayer(isRedTurn)) {
-            // 如果会导致将帅对面，撤回
-            piece.moveTo(originalRow, originalCol);
-            if (targetPiece != null) {
-                pieces.add(targetPiece);
+        // 关键：检查是否吃掉的是对方的将/帅
+        if (targetPiece instanceof GeneralPiece) {
+            // 吃掉了对方的将/帅，游戏立即结束
+            if (piece.isRed()) {
+                gameState = GameState.RED_WIN;
+                victoryMessage = "红方吃掉黑将！红方胜利！";
+            } else {
+                gameState = GameState.BLACK_WIN;
+                victoryMessage = "黑方吃掉红帅！黑方胜利！";
             }
-            return false;
+        } else {
+            // 关键：立即更新游戏状态
+            updateGameState();
         }
 
-        // 如果目标位置有对方棋子，吃掉
-        if (targetPiece != null && targetPiece.isRed() != piece.isRed()) {
-            // 关键：检查是否吃掉的是对方的将/帅
-            if (targetPiece instanceof GeneralPiece) {
-                // 吃掉了对方的将/帅，游戏立即结束
-                if (piece.isRed()) {
-                    gameState = GameState.RED_WIN;
-                    victoryMessage = "红方吃掉黑将！红方胜利！";
-                } else {
-                    gameState = GameState.BLACK_WIN;
-                    victoryMessage = "黑方吃掉红帅！黑方胜利！";
-                }
-
-                // 从棋盘上移除被吃的将/帅
-                pieces.remove(targetPiece);
-
-                // 切换回合（虽然游戏结束了，但为了记录可能还是要切换）
-                isRedTurn = !isRedTurn;
+        record.gameStateAfter = gameState;
+        return true;
+    }
 
-                // 记录移动历史
-                moveHistory.push(new MoveRecord(piece, originalRow, originalCol, newRow, newCol, targetPiece, this));
+    /**
+     * 底层走子：只更新棋盘、回合和位棋盘局面（子力、局面键等增量信息），不生成棋谱、不判断胜负，也不检查合法性
+     * 走法必须来自当前局面（见 {@link #generateLegalMoves(int[])}），所以不对包外开放：
+     * 界面和存档都走 movePiece，包内只有 movePiece、悔棋和 ReferencePerft 调用
+     */
+    void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        AbstractPiece mover = board[from];
+        AbstractPiece captured = board[to];
 
-                // 返回true，移动成功（虽然游戏结束了）
-                return true;
-            }
+        if (undoTop == capturedStack.length) {
+            capturedStack = Arrays.copyOf(capturedStack, capturedStack.length * 2);
+            capturedSlots = Arrays.copyOf(capturedSlots, capturedStack.length);
+        }
+        capturedStack[undoTop] = captured;
 
-            pieces.remove(targetPiece);
+        if (captured != null) {
+            capturedSlots[undoTop] = slots[to];
+            takeSlot(slots[to]);
         }
+        undoTop++;
+        board[from] = null;
+        mover.moveTo(Square.row(to), Square.col(to));
+        board[to] = mover;
+        slots[to] = slots[from];
 
-        // 切换回合
+        position.makeMove(move);
         isRedTurn = !isRedTurn;
+    }
 
-        // 记录移动历史
-        moveHistory.push(new MoveRecord(piece, originalRow, originalCol, newRow, newCol, targetPiece, this));
-
-        // 关键：立即更新游戏状态
-        updateGameState();
-
-        return true;
+    /**
+     * 撤销 {@link #makeMove(int)}，必须按相反顺序调用
+     */
+    void unmakeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        AbstractPiece mover = board[to];
+        AbstractPiece captured = capturedStack[--undoTop];
+        capturedStack[undoTop] = null;
+
+        mover.moveTo(Square.row(from), Square.col(from));
+        board[from] = mover;
+        slots[from] = slots[to];
+        board[to] = captured;
+        if (captured != null) {
+            putSlot(captured, capturedSlots[undoTop]);
+        }
+
+        position.unmakeMove(move);
+        isRedTurn = !isRedTurn;
     }
 
     /**
@@ -443,18 +672,19 @@ public class ChessBoardModel {
             return false; // 没有可悔棋的步骤
         }
 
-        MoveRecord lastMove = moveHistory.pop();
+        // 这一步之后又有投降、超时、议和，终局不是这一步造成的，不能悔
+        if (gameState != moveHistory.peek().gameStateAfter) {
+            return false;
+        }
 
-        // 将棋子移回原位置
-        lastMove.piece.moveTo(lastMove.fromRow, lastMove.fromCol);
+        MoveRecord lastMove = moveHistory.pop();
 
-        // 如果这一步吃了棋子，恢复被吃的棋子
-        if (lastMove.capturedPiece != null) {
-            pieces.add(lastMove.capturedPiece);
-        }
+        // 将棋子移回原位置，恢复被吃的棋子，切换回合（回到上一步的玩家回合）
+        unmakeMove(lastMove.move);
 
-        // 切换回合（回到上一步的玩家回合）
-        isRedTurn = !isRedTurn;
+        // 恢复走这一步之前的状态（撤回吃将、将死、困毙、重复裁决的一步后对局继续）
+        gameState = lastMove.gameStateBefore;
+        victoryMessage = lastMove.victoryMessageBefore;
 
         return true;
     }
@@ -470,41 +700,7 @@ public class ChessBoardModel {
      * 检查移动后是否会导致将帅直接对面
      */
     public boolean willCauseFacingGeneralsAfterMove() {
-        GeneralPiece redGeneral = null;
-        GeneralPiece blackGeneral = null;
-
-        // 找到两个将帅
-        for (AbstractPiece piece : pieces) {
-            if (piece instanceof GeneralPiece) {
-                if (piece.isRed()) {
-                    redGeneral = (GeneralPiece) piece;
-                } else {
-                    blackGeneral = (GeneralPiece) piece;
-                }
-            }
-        }
-
-        if (redGeneral == null || blackGeneral == null) {
-            return false;
-        }
-
-        // 检查是否在同一列
-        if (redGeneral.getCol() != blackGeneral.getCol()) {
-            return false;
-        }
-
-        // 检查中间是否有其他棋子
-        int topRow = Math.min(redGeneral.getRow(), blackGeneral.getRow());
-        int bottomRow = Math.max(redGeneral.getRow(), blackGeneral.getRow());
-
-        for (int row = topRow + 1; row < bottomRow; row++) {
-            // 中间有棋子，不会对面
-            if (getPieceAt(row, redGeneral.getCol()) != null) {
-                return false;
-            }
-        }
-
-        return true;
+        return position.generalsFacing();
     }
 
     /**
@@ -545,9 +741,9 @@ public class ChessBoardModel {
      * 重置游戏状态
      */
     public void resetGame() {
-        pieces.clear();
+        clearBoard();
         initializePieces();
-        isRedTurn = true;
+        setRedTurn(true);
         moveHistory.clear();
         gameState = GameState.PLAYING;
         victoryMessage = "";
@@ -604,6 +800,24 @@ public class ChessBoardModel {
         }
     }
 
+    /**
+     * 按位棋盘局面摆棋（FEN 局面、残局等），清空走子历史
+     */
+    public void loadFromPosition(Position source) {
+        clearBoard();
+        for (int sq = 0; sq < ROWS * COLS; sq++) {
+            int piece = source.pieceAt(sq);
+            if (piece != Piece.EMPTY) {
+                addPiece(Piece.toAbstractPiece(piece, Square.row(sq), Square.col(sq)));
+            }
+        }
+        setRedTurn(source.sideToMove() == Piece.RED);
+        moveHistory.clear();
+        gameState = GameState.PLAYING;
+        victoryMessage = "";
+        isCheck = false;
+    }
+
     /**
      * 获取当前棋谱记录（用于显示）
      */
@@ -635,40 +849,40 @@ public class ChessBoardModel {
      * 加载合法的困毙（红方判负）测试残局
      */
     public void loadStalemateTest() {
-        this.pieces.clear();
+        clearBoard();
         this.moveHistory.clear();
         this.gameState = GameState.PLAYING; // 重置状态
 
         // 1. 红帅 (9, 4)
-        pieces.add(new GeneralPiece("帅", 9, 4, true));
+        addPiece(new GeneralPiece("帅", 9, 4, true));
 
         // 2. 黑将 (0, 5) - 错开一列，避免将帅直接对面
-        pieces.add(new GeneralPiece("將", 0, 5, false));
+        addPiece(new GeneralPiece("將", 0, 5, false));
 
         // 3. 这里的布局是为了封锁红帅的所有出路，但当前不将军
 
         // 黑车A (8, 0): 封锁第8行 (红帅不能向上走)
-        pieces.add(new ChariotPiece("車", 8, 0, false));
+        addPiece(new ChariotPiece("車", 8, 0, false));
 
         // 黑车B (0, 3): 封锁第3列 (红帅不能向左走，会被这一列顶部的车吃掉)
-        pieces.add(new ChariotPiece("車", 0, 3, false));
+        addPiece(new ChariotPiece("車", 0, 3, false));
 
         // 黑车C (0, 5): 封锁第5列 (红帅不能向右走，会被这一列顶部的车吃掉)
-        pieces.clear();
-        pieces.add(new GeneralPiece("帅", 9, 4, true)); // 红帅
-        pieces.add(new GeneralPiece("將", 0, 5, false)); // 黑将(错开)
+        clearBoard();
+        addPiece(new GeneralPiece("帅", 9, 4, true)); // 红帅
+        addPiece(new GeneralPiece("將", 0, 5, false)); // 黑将(错开)
 
         // 封锁上路：黑车在 (8,0) 控制第8行
-        pieces.add(new ChariotPiece("車", 8, 0, false));
+        addPiece(new ChariotPiece("車", 8, 0, false));
 
         // 封锁左路：黑车在 (1,3) 控制第3列
-        pieces.add(new ChariotPiece("車", 1, 3, false));
+        addPiece(new ChariotPiece("車", 1, 3, false));
 
         // 封锁右路：黑车在 (1,5) 控制第5列
-        pieces.add(new ChariotPiece("車", 1, 5, false));
+        addPiece(new ChariotPiece("車", 1, 5, false));
 
         // 强制红方回合
-        this.isRedTurn = true;
+        setRedTurn(true);
 
         // 立即计算状态
         updateGameState();
@@ -700,21 +914,9 @@ public class ChessBoardModel {
 
     /**
      * 检查是否子力不足（双方都没有进攻棋子（车、马、炮、兵/卒），只剩下将帅士象）
+     * 子力键随走子、悔棋增量更新，这里只看一次位运算
      */
     private boolean checkInsufficientMaterial() {
-        boolean redHasAttacker = false;
-        boolean blackHasAttacker = false;
-
-        for (AbstractPiece piece : pieces) {
-            // 检查是否是进攻性棋子
-            if (piece instanceof ChariotPiece ||
-                    piece instanceof HorsePiece ||
-                    piece instanceof CannonPiece ||
-                    piece instanceof SoldierPiece) {
-
-                return false;
-            }
-        }
-        return true;
+        return Material.isInsufficient(position.materialKey());
     }
 }
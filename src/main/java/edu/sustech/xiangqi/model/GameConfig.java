@@ -8,7 +8,7 @@ public class GameConfig {
     public enum Mode {
         NORMAL,     // 普通模式
         TIMED,      // 计时赛
-        AI,         // 人机 (开发中)
+        AI,         // 人机
         ONLINE      // 联网 (开发中)
     }
 
@@ -21,6 +21,8 @@ public class GameConfig {
     private int initialTimeSeconds; // 初始时间
     private int incrementSeconds;   // 每步加秒
     private TimeControl timeControl;
+    private boolean aiPlaysRed;    // 人机模式：电脑执红
+    private int aiMoveTimeMillis;  // 人机模式：电脑每步思考时间（带棋钟时为 0，由引擎按剩余时间分配）
 
     // 普通模式
     public GameConfig() {
@@ -35,7 +37,26 @@ public class GameConfig {
         this.timeControl = (incrementSeconds > 0) ? TimeControl.INCREMENT : TimeControl.SUDDEN_DEATH;
     }
 
+    // 人机模式
+    public GameConfig(boolean aiPlaysRed, int aiMoveTimeMillis) {
+        this.mode = Mode.AI;
+        this.aiPlaysRed = aiPlaysRed;
+        this.aiMoveTimeMillis = aiMoveTimeMillis;
+    }
+
+    // 人机模式 + 棋钟
+    public GameConfig(boolean aiPlaysRed, int initialTimeMinutes, int incrementSeconds) {
+        this.mode = Mode.AI;
+        this.aiPlaysRed = aiPlaysRed;
+        this.initialTimeSeconds = initialTimeMinutes * 60;
+        this.incrementSeconds = incrementSeconds;
+        this.timeControl = (incrementSeconds > 0) ? TimeControl.INCREMENT : TimeControl.SUDDEN_DEATH;
+    }
+
     public Mode getMode() { return mode; }
     public int getInitialTimeSeconds() { return initialTimeSeconds; }
     public int getIncrementSeconds() { return incrementSeconds; }
+    public boolean isAiPlaysRed() { return aiPlaysRed; }
+    public int getAiMoveTimeMillis() { return aiMoveTimeMillis; }
+    public boolean hasClock() { return initialTimeSeconds > 0; }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package edu.sustech.xiangqi.model;
 import edu.sustech.xiangqi.model.pieces.AbstractPiece;
 
 public class MoveRecord {
+    int move; // 引擎编码的走法，悔棋时交给 ChessBoardModel.unmakeMove
     AbstractPiece piece;
     int fromRow;
     int fromCol;
@@ -10,8 +11,14 @@ public class MoveRecord {
     int toCol;
     AbstractPiece capturedPiece; // 被吃掉的棋子
     String notation;
+    // 走这一步之前的对局状态，悔棋时恢复
+    ChessBoardModel.GameState gameStateBefore;
+    String victoryMessageBefore;
+    // 走完这一步后的对局状态，用来判断终局是不是这一步造成的
+    ChessBoardModel.GameState gameStateAfter;
     //constructor
-    public MoveRecord(AbstractPiece piece, int fromRow, int fromCol, int toRow, int toCol, AbstractPiece capturedPiece, ChessBoardModel model) {
+    public MoveRecord(int move, AbstractPiece piece, int fromRow, int fromCol, int toRow, int toCol, AbstractPiece capturedPiece, ChessBoardModel model) {
+        this.move = move;
         this.piece = piece;
         this.fromRow = fromRow;
         this.fromCol = fromCol;
@@ -21,6 +28,10 @@ public class MoveRecord {
         this.notation = NotationGenerator.generateNotation(piece, fromRow, fromCol, toRow, toCol, model);
     }
 
+    public int getMove() {
+        return move;
+    }
+
     public String getNotation() {
         return notation;
     }
@@ -39,56 +39,15 @@ public class NotationAnalyzer {
         int index;
         switch (char1) {
             case "前", "后" -> {
-                switch (char2) {
-                    case "兵", "炮", "车", "马", "相", "仕" -> {
-                        isRed = true;
-                        pieceName = char2;
-
-                        List<AbstractPiece> sameColumnPieces = new ArrayList<>();
-
-                        for (AbstractPiece p : model.getPieces()) {
-                            if (p.getName().equals(pieceName)) {
-                                sameColumnPieces.add(p);//先把两个字儿找到
-                            }
-                        }
-                        if(sameColumnPieces.size() != 2) return;
-                        sameColumnPieces.sort((p1, p2) -> {
-                            if (isRed) {
-                                return Integer.compare(p1.getRow(), p2.getRow());
-                            } else {
-                                return Integer.compare(p2.getRow(), p1.getRow());
-                            }
-                        });
-
-                        index = char1.equals("前") ? 0 : 1;
-                        fromRow = sameColumnPieces.get(index).getRow();
-                        fromCol = sameColumnPieces.get(index).getCol();
-                    }
-                    case "卒", "砲", "車", "馬", "象", "士" -> {
-                        isRed = false;
-                        pieceName = char2;
-
-                        List<AbstractPiece> sameColumnPieces = new ArrayList<>();
-
-                        for (AbstractPiece p : model.getPieces()) {
-                            if (p.getName().equals(pieceName) &&
-                                    p.getCol() == fromCol) {
-                                sameColumnPieces.add(p);
-                            }
-                        }
-                        sameColumnPieces.sort((p1, p2) -> {
-                            if (isRed) {
-                                return Integer.compare(p1.getRow(), p2.getRow());
-                            } else {
-                                return Integer.compare(p2.getRow(), p1.getRow());
-                            }
-                        });
-
-                        index = char1.equals("前") ? 0 : 1;
-                        fromRow = sameColumnPieces.get(index).getRow();
-                        fromCol = sameColumnPieces.get(index).getCol();
-                    }
-                }
+                isRed = "兵炮车马相仕".contains(char2);
+                pieceName = char2;
+
+                List<AbstractPiece> sameColumnPieces = tandemPieces(pieceName, isRed, model);
+                if (sameColumnPieces.size() < 2) return;
+
+                index = char1.equals("前") ? 0 : sameColumnPieces.size() - 1;
+                fromRow = sameColumnPieces.get(index).getRow();
+                fromCol = sameColumnPieces.get(index).getCol();
             }
             //兵的特殊情况
             case "一", "二", "三", "四", "五" -> {
@@ -238,4 +197,20 @@ public class NotationAnalyzer {
     public int getToCol(){
         return toCol;
     }
+
+    /**
+     * 和另一个同名棋子在同一列上的棋子（"前""后"指的就是它们），按从前到后排好：红方行号小的在前，黑方行号大的在前
+     */
+    private static List<AbstractPiece> tandemPieces(String pieceName, boolean isRed, ChessBoardModel model) {
+        int[] counts = new int[ChessBoardModel.getCols()];
+        for (AbstractPiece p : model.getPieces()) {
+            if (p.getName().equals(pieceName)) counts[p.getCol()]++;
+        }
+        List<AbstractPiece> pieces = new ArrayList<>();
+        for (AbstractPiece p : model.getPieces()) {
+            if (p.getName().equals(pieceName) && counts[p.getCol()] >= 2) pieces.add(p);
+        }
+        pieces.sort((p1, p2) -> isRed ? Integer.compare(p1.getRow(), p2.getRow()) : Integer.compare(p2.getRow(), p1.getRow()));
+        return pieces;
+    }
 }
@@ -26,7 +26,7 @@ public class NotationGenerator {
         String direction = getMoveDirection(piece, fromRow, fromCol, toRow, toCol, toColNotation);
 
         // 处理同一列有多个相同棋子的情况
-        String positionPrefix = getPositionPrefix(piece, fromCol, model);
+        String positionPrefix = getPositionPrefix(piece, fromRow, fromCol, model);
 
         if (positionPrefix.isEmpty())
             return pieceName + fromColNotation + direction;
@@ -70,9 +70,10 @@ public class NotationGenerator {
 
     /**
      * 获取位置前缀（处理同一列有多个相同棋子的情况）
+     * 棋谱是走完之后才生成的，走动的棋子要按走之前的行 fromRow 排前后
      */
-    private static String getPositionPrefix(AbstractPiece piece, int col,
-                                            ChessBoardModel model) {//问题在于移走之后piece的坐标变了！
+    private static String getPositionPrefix(AbstractPiece piece, int fromRow, int col,
+                                            ChessBoardModel model) {
         // 统计同一列中相同类型的棋子数量
         List<AbstractPiece> sameColumnPieces = new ArrayList<>();
         int[] check = new int[9];
@@ -101,10 +102,12 @@ public class NotationGenerator {
         } else {
             // 按行排序：红方从上到下（行号小到大），黑方从下到上（行号大到小）
             sameColumnPieces.sort((p1, p2) -> {
+                int row1 = p1 == piece ? fromRow : p1.getRow();
+                int row2 = p2 == piece ? fromRow : p2.getRow();
                 if (piece.isRed()) {
-                    return Integer.compare(p1.getRow(), p2.getRow());
+                    return Integer.compare(row1, row2);
                 } else {
-                    return Integer.compare(p2.getRow(), p1.getRow());
+                    return Integer.compare(row2, row1);
                 }
             });
 
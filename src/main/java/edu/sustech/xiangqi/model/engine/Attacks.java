@@ -0,0 +1,222 @@
+package edu.sustech.xiangqi.model.engine;
+
+/**
+ * 预先算好的攻击表
+ * 帅/仕/相/马/兵按格子（和塞象眼、蹩马腿的组合）查表，车/炮按行、列的占用掩码查表
+ * 表里只有几何规则，不关心格子上是哪一方的棋子，吃己方子的过滤由调用方完成
+ */
+public final class Attacks {
+    // 上、下、左、右
+    private static final int[] ORTH_DR = {-1, 1, 0, 0};
+    private static final int[] ORTH_DC = {0, 0, -1, 1};
+    // 左上、右上、左下、右下
+    private static final int[] DIAG_DR = {-1, -1, 1, 1};
+    private static final int[] DIAG_DC = {-1, 1, -1, 1};
+
+    /** 每个格子上下左右的邻格（马腿），出界为 Square.NONE */
+    public static final int[][] ORTH_NEIGHBOR = new int[Square.COUNT][4];
+    /** 每个格子四个斜向的邻格（象眼，也是反查马时的马腿），出界为 Square.NONE */
+    public static final int[][] DIAG_NEIGHBOR = new int[Square.COUNT][4];
+
+    // [颜色][格子]
+    public static final long[][] GENERAL_LO = new long[2][Square.COUNT];
+    public static final long[][] GENERAL_HI = new long[2][Square.COUNT];
+    public static final long[][] ADVISOR_LO = new long[2][Square.COUNT];
+    public static final long[][] ADVISOR_HI = new long[2][Square.COUNT];
+    public static final long[][] SOLDIER_LO = new long[2][Square.COUNT];
+    public static final long[][] SOLDIER_HI = new long[2][Square.COUNT];
+    /** 能攻击到该格子的兵所在的格子 */
+    public static final long[][] SOLDIER_ATTACKER_LO = new long[2][Square.COUNT];
+    public static final long[][] SOLDIER_ATTACKER_HI = new long[2][Square.COUNT];
+
+    // [颜色][格子][塞象眼掩码]，掩码第 i 位表示 DIAG_NEIGHBOR[sq][i] 上有子
+    public static final long[][][] ELEPHANT_LO = new long[2][Square.COUNT][16];
+    public static final long[][][] ELEPHANT_HI = new long[2][Square.COUNT][16];
+
+    // [格子][蹩马腿掩码]，掩码第 i 位表示 ORTH_NEIGHBOR[sq][i] 上有子
+    public static final long[][] HORSE_LO = new long[Square.COUNT][16];
+    public static final long[][] HORSE_HI = new long[Square.COUNT][16];
+    /** 反查：能踩到该格子的马所在的格子，掩码第 i 位表示 DIAG_NEIGHBOR[sq][i] 上有子 */
+    public static final long[][] HORSE_ATTACKER_LO = new long[Square.COUNT][16];
+    public static final long[][] HORSE_ATTACKER_HI = new long[Square.COUNT][16];
+
+    // 车/炮在一行（9 位）或一列（10 位）上的攻击，[位置][占用掩码] -> 攻击掩码
+    public static final int[][] RANK_ROOK = new int[Square.COLS][1 << Square.COLS];
+    public static final int[][] RANK_CANNON = new int[Square.COLS][1 << Square.COLS];
+    public static final int[][] FILE_ROOK = new int[Square.ROWS][1 << Square.ROWS];
+    public static final int[][] FILE_CANNON = new int[Square.ROWS][1 << Square.ROWS];
+    /** 一列的 10 位掩码展开成位棋盘，[列][掩码] */
+    public static final long[][] FILE_LO = new long[Square.COLS][1 << Square.ROWS];
+    public static final long[][] FILE_HI = new long[Square.COLS][1 << Square.ROWS];
+
+    static {
+        initNeighbors();
+        initLeapers();
+        initSliders();
+    }
+
+    private Attacks() {
+    }
+
+    private static void initNeighbors() {
+        for (int sq = 0; sq < Square.COUNT; sq++) {
+            int row = Square.row(sq);
+            int col = Square.col(sq);
+            for (int i = 0; i < 4; i++) {
+                int r = row + ORTH_DR[i];
+                int c = col + ORTH_DC[i];
+                ORTH_NEIGHBOR[sq][i] = Square.isValid(r, c) ? Square.of(r, c) : Square.NONE;
+                r = row + DIAG_DR[i];
+                c = col + DIAG_DC[i];
+                DIAG_NEIGHBOR[sq][i] = Square.isValid(r, c) ? Square.of(r, c) : Square.NONE;
+            }
+        }
+    }
+
+    private static void initLeapers() {
+        for (int sq = 0; sq < Square.COUNT; sq++) {
+            int row = Square.row(sq);
+            int col = Square.col(sq);
+
+            for (int color = 0; color < 2; color++) {
+                Bitboard bb = new Bitboard();
+
+                // 帅：九宫内直走一步
+                for (int i = 0; i < 4; i++) {
+                    int r = row + ORTH_DR[i];
+                    int c = col + ORTH_DC[i];
+                    if (Square.isInPalace(row, col, color) && Square.isValid(r, c) && Square.isInPalace(r, c, color)) {
+                        bb.add(Square.of(r, c));
+                    }
+                }
+                GENERAL_LO[color][sq] = bb.lo;
+                GENERAL_HI[color][sq] = bb.hi;
+
+                // 仕：九宫内斜走一步
+                bb.clear();
+                for (int i = 0; i < 4; i++) {
+                    int r = row + DIAG_DR[i];
+                    int c = col + DIAG_DC[i];
+                    if (Square.isInPalace(row, col, color) && Square.isValid(r, c) && Square.isInPalace(r, c, color)) {
+                        bb.add(Square.of(r, c));
+                    }
+                }
+                ADVISOR_LO[color][sq] = bb.lo;
+                ADVISOR_HI[color][sq] = bb.hi;
+
+                // 兵：过河前只能前进，过河后可以左右
+                bb.clear();
+                int forward = color == Piece.RED ? -1 : 1;
+                if (Square.isValid(row + forward, col)) {
+                    bb.add(Square.of(row + forward, col));
+                }
+                if (!Square.isOwnSide(row, color)) {
+                    if (col > 0) bb.add(Square.of(row, col - 1));
+                    if (col < Square.COLS - 1) bb.add(Square.of(row, col + 1));
+                }
+                SOLDIER_LO[color][sq] = bb.lo;
+                SOLDIER_HI[color][sq] = bb.hi;
+                for (int target = bb.poll(); target != Square.NONE; target = bb.poll()) {
+                    SOLDIER_ATTACKER_LO[color][target] |= Bitboard.loBit(sq);
+                    SOLDIER_ATTACKER_HI[color][target] |= Bitboard.hiBit(sq);
+                }
+
+                // 相：田字，不能过河，塞象眼
+                for (int mask = 0; mask < 16; mask++) {
+                    bb.clear();
+                    for (int i = 0; i < 4; i++) {
+                        int r = row + 2 * DIAG_DR[i];
+                        int c = col + 2 * DIAG_DC[i];
+                        if ((mask & (1 << i)) == 0 && Square.isOwnSide(row, color)
+                                && Square.isValid(r, c) && Square.isOwnSide(r, color)) {
+                            bb.add(Square.of(r, c));
+                        }
+                    }
+                    ELEPHANT_LO[color][sq][mask] = bb.lo;
+                    ELEPHANT_HI[color][sq][mask] = bb.hi;
+                }
+            }
+
+            // 马：日字，蹩马腿。腿 i 方向走两步，再向两侧偏一列（或一行）
+            for (int mask = 0; mask < 16; mask++) {
+                Bitboard bb = new Bitboard();
+                for (int i = 0; i < 4; i++) {
+                    if ((mask & (1 << i)) != 0) continue;
+                    int dr = ORTH_DR[i];
+                    int dc = ORTH_DC[i];
+                    for (int side = -1; side <= 1; side += 2) {
+                        int r = row + 2 * dr + (dr == 0 ? side : 0);
+                        int c = col + 2 * dc + (dc == 0 ? side : 0);
+                        if (Square.isValid(r, c)) {
+                            bb.add(Square.of(r, c));
+                        }
+                    }
+                }
+                HORSE_LO[sq][mask] = bb.lo;
+                HORSE_HI[sq][mask] = bb.hi;
+
+                // 反查：斜向邻格 j 是马腿，对应的两匹马在 (2dr, dc) 和 (dr, 2dc)
+                bb.clear();
+                for (int j = 0; j < 4; j++) {
+                    if ((mask & (1 << j)) != 0) continue;
+                    int dr = DIAG_DR[j];
+                    int dc = DIAG_DC[j];
+                    if (Square.isValid(row + 2 * dr, col + dc)) bb.add(Square.of(row + 2 * dr, col + dc));
+                    if (Square.isValid(row + dr, col + 2 * dc)) bb.add(Square.of(row + dr, col + 2 * dc));
+                }
+                HORSE_ATTACKER_LO[sq][mask] = bb.lo;
+                HORSE_ATTACKER_HI[sq][mask] = bb.hi;
+            }
+        }
+    }
+
+    private static void initSliders() {
+        for (int pos = 0; pos < Square.COLS; pos++) {
+            for (int occ = 0; occ < (1 << Square.COLS); occ++) {
+                RANK_ROOK[pos][occ] = slide(pos, occ, Square.COLS, false);
+                RANK_CANNON[pos][occ] = slide(pos, occ, Square.COLS, true);
+            }
+        }
+        for (int pos = 0; pos < Square.ROWS; pos++) {
+            for (int occ = 0; occ < (1 << Square.ROWS); occ++) {
+                FILE_ROOK[pos][occ] = slide(pos, occ, Square.ROWS, false);
+                FILE_CANNON[pos][occ] = slide(pos, occ, Square.ROWS, true);
+            }
+        }
+        for (int col = 0; col < Square.COLS; col++) {
+            for (int mask = 0; mask < (1 << Square.ROWS); mask++) {
+                Bitboard bb = new Bitboard();
+                for (int row = 0; row < Square.ROWS; row++) {
+                    if ((mask & (1 << row)) != 0) bb.add(Square.of(row, col));
+                }
+                FILE_LO[col][mask] = bb.lo;
+                FILE_HI[col][mask] = bb.hi;
+            }
+        }
+    }
+
+    /**
+     * 一条线上的滑动攻击
+     * 车：每个方向走到第一个有子的格子为止（包含该格）
+     * 炮：每个方向越过第一个子（炮架）后，攻击下一个有子的格子
+     */
+    private static int slide(int pos, int occ, int length, boolean cannon) {
+        int attacks = 0;
+        for (int step = -1; step <= 1; step += 2) {
+            boolean screened = false;
+            for (int p = pos + step; p >= 0 && p < length; p += step) {
+                boolean occupied = (occ & (1 << p)) != 0;
+                if (!cannon) {
+                    attacks |= 1 << p;
+                    if (occupied) break;
+                } else if (!screened) {
+                    if (occupied) screened = true;
+                } else if (occupied) {
+                    attacks |= 1 << p;
+                    break;
+                }
+            }
+        }
+        return attacks;
+    }
+}
@@ -0,0 +1,132 @@
+package edu.sustech.xiangqi.model.engine;
+
+/**
+ * 90 位的格子集合（位棋盘）
+ * 第 sq 位表示格子 sq：0~6 行（sq 0~62）放在 lo，7~9 行（sq 63~89）放在 hi，这样每一行都完整地落在同一个 long 里
+ * 实例是可变的，热路径上由调用方预先分配、反复使用，避免产生垃圾
+ */
+public final class Bitboard {
+    /** lo 能放下的格子数（7 行 * 9 列） */
+    public static final int SPLIT = 63;
+    public static final long LO_MASK = (1L << SPLIT) - 1;
+    public static final long HI_MASK = (1L << (Square.COUNT - SPLIT)) - 1;
+
+    public long lo;
+    public long hi;
+
+    public Bitboard() {
+    }
+
+    public Bitboard(long lo, long hi) {
+        this.lo = lo;
+        this.hi = hi;
+    }
+
+    public static long loBit(int sq) {
+        return sq < SPLIT ? 1L << sq : 0L;
+    }
+
+    public static long hiBit(int sq) {
+        return sq < SPLIT ? 0L : 1L << (sq - SPLIT);
+    }
+
+    public static boolean contains(long lo, long hi, int sq) {
+        return sq < SPLIT ? (lo >>> sq & 1L) != 0 : (hi >>> (sq - SPLIT) & 1L) != 0;
+    }
+
+    /**
+     * 一整行（9 位掩码）对应的集合
+     */
+    public static long rankLo(int row, int mask) {
+        return row < 7 ? (long) mask << (row * Square.COLS) : 0L;
+    }
+
+    public static long rankHi(int row, int mask) {
+        return row < 7 ? 0L : (long) mask << ((row - 7) * Square.COLS);
+    }
+
+    public Bitboard set(long lo, long hi) {
+        this.lo = lo;
+        this.hi = hi;
+        return this;
+    }
+
+    public Bitboard set(Bitboard other) {
+        return set(other.lo, other.hi);
+    }
+
+    public Bitboard clear() {
+        return set(0L, 0L);
+    }
+
+    public Bitboard add(int sq) {
+        lo |= loBit(sq);
+        hi |= hiBit(sq);
+        return this;
+    }
+
+    public Bitboard remove(int sq) {
+        lo &= ~loBit(sq);
+        hi &= ~hiBit(sq);
+        return this;
+    }
+
+    public Bitboard and(long lo, long hi) {
+        this.lo &= lo;
+        this.hi &= hi;
+        return this;
+    }
+
+    public Bitboard or(long lo, long hi) {
+        this.lo |= lo;
+        this.hi |= hi;
+        return this;
+    }
+
+    public Bitboard andNot(long lo, long hi) {
+        this.lo &= ~lo;
+        this.hi &= ~hi;
+        return this;
+    }
+
+    public boolean contains(int sq) {
+        return contains(lo, hi, sq);
+    }
+
+    public boolean isEmpty() {
+        return (lo | hi) == 0;
+    }
+
+    public int count() {
+        return Long.bitCount(lo) + Long.bitCount(hi);
+    }
+
+    /**
+     * 取出并删除编号最小的格子，集合为空时返回 Square.NONE
+     */
+    public int poll() {
+        if (lo != 0) {
+            int sq = Long.numberOfTrailingZeros(lo);
+            lo &= lo - 1;
+            return sq;
+        }
+        if (hi != 0) {
+            int sq = Long.numberOfTrailingZeros(hi) + SPLIT;
+            hi &= hi - 1;
+            return sq;
+        }
+        return Square.NONE;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int row = 0; row < Square.ROWS; row++) {
+            for (int col = 0; col < Square.COLS; col++) {
+                sb.append(contains(Square.of(row, col)) ? 'x' : '.');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
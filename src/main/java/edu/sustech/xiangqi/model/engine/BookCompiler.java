@@ -0,0 +1,209 @@
+package edu.sustech.xiangqi.model.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.sustech.xiangqi.model.ChessBoardModel;
+import edu.sustech.xiangqi.model.NotationAnalyzer;
+import edu.sustech.xiangqi.model.Save;
+import edu.sustech.xiangqi.model.pieces.AbstractPiece;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 开局库编译器：重放存档里的棋谱（Save.moveNotations），统计每个局面下每步走法出现的次数和对局结果，
+ * 写成 OpeningBook 读取的排序二进制文件
+ * 对局结果取重放到最后的局面状态（将死、困毙、投降等）；没下完的棋只计次数，不计胜和负
+ * 用法: java edu.sustech.xiangqi.model.engine.BookCompiler [--max-ply n] [--min-weight n] [-o 输出文件] [存档目录...]
+ * 默认读 resources/saves，写 resources/book.bin
+ */
+public final class BookCompiler {
+    public static final String DEFAULT_OUTPUT = "resources/book.bin";
+    public static final int DEFAULT_MAX_PLY = 40;
+
+    private static final int WEIGHT = 0;
+    private static final int WINS = 1;
+    private static final int DRAWS = 2;
+    private static final int LOSSES = 3;
+    // winner() 的非颜色结果
+    private static final int DRAW = -1;
+    private static final int UNFINISHED = -2;
+
+    private final int maxPly;
+    // 局面键 -> 走法 -> {次数, 胜, 和, 负}
+    private final Map<Long, Map<Integer, int[]>> positions = new HashMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private int games;
+
+    public BookCompiler() {
+        this(DEFAULT_MAX_PLY);
+    }
+
+    /**
+     * maxPly：每盘棋只收前这么多步
+     */
+    public BookCompiler(int maxPly) {
+        this.maxPly = maxPly;
+    }
+
+    public int getGames() {
+        return games;
+    }
+
+    public int getPositions() {
+        return positions.size();
+    }
+
+    /**
+     * 收入目录下的全部 .json 存档，损坏的存档跳过；返回收入的对局数
+     */
+    public int addSaves(File dir) throws IOException {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".json"));
+        if (files == null) throw new IOException("找不到存档目录: " + dir.getAbsolutePath());
+        int added = 0;
+        for (File file : files) {
+            Save save;
+            try {
+                save = objectMapper.readValue(file, Save.class);
+            } catch (IOException e) {
+                continue;
+            }
+            if (save != null && save.getMoveNotations() != null && addGame(save.getMoveNotations())) added++;
+        }
+        return added;
+    }
+
+    /**
+     * 从开局重放一盘棋并收入前 maxPly 步；棋谱从第一步就无法解析时返回 false，中途出错只收入出错之前的部分
+     */
+    public boolean addGame(List<String> notations) {
+        ChessBoardModel model = new ChessBoardModel();
+        List<Long> keys = new ArrayList<>();
+        List<Integer> moves = new ArrayList<>();
+        for (String notation : notations) {
+            long key = model.getZobristKey();
+            try {
+                NotationAnalyzer analyzer = new NotationAnalyzer(notation, model);
+                AbstractPiece piece = model.getPieceAt(analyzer.getFromRow(), analyzer.getFromCol());
+                if (piece == null || !model.movePiece(piece, analyzer.getToRow(), analyzer.getToCol())) break;
+            } catch (RuntimeException e) {
+                break;
+            }
+            if (keys.size() < maxPly) {
+                keys.add(key);
+                moves.add(model.getPosition().lastMove(1));
+            }
+            if (model.getGameState() != ChessBoardModel.GameState.PLAYING) break;
+        }
+        if (keys.isEmpty()) return false;
+
+        int winner = winner(model.getGameState());
+        for (int i = 0; i < keys.size(); i++) {
+            int move = moves.get(i);
+            int[] stats = positions.computeIfAbsent(keys.get(i), k -> new HashMap<>())
+                    .computeIfAbsent(move, m -> new int[4]);
+            stats[WEIGHT]++;
+            if (winner == UNFINISHED) continue;
+            if (winner == DRAW) {
+                stats[DRAWS]++;
+            } else if (winner == Piece.color(Move.piece(move))) {
+                stats[WINS]++;
+            } else {
+                stats[LOSSES]++;
+            }
+        }
+        games++;
+        return true;
+    }
+
+    /**
+     * 写出开局库，出现次数少于 minWeight 的走法不收；返回写入的条目数
+     */
+    public int write(Path output, int minWeight) throws IOException {
+        List<long[]> entries = new ArrayList<>();
+        for (Map.Entry<Long, Map<Integer, int[]>> position : positions.entrySet()) {
+            for (Map.Entry<Integer, int[]> move : position.getValue().entrySet()) {
+                int[] s = move.getValue();
+                if (s[WEIGHT] < minWeight) continue;
+                entries.add(new long[]{position.getKey(), move.getKey(), s[WEIGHT], s[WINS], s[DRAWS], s[LOSSES]});
+            }
+        }
+        entries.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(b[2], a[2]));
+
+        Path parent = output.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (OutputStream file = Files.newOutputStream(output);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(OpeningBook.VERSION);
+            out.writeInt(entries.size());
+            out.writeInt(0);
+            for (long[] e : entries) {
+                out.writeLong(e[0]);
+                for (int i = 1; i < e.length; i++) {
+                    out.writeInt((int) e[i]);
+                }
+            }
+        }
+        return entries.size();
+    }
+
+    /**
+     * 胜方颜色，和棋为 DRAW，没下完为 UNFINISHED
+     */
+    private static int winner(ChessBoardModel.GameState state) {
+        switch (state) {
+            case RED_WIN:
+            case SURRENDER_BLACK:
+                return Piece.RED;
+            case BLACK_WIN:
+            case SURRENDER_RED:
+                return Piece.BLACK;
+            case DRAW:
+                return DRAW;
+            default:
+                return UNFINISHED;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int maxPly = DEFAULT_MAX_PLY;
+        int minWeight = 1;
+        String output = DEFAULT_OUTPUT;
+        List<String> dirs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--max-ply":
+                    maxPly = Integer.parseInt(args[++i]);
+                    break;
+                case "--min-weight":
+                    minWeight = Integer.parseInt(args[++i]);
+                    break;
+                case "-o":
+                    output = args[++i];
+                    break;
+                default:
+                    dirs.add(args[i]);
+            }
+        }
+        if (dirs.isEmpty()) dirs.add("resources/saves");
+
+        long start = System.nanoTime();
+        BookCompiler compiler = new BookCompiler(maxPly);
+        for (String dir : dirs) {
+            compiler.addSaves(new File(dir));
+        }
+        int entries = compiler.write(Paths.get(output), minWeight);
+        System.out.printf("%d 盘棋，%d 个局面，写入 %d 条到 %s，用时 %d 毫秒%n", compiler.getGames(),
+                compiler.getPositions(), entries, output, (System.nanoTime() - start) / 1_000_000L);
+    }
+}
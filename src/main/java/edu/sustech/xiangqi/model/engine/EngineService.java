@@ -0,0 +1,147 @@
+package edu.sustech.xiangqi.model.engine;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * 在自己的线程上跑搜索，调用方（界面）只提交任务、收回调，永远不会被搜索卡住
+ * 同一时间只有一个搜索：提交新任务会取消还没结束的旧任务
+ * 回调都通过构造时给的 callbackExecutor 执行（界面传 SwingUtilities::invokeLater，回调就在 EDT 上）；
+ * 进度回调按 progressIntervalMillis 节流，任务取消之后不会再收到任何回调
+ */
+public class EngineService {
+    public static final long DEFAULT_PROGRESS_INTERVAL_MILLIS = 100;
+
+    private final ParallelSearch search;
+    private final Executor callbackExecutor;
+    private final long progressIntervalNanos;
+    private final ExecutorService executor;
+    private Task current;
+    // 正在引擎线程上跑的任务，迭代回调要用
+    private volatile Task running;
+
+    public EngineService(ParallelSearch search, Executor callbackExecutor) {
+        this(search, callbackExecutor, DEFAULT_PROGRESS_INTERVAL_MILLIS);
+    }
+
+    public EngineService(ParallelSearch search, Executor callbackExecutor, long progressIntervalMillis) {
+        this.search = search;
+        this.callbackExecutor = callbackExecutor;
+        this.progressIntervalNanos = progressIntervalMillis * 1_000_000L;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "engine");
+            thread.setDaemon(true);
+            return thread;
+        });
+        search.setIterationListener(this::onIteration);
+    }
+
+    /**
+     * 一次提交的搜索
+     */
+    public static final class Task {
+        private final SearchLimits limits;
+        private final Consumer<SearchResult> onProgress;
+        private final CompletableFuture<SearchResult> future = new CompletableFuture<>();
+        private volatile boolean cancelled;
+        private long lastProgressNanos;
+
+        private Task(SearchLimits limits, Consumer<SearchResult> onProgress) {
+            this.limits = limits;
+            this.onProgress = onProgress;
+        }
+
+        /**
+         * 取消：搜索尽快停下，之后不会再有回调；可以在任何线程调用，重复调用无害
+         */
+        public void cancel() {
+            cancelled = true;
+            limits.abort();
+            future.cancel(false);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public SearchLimits getLimits() {
+            return limits;
+        }
+
+        /**
+         * 搜索结果；在引擎线程上完成，取消后是已取消状态
+         */
+        public CompletableFuture<SearchResult> future() {
+            return future;
+        }
+    }
+
+    /**
+     * 提交一次搜索，root 会被复制；onProgress 每搜完一轮（节流后）回调，onDone 收到最终结果，
+     * onError 收到搜索中抛出的异常；三个回调都可以为 null
+     */
+    public synchronized Task submit(Position root, SearchLimits limits, Consumer<SearchResult> onProgress,
+                                    Consumer<SearchResult> onDone, Consumer<Throwable> onError) {
+        if (current != null) current.cancel();
+        Position copy = new Position(root);
+        Task task = new Task(limits, onProgress);
+        current = task;
+        executor.execute(() -> run(task, copy, onDone, onError));
+        return task;
+    }
+
+    /**
+     * 取消当前任务（如果有）
+     */
+    public synchronized void cancel() {
+        if (current != null) {
+            current.cancel();
+            current = null;
+        }
+    }
+
+    /**
+     * 取消当前任务并结束引擎线程和搜索线程，之后不能再提交
+     */
+    public synchronized void shutdown() {
+        cancel();
+        executor.shutdownNow();
+        search.shutdown();
+    }
+
+    private void run(Task task, Position root, Consumer<SearchResult> onDone, Consumer<Throwable> onError) {
+        // 排队期间就被取消了
+        if (task.cancelled) return;
+        running = task;
+        try {
+            SearchResult result = search.search(root, task.limits);
+            task.future.complete(result);
+            deliver(task, onDone, result);
+        } catch (RuntimeException e) {
+            task.future.completeExceptionally(e);
+            deliver(task, onError, e);
+        } finally {
+            running = null;
+        }
+    }
+
+    private void onIteration(SearchResult result) {
+        Task task = running;
+        if (task == null || task.onProgress == null || task.cancelled) return;
+        long now = System.nanoTime();
+        if (task.lastProgressNanos != 0 && now - task.lastProgressNanos < progressIntervalNanos) return;
+        task.lastProgressNanos = now;
+        deliver(task, task.onProgress, result);
+    }
+
+    private <T> void deliver(Task task, Consumer<T> callback, T value) {
+        if (callback == null) return;
+        callbackExecutor.execute(() -> {
+            // 在回调线程上再查一次：取消和回调都在同一个线程上时，取消之后一定收不到
+            if (!task.cancelled) callback.accept(value);
+        });
+    }
+}
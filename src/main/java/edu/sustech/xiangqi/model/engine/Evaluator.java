@@ -0,0 +1,104 @@
+package edu.sustech.xiangqi.model.engine;
+
+/**
+ * 局面评估：子力 + 位置分（Position 增量维护）、机动性、将帅安全，中局和残局两套分数按对局阶段插值
+ * 残局里按子力键（Material）缩放：优势方没有进攻子力时分数归零，已知难赢的子力组合分数打折
+ * 分数以走子方为正，单位与 Piece.VALUE 相同
+ * 实例里有临时位棋盘，一个线程用一个；评估过程不分配对象，也不依赖搜索，可以单独拿来测
+ */
+public class Evaluator {
+    /** 轮到走的一方的先手分 */
+    private static final int TEMPO = 10;
+
+    // 机动性：每多一个可走的格子加的分，以及不加分的基准格数（按兵种下标）
+    private static final int[] MOBILITY_MG = {0, 0, 0, 0, 4, 2, 1, 0};
+    private static final int[] MOBILITY_EG = {0, 0, 0, 0, 4, 3, 1, 0};
+    private static final int[] MOBILITY_BASE = {0, 0, 0, 0, 4, 6, 6, 0};
+
+    // 攻进己方半场的对方棋子的威胁权重
+    private static final int[] ATTACK_WEIGHT = {0, 0, 0, 0, 2, 3, 2, 1};
+    // 按威胁总权重查的基础扣分，缺一个士或相再加一半
+    private static final int[] SAFETY_PENALTY = {0, 0, 2, 5, 9, 14, 20, 27, 35, 44, 54, 65, 77, 90, 104, 119};
+    // 空头炮：对方的炮和己方将帅同列且中间没有子
+    private static final int EMPTY_HEAD_CANNON = 40;
+
+    private static final long[] HALF_LO = new long[2];
+    private static final long[] HALF_HI = new long[2];
+
+    static {
+        for (int sq = 0; sq < Square.COUNT; sq++) {
+            int color = Square.isOwnSide(Square.row(sq), Piece.RED) ? Piece.RED : Piece.BLACK;
+            HALF_LO[color] |= Bitboard.loBit(sq);
+            HALF_HI[color] |= Bitboard.hiBit(sq);
+        }
+    }
+
+    private final Bitboard pieces = new Bitboard();
+    private final Bitboard targets = new Bitboard();
+    private int mg;
+    private int eg;
+
+    /**
+     * pos 走子方视角的评估分
+     */
+    public int evaluate(Position pos) {
+        mg = pos.psqMg(Piece.RED) - pos.psqMg(Piece.BLACK);
+        eg = pos.psqEg(Piece.RED) - pos.psqEg(Piece.BLACK);
+
+        mobility(pos, Piece.RED, 1);
+        mobility(pos, Piece.BLACK, -1);
+        mg -= kingDanger(pos, Piece.RED);
+        mg += kingDanger(pos, Piece.BLACK);
+
+        int phase = Math.min(pos.phase(), PieceSquare.PHASE_MAX);
+        int score = (mg * phase + eg * (PieceSquare.PHASE_MAX - phase)) / PieceSquare.PHASE_MAX;
+        score = score * Material.scale(pos.materialKey(), score > 0 ? Piece.RED : Piece.BLACK) / Material.NORMAL_SCALE;
+        return (pos.sideToMove() == Piece.RED ? score : -score) + TEMPO;
+    }
+
+    /**
+     * 车马炮的可走格子数（不含己方棋子所在格），sign 为 1 加给红方，-1 加给黑方
+     */
+    private void mobility(Position pos, int color, int sign) {
+        for (int type = Piece.HORSE; type <= Piece.CANNON; type++) {
+            int piece = Piece.make(color, type);
+            pieces.set(pos.piecesLo(piece), pos.piecesHi(piece));
+            for (int sq = pieces.poll(); sq != Square.NONE; sq = pieces.poll()) {
+                pos.moveTargets(sq, targets);
+                int count = targets.count() - MOBILITY_BASE[type];
+                mg += sign * count * MOBILITY_MG[type];
+                eg += sign * count * MOBILITY_EG[type];
+            }
+        }
+    }
+
+    /**
+     * color 方将帅受到的威胁（中局分）：过河的车马炮兵越多、士相越少越危险
+     */
+    private int kingDanger(Position pos, int color) {
+        int king = pos.kingSquare(color);
+        if (king == Square.NONE) return 0;
+        int enemy = color ^ 1;
+        long halfLo = HALF_LO[color];
+        long halfHi = HALF_HI[color];
+
+        int danger = 0;
+        for (int type = Piece.HORSE; type <= Piece.SOLDIER; type++) {
+            int piece = Piece.make(enemy, type);
+            int count = Long.bitCount(pos.piecesLo(piece) & halfLo) + Long.bitCount(pos.piecesHi(piece) & halfHi);
+            danger += count * ATTACK_WEIGHT[type];
+        }
+        int defenders = pos.pieceCount(Piece.make(color, Piece.ADVISOR))
+                + pos.pieceCount(Piece.make(color, Piece.ELEPHANT));
+        int penalty = SAFETY_PENALTY[Math.min(danger, SAFETY_PENALTY.length - 1)] * (6 - defenders) / 2;
+
+        // 沿将帅所在列看出去的第一个子是对方的炮
+        pos.rookAttacks(king, targets);
+        int cannon = Piece.make(enemy, Piece.CANNON);
+        targets.and(pos.piecesLo(cannon), pos.piecesHi(cannon));
+        for (int sq = targets.poll(); sq != Square.NONE; sq = targets.poll()) {
+            if (Square.col(sq) == Square.col(king)) penalty += EMPTY_HEAD_CANNON;
+        }
+        return penalty;
+    }
+}
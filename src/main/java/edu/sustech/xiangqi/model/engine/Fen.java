@@ -0,0 +1,85 @@
+package edu.sustech.xiangqi.model.engine;
+
+/**
+ * 象棋 FEN 串的读写
+ * 例：rnbakabnr/9/1c5c1/p1p1p1p1p/9/9/P1P1P1P1P/1C5C1/9/RNBAKABNR w
+ * 从黑方底线（row 0）写到红方底线（row 9），大写红方、小写黑方；w 或 r 表示红方走，b 表示黑方走
+ */
+public final class Fen {
+    public static final String START = "rnbakabnr/9/1c5c1/p1p1p1p1p/9/9/P1P1P1P1P/1C5C1/9/RNBAKABNR w";
+
+    private static final String LETTERS = " kabnrcp";
+
+    private Fen() {
+    }
+
+    /**
+     * 把 FEN 设置到 position 上（清空原有内容和走子栈）
+     *
+     * @throws IllegalArgumentException FEN 格式不对
+     */
+    public static void load(Position position, String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        String[] ranks = fields[0].split("/");
+        if (ranks.length != Square.ROWS) {
+            throw new IllegalArgumentException("FEN 行数不对: " + fen);
+        }
+
+        position.clear();
+        for (int row = 0; row < Square.ROWS; row++) {
+            int col = 0;
+            for (char c : ranks[row].toCharArray()) {
+                if (Character.isDigit(c)) {
+                    col += c - '0';
+                    continue;
+                }
+                char letter = Character.toLowerCase(c);
+                // 有的软件用 e 表示相、h 表示马
+                if (letter == 'e') letter = 'b';
+                if (letter == 'h') letter = 'n';
+                int type = LETTERS.indexOf(letter);
+                if (type <= 0 || col >= Square.COLS) {
+                    throw new IllegalArgumentException("FEN 第 " + (row + 1) + " 行无法识别: " + ranks[row]);
+                }
+                int color = Character.isUpperCase(c) ? Piece.RED : Piece.BLACK;
+                position.putPiece(Square.of(row, col), Piece.make(color, type));
+                col++;
+            }
+            if (col != Square.COLS) {
+                throw new IllegalArgumentException("FEN 第 " + (row + 1) + " 行列数不对: " + ranks[row]);
+            }
+        }
+        boolean blackToMove = fields.length > 1 && fields[1].equalsIgnoreCase("b");
+        position.setSideToMove(blackToMove ? Piece.BLACK : Piece.RED);
+    }
+
+    public static Position parse(String fen) {
+        Position position = new Position();
+        load(position, fen);
+        return position;
+    }
+
+    public static String toFen(Position position) {
+        StringBuilder sb = new StringBuilder();
+        for (int row = 0; row < Square.ROWS; row++) {
+            int empty = 0;
+            for (int col = 0; col < Square.COLS; col++) {
+                int piece = position.pieceAt(Square.of(row, col));
+                if (piece == Piece.EMPTY) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                char c = LETTERS.charAt(Piece.type(piece));
+                sb.append(Piece.isRed(piece) ? Character.toUpperCase(c) : c);
+            }
+            if (empty > 0) sb.append(empty);
+            if (row < Square.ROWS - 1) sb.append('/');
+        }
+        sb.append(position.sideToMove() == Piece.RED ? " w" : " b");
+        return sb.toString();
+    }
+}
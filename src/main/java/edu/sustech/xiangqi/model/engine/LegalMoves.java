@@ -0,0 +1,117 @@
+package edu.sustech.xiangqi.model.engine;
+
+/**
+ * 一个局面的规则信息：走子方的全部合法走法（按起点格分组）、是否被将军、将军的棋子
+ * 按 Zobrist 键缓存，局面不变时界面重绘、选子高亮、胜负判断都直接读这里，不再重新生成
+ * 数组预先分配，update 不分配对象
+ */
+public final class LegalMoves {
+    private final MoveGenerator generator = new MoveGenerator();
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    // fromStart[sq] ~ fromStart[sq + 1] 是起点为 sq 的走法
+    private final int[] fromStart = new int[Square.COUNT + 1];
+    private final Bitboard checkers = new Bitboard();
+    private int count;
+    private int checkerCount;
+    private int sideToMove;
+    private long key;
+    private boolean valid;
+
+    /**
+     * 局面键没变时直接返回，否则重新计算
+     *
+     * @return 是否重新计算了
+     */
+    public boolean update(Position position) {
+        if (valid && key == position.key()) return false;
+
+        sideToMove = position.sideToMove();
+        // 生成器按起点格从小到大逐个棋子输出，走法天然按起点分组
+        count = generator.generateLegal(position, sideToMove, moves, 0);
+        int i = 0;
+        for (int sq = 0; sq <= Square.COUNT; sq++) {
+            fromStart[sq] = i;
+            while (i < count && Move.from(moves[i]) == sq) i++;
+        }
+        checkerCount = position.checkers(sideToMove, checkers);
+        key = position.key();
+        valid = true;
+        return true;
+    }
+
+    /**
+     * 作废缓存（清空棋盘、重新摆棋时调用）
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    public long key() {
+        return key;
+    }
+
+    public int sideToMove() {
+        return sideToMove;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int move(int index) {
+        return moves[index];
+    }
+
+    /**
+     * 起点为 from 的走法在 move(i) 中的下标范围 [fromStart(from), fromEnd(from))
+     */
+    public int fromStart(int from) {
+        return fromStart[from];
+    }
+
+    public int fromEnd(int from) {
+        return fromStart[from + 1];
+    }
+
+    /**
+     * 从 from 到 to 的合法走法，不合法时返回 Move.NONE
+     */
+    public int find(int from, int to) {
+        for (int i = fromStart[from]; i < fromStart[from + 1]; i++) {
+            if (Move.to(moves[i]) == to) return moves[i];
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * 把起点为 from 的走法复制到 out，返回个数
+     */
+    public int copyFrom(int from, int[] out) {
+        int n = fromStart[from + 1] - fromStart[from];
+        System.arraycopy(moves, fromStart[from], out, 0, n);
+        return n;
+    }
+
+    public boolean inCheck() {
+        return checkerCount > 0;
+    }
+
+    public int checkerCount() {
+        return checkerCount;
+    }
+
+    /**
+     * 将军的棋子所在格子写进 out
+     */
+    public void checkers(Bitboard out) {
+        out.set(checkers.lo, checkers.hi);
+    }
+
+    public boolean isCheckmate() {
+        return count == 0 && checkerCount > 0;
+    }
+
+    public boolean isStalemate() {
+        return count == 0 && checkerCount == 0;
+    }
+}
@@ -0,0 +1,156 @@
+package edu.sustech.xiangqi.model.engine;
+
+/**
+ * 子力键：每种棋子（按编码）的个数占 4 位，红方编码 1~7 在低 32 位，黑方 9~15 在高 32 位
+ * Position 在增删棋子时加减一个 unit，吃子和悔棋都不用重新数；红黑对调只是把高低 32 位互换
+ * 用它做的事：双方都没有进攻子力的死局判和、已知的和棋子力组合（残局估值缩放）、残局库按子力选库
+ * 每种棋子不能超过 15 个（正常对局最多 5 个）
+ */
+public final class Material {
+    /** 估值不缩放时的系数，scale 返回 0~NORMAL_SCALE */
+    public static final int NORMAL_SCALE = 16;
+
+    // 车马炮兵卒所在的 4 位
+    private static final long RED_ATTACKERS = mask(Piece.RED, Piece.HORSE, Piece.CHARIOT, Piece.CANNON, Piece.SOLDIER);
+    private static final long BLACK_ATTACKERS = mask(Piece.BLACK, Piece.HORSE, Piece.CHARIOT, Piece.CANNON, Piece.SOLDIER);
+
+    // 已知和棋的子力组合：开放寻址的散列表，键为子力键，值为缩放系数；0 号键不会出现（至少有将帅）
+    private static final int TABLE_SIZE = 2048;
+    private static final int TABLE_SHIFT = 64 - Integer.numberOfTrailingZeros(TABLE_SIZE);
+    private static final long[] DRAWN_KEYS = new long[TABLE_SIZE];
+    private static final byte[] DRAWN_SCALES = new byte[TABLE_SIZE];
+
+    static {
+        // 强方进攻子力（字母同 TablebaseSignature）、强方最多的士相数、弱方的进攻子力、弱方至少的士、至少的相、缩放系数
+        drawn("R", 2, "", 2, 2, 2);  // 单车难胜士象全
+        drawn("N", 2, "", 2, 2, 2);  // 单马难胜士象全
+        drawn("N", 2, "", 0, 2, 4);  // 单马对双象多半成和
+        drawn("C", 2, "", 2, 2, 2);  // 单炮难胜士象全
+        drawn("C", 0, "", 0, 0, 2);  // 没有仕相作炮架的单炮很难赢
+        drawn("P", 2, "", 2, 0, 2);  // 单兵难胜双士
+        drawn("R", 2, "R", 0, 0, 4); // 对等的单个大子
+        drawn("N", 2, "N", 0, 0, 4);
+        drawn("C", 2, "C", 0, 0, 4);
+    }
+
+    private Material() {
+    }
+
+    /**
+     * 一个 piece 对应的增量
+     */
+    public static long unit(int piece) {
+        return 1L << (4 * piece);
+    }
+
+    public static int count(long key, int piece) {
+        return (int) (key >>> (4 * piece)) & 15;
+    }
+
+    /**
+     * 红黑对调后的子力键
+     */
+    public static long flip(long key) {
+        return Long.rotateLeft(key, 32);
+    }
+
+    /**
+     * color 方有没有车马炮兵（没有的一方不可能将死对方）
+     */
+    public static boolean hasAttackers(long key, int color) {
+        return (key & (color == Piece.RED ? RED_ATTACKERS : BLACK_ATTACKERS)) != 0;
+    }
+
+    /**
+     * 双方都没有进攻子力，只剩将帅士象，必然是和棋
+     */
+    public static boolean isInsufficient(long key) {
+        return (key & (RED_ATTACKERS | BLACK_ATTACKERS)) == 0;
+    }
+
+    /**
+     * color 方的车马炮数量
+     */
+    public static int majorPieces(long key, int color) {
+        return count(key, Piece.make(color, Piece.CHARIOT))
+                + count(key, Piece.make(color, Piece.HORSE))
+                + count(key, Piece.make(color, Piece.CANNON));
+    }
+
+    /**
+     * 优势方是 strong 时估值的缩放系数（满分 NORMAL_SCALE）：没有进攻子力的一方赢不了，系数为 0；
+     * 子力组合在已知和棋表里时用表里的系数
+     */
+    public static int scale(long key, int strong) {
+        if (!hasAttackers(key, strong)) return 0;
+        int i = slot(key);
+        while (DRAWN_KEYS[i] != 0) {
+            if (DRAWN_KEYS[i] == key) return DRAWN_SCALES[i];
+            i = (i + 1) & (TABLE_SIZE - 1);
+        }
+        return NORMAL_SCALE;
+    }
+
+    /**
+     * 按棋子编码给出个数时的子力键，双方各算一个将帅（counts 里的将帅不看）
+     */
+    public static long key(int[] counts) {
+        long key = unit(Piece.make(Piece.RED, Piece.GENERAL)) | unit(Piece.make(Piece.BLACK, Piece.GENERAL));
+        for (int piece = 0; piece < Piece.CODE_COUNT; piece++) {
+            if (Piece.type(piece) > Piece.GENERAL) key += (long) counts[piece] * unit(piece);
+        }
+        return key;
+    }
+
+    private static int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> TABLE_SHIFT);
+    }
+
+    private static long mask(int color, int... types) {
+        long mask = 0;
+        for (int type : types) {
+            mask |= 15L << (4 * Piece.make(color, type));
+        }
+        return mask;
+    }
+
+    /**
+     * 把一条规则展开成具体的子力键（两种颜色、强方 0~maxDefenders 个士相、弱方士相从下限到 2 个），放进表里
+     */
+    private static void drawn(String strong, int maxDefenders, String weak, int minAdvisors, int minElephants, int scale) {
+        for (int color = Piece.RED; color <= Piece.BLACK; color++) {
+            int[] counts = new int[Piece.CODE_COUNT];
+            add(counts, color, strong);
+            add(counts, color ^ 1, weak);
+            for (int sa = 0; sa <= Math.min(maxDefenders, 2); sa++) {
+                for (int se = 0; se <= Math.min(maxDefenders, 2); se++) {
+                    for (int wa = minAdvisors; wa <= 2; wa++) {
+                        for (int we = minElephants; we <= 2; we++) {
+                            counts[Piece.make(color, Piece.ADVISOR)] = sa;
+                            counts[Piece.make(color, Piece.ELEPHANT)] = se;
+                            counts[Piece.make(color ^ 1, Piece.ADVISOR)] = wa;
+                            counts[Piece.make(color ^ 1, Piece.ELEPHANT)] = we;
+                            put(key(counts), scale);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void add(int[] counts, int color, String pieces) {
+        for (char c : pieces.toCharArray()) {
+            counts[Piece.make(color, TablebaseSignature.LETTERS.indexOf(c))]++;
+        }
+    }
+
+    // 同一个键被几条规则覆盖时取最小的系数
+    private static void put(long key, int scale) {
+        int i = slot(key);
+        while (DRAWN_KEYS[i] != 0 && DRAWN_KEYS[i] != key) {
+            i = (i + 1) & (TABLE_SIZE - 1);
+        }
+        DRAWN_SCALES[i] = (byte) (DRAWN_KEYS[i] == key ? Math.min(DRAWN_SCALES[i], scale) : scale);
+        DRAWN_KEYS[i] = key;
+    }
+}
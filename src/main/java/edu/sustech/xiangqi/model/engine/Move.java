@@ -0,0 +1,96 @@
+package edu.sustech.xiangqi.model.engine;
+
+/**
+ * 走法编码：一个 int 装下起点、终点、走子、被吃子和标志位
+ * <pre>
+ *  0~6   起点格子
+ *  7~13  终点格子
+ *  14~17 走动的棋子
+ *  18~21 被吃的棋子（没吃子为 0）
+ *  22~   标志位
+ * </pre>
+ */
+public final class Move {
+    public static final int NONE = 0;
+
+    /** 吃子 */
+    public static final int FLAG_CAPTURE = 1;
+
+    private Move() {
+    }
+
+    public static int encode(int from, int to, int piece, int captured) {
+        int move = from | (to << 7) | (piece << 14) | (captured << 18);
+        return captured != Piece.EMPTY ? move | (FLAG_CAPTURE << 22) : move;
+    }
+
+    public static int from(int move) {
+        return move & 0x7F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 7) & 0x7F;
+    }
+
+    public static int piece(int move) {
+        return (move >>> 14) & 0xF;
+    }
+
+    public static int captured(int move) {
+        return (move >>> 18) & 0xF;
+    }
+
+    public static int flags(int move) {
+        return move >>> 22;
+    }
+
+    public static boolean isCapture(int move) {
+        return (flags(move) & FLAG_CAPTURE) != 0;
+    }
+
+    public static String toString(int move) {
+        if (move == NONE) return "none";
+        return Piece.name(piece(move))
+                + "(" + Square.row(from(move)) + "," + Square.col(from(move)) + ")->("
+                + Square.row(to(move)) + "," + Square.col(to(move)) + ")";
+    }
+
+    /**
+     * ICCS 坐标（如 h2e2：列 a~i 从红方左边数，行 0~9 从红方底线数），UCCI 协议和对局记录用
+     */
+    public static String toIccs(int move) {
+        StringBuilder sb = new StringBuilder(4);
+        appendIccs(sb, move);
+        return sb.toString();
+    }
+
+    public static void appendIccs(StringBuilder sb, int move) {
+        appendIccsSquare(sb, from(move));
+        appendIccsSquare(sb, to(move));
+    }
+
+    /**
+     * ICCS 坐标 -> position 走子方的合法走法，不合法时返回 NONE；buffer 至少 MoveGenerator.MAX_MOVES 长
+     */
+    public static int parseIccs(String iccs, Position position, MoveGenerator generator, int[] buffer) {
+        if (iccs.length() != 4) return NONE;
+        int from = parseIccsSquare(iccs.charAt(0), iccs.charAt(1));
+        int to = parseIccsSquare(iccs.charAt(2), iccs.charAt(3));
+        if (from == Square.NONE || to == Square.NONE) return NONE;
+        int end = generator.generateLegal(position, position.sideToMove(), buffer, 0);
+        for (int i = 0; i < end; i++) {
+            if (from(buffer[i]) == from && to(buffer[i]) == to) return buffer[i];
+        }
+        return NONE;
+    }
+
+    private static void appendIccsSquare(StringBuilder sb, int sq) {
+        sb.append((char) ('a' + Square.col(sq))).append((char) ('0' + Square.ROWS - 1 - Square.row(sq)));
+    }
+
+    private static int parseIccsSquare(char file, char rank) {
+        int col = Character.toLowerCase(file) - 'a';
+        int row = Square.ROWS - 1 - (rank - '0');
+        return Square.isValid(row, col) ? Square.of(row, col) : Square.NONE;
+    }
+}
@@ -0,0 +1,156 @@
+package edu.sustech.xiangqi.model.engine;
+
+/**
+ * 走法生成器
+ * 走法写进调用方提供的 int[]，生成过程中不分配对象；内部的临时位棋盘属于这个实例，所以一个线程用一个生成器
+ */
+public class MoveGenerator {
+    /** 一个局面的走法数上限（实际对局中远小于这个数） */
+    public static final int MAX_MOVES = 256;
+
+    private final Bitboard pieces = new Bitboard();
+    private final Bitboard targets = new Bitboard();
+
+    /**
+     * 生成 color 方全部伪合法走法（符合走法规则，但可能送将或将帅对面）
+     *
+     * @return 写入后的末尾下标
+     */
+    public int generatePseudoLegal(Position pos, int color, int[] moves, int start) {
+        int count = start;
+        pieces.set(pos.colorLo(color), pos.colorHi(color));
+        for (int from = pieces.poll(); from != Square.NONE; from = pieces.poll()) {
+            count = addMovesFrom(pos, from, moves, count);
+        }
+        return count;
+    }
+
+    /**
+     * 生成 color 方全部伪合法的吃子走法（静态搜索用）
+     *
+     * @return 写入后的末尾下标
+     */
+    public int generateCaptures(Position pos, int color, int[] moves, int start) {
+        int count = start;
+        long enemyLo = pos.colorLo(color ^ 1);
+        long enemyHi = pos.colorHi(color ^ 1);
+        pieces.set(pos.colorLo(color), pos.colorHi(color));
+        for (int from = pieces.poll(); from != Square.NONE; from = pieces.poll()) {
+            int piece = pos.pieceAt(from);
+            pos.attacks(from, targets);
+            targets.and(enemyLo, enemyHi);
+            for (int to = targets.poll(); to != Square.NONE; to = targets.poll()) {
+                moves[count++] = Move.encode(from, to, piece, pos.pieceAt(to));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 生成 color 方全部伪合法的不吃子走法（和 generateCaptures 合起来就是 generatePseudoLegal）
+     *
+     * @return 写入后的末尾下标
+     */
+    public int generateQuiets(Position pos, int color, int[] moves, int start) {
+        int count = start;
+        long occupiedLo = pos.occupiedLo();
+        long occupiedHi = pos.occupiedHi();
+        pieces.set(pos.colorLo(color), pos.colorHi(color));
+        for (int from = pieces.poll(); from != Square.NONE; from = pieces.poll()) {
+            int piece = pos.pieceAt(from);
+            pos.moveTargets(from, targets);
+            targets.andNot(occupiedLo, occupiedHi);
+            for (int to = targets.poll(); to != Square.NONE; to = targets.poll()) {
+                moves[count++] = Move.encode(from, to, piece, Piece.EMPTY);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 一个不是由当前局面生成的走法（置换表、杀手走法）在当前局面下是否伪合法
+     */
+    public boolean isPseudoLegal(Position pos, int move) {
+        if (move == Move.NONE) return false;
+        int from = Move.from(move);
+        int to = Move.to(move);
+        if (from >= Square.COUNT || to >= Square.COUNT) return false;
+        int piece = pos.pieceAt(from);
+        if (piece == Piece.EMPTY || Piece.color(piece) != pos.sideToMove()) return false;
+        if (move != Move.encode(from, to, piece, pos.pieceAt(to))) return false;
+        pos.moveTargets(from, targets);
+        return targets.contains(to);
+    }
+
+    /**
+     * 生成 color 方全部合法走法
+     *
+     * @return 写入后的末尾下标
+     */
+    public int generateLegal(Position pos, int color, int[] moves, int start) {
+        int end = generatePseudoLegal(pos, color, moves, start);
+        return filterLegal(pos, moves, start, end);
+    }
+
+    /**
+     * 生成 from 格上棋子的全部合法走法（界面选中棋子后高亮用）
+     */
+    public int generateLegalFrom(Position pos, int from, int[] moves, int start) {
+        if (pos.pieceAt(from) == Piece.EMPTY) return start;
+        int end = addMovesFrom(pos, from, moves, start);
+        return filterLegal(pos, moves, start, end);
+    }
+
+    /**
+     * color 方是否至少有一步合法走法，找到一步就返回（判断将死/困毙用）
+     */
+    public boolean hasLegalMove(Position pos, int color, int[] buffer) {
+        pieces.set(pos.colorLo(color), pos.colorHi(color));
+        for (int from = pieces.poll(); from != Square.NONE; from = pieces.poll()) {
+            int end = addMovesFrom(pos, from, buffer, 0);
+            for (int i = 0; i < end; i++) {
+                if (isLegal(pos, buffer[i])) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 伪合法走法是否合法：走完后本方不被将军、不和对方将帅对面
+     */
+    public boolean isLegal(Position pos, int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int captured = Move.captured(move);
+
+        int piece = pos.removePiece(from);
+        if (captured != Piece.EMPTY) pos.removePiece(to);
+        pos.putPiece(to, piece);
+
+        boolean legal = !pos.inCheck(Piece.color(piece));
+
+        pos.removePiece(to);
+        pos.putPiece(from, piece);
+        if (captured != Piece.EMPTY) pos.putPiece(to, captured);
+        return legal;
+    }
+
+    private int filterLegal(Position pos, int[] moves, int start, int end) {
+        int count = start;
+        for (int i = start; i < end; i++) {
+            if (isLegal(pos, moves[i])) {
+                moves[count++] = moves[i];
+            }
+        }
+        return count;
+    }
+
+    private int addMovesFrom(Position pos, int from, int[] moves, int count) {
+        int piece = pos.pieceAt(from);
+        pos.moveTargets(from, targets);
+        for (int to = targets.poll(); to != Square.NONE; to = targets.poll()) {
+            moves[count++] = Move.encode(from, to, piece, pos.pieceAt(to));
+        }
+        return count;
+    }
+}
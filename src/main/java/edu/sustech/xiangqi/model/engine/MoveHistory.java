@@ -0,0 +1,93 @@
+package edu.sustech.xiangqi.model.engine;
+
+import java.util.Arrays;
+
+/**
+ * 搜索中积累的走法排序信息，每个 Search 一份（并行搜索时各线程互不干扰）
+ * <ul>
+ *   <li>杀手走法：每层两个，在同一层的兄弟节点上引起过截断的不吃子走法</li>
+ *   <li>反击走法：对方上一步（按棋子和终点）最后一次被哪步不吃子走法驳倒</li>
+ *   <li>蝴蝶历史：[走子方][起点 * 90 + 终点]</li>
+ *   <li>延续历史：[上一步的棋子和终点][这一步的棋子和终点]，记录"对方这样走之后我这样走好不好"</li>
+ * </ul>
+ * 历史分用"重力"公式更新，始终落在 ±HISTORY_MAX 之内，不需要定期缩放
+ */
+final class MoveHistory {
+    static final int HISTORY_MAX = 16384;
+
+    private static final int PIECE_SQUARES = Piece.CODE_COUNT * Square.COUNT;
+
+    private final int[][] killers = new int[Search.MAX_PLY + 1][2];
+    private final int[][] counterMoves = new int[Piece.CODE_COUNT][Square.COUNT];
+    private final int[][] butterfly = new int[2][Square.COUNT * Square.COUNT];
+    private final short[] continuation = new short[PIECE_SQUARES * PIECE_SQUARES];
+
+    /**
+     * 新搜索开始：杀手走法清空，历史分减半（保留上一步搜索里学到的大致顺序）
+     */
+    void newSearch() {
+        for (int[] k : killers) Arrays.fill(k, Move.NONE);
+        for (int[] h : butterfly) {
+            for (int i = 0; i < h.length; i++) h[i] /= 2;
+        }
+        for (int i = 0; i < continuation.length; i++) continuation[i] /= 2;
+    }
+
+    int killer(int ply, int slot) {
+        return killers[ply][slot];
+    }
+
+    /**
+     * previous 是对方上一步，没有时为 Move.NONE
+     */
+    int counterMove(int previous) {
+        return previous == Move.NONE ? Move.NONE : counterMoves[Move.piece(previous)][Move.to(previous)];
+    }
+
+    /**
+     * 不吃子走法的历史分
+     */
+    int quietScore(int color, int move, int previous) {
+        int score = butterfly[color][Move.from(move) * Square.COUNT + Move.to(move)];
+        if (previous != Move.NONE) {
+            score += continuation[continuationIndex(previous, move)];
+        }
+        return score;
+    }
+
+    /**
+     * 不吃子走法 move 引起了 beta 截断：记为杀手、反击走法，加历史分；
+     * 之前试过但没截断的不吃子走法 tried[0, triedCount) 扣历史分
+     */
+    void updateQuietCutoff(int color, int ply, int move, int previous, int depth, int[] tried, int triedCount) {
+        int[] k = killers[ply];
+        if (k[0] != move) {
+            k[1] = k[0];
+            k[0] = move;
+        }
+        if (previous != Move.NONE) {
+            counterMoves[Move.piece(previous)][Move.to(previous)] = move;
+        }
+
+        int bonus = Math.min(32 * depth * depth, 1200);
+        update(color, move, previous, bonus);
+        for (int i = 0; i < triedCount; i++) {
+            if (tried[i] != move) update(color, tried[i], previous, -bonus);
+        }
+    }
+
+    private void update(int color, int move, int previous, int bonus) {
+        int[] h = butterfly[color];
+        int index = Move.from(move) * Square.COUNT + Move.to(move);
+        h[index] += bonus - h[index] * Math.abs(bonus) / HISTORY_MAX;
+        if (previous != Move.NONE) {
+            int c = continuationIndex(previous, move);
+            continuation[c] += bonus - continuation[c] * Math.abs(bonus) / HISTORY_MAX;
+        }
+    }
+
+    private static int continuationIndex(int previous, int move) {
+        int prev = Move.piece(previous) * Square.COUNT + Move.to(previous);
+        return prev * PIECE_SQUARES + Move.piece(move) * Square.COUNT + Move.to(move);
+    }
+}
@@ -0,0 +1,185 @@
+package edu.sustech.xiangqi.model.engine;
+
+/**
+ * 分阶段的走法挑选器，每次 next() 给出下一步伪合法走法，给完返回 Move.NONE
+ * 顺序：置换表走法 → 不亏的吃子（MVV-LVA）→ 两个杀手走法 → 反击走法 → 其余不吃子走法（历史分）→ SEE 为负的吃子
+ * 走法按阶段懒生成：前面的走法已经引起截断时，不吃子走法根本不会生成；只给吃子时不给 SEE 为负的吃子
+ * 搜索里每层一个实例，预先分配，不产生垃圾
+ */
+final class MovePicker {
+    private static final int STAGE_HASH = 0;
+    private static final int STAGE_GEN_CAPTURES = 1;
+    private static final int STAGE_CAPTURES = 2;
+    private static final int STAGE_KILLER_1 = 3;
+    private static final int STAGE_KILLER_2 = 4;
+    private static final int STAGE_COUNTER = 5;
+    private static final int STAGE_GEN_QUIETS = 6;
+    private static final int STAGE_QUIETS = 7;
+    private static final int STAGE_BAD_CAPTURES = 8;
+    private static final int STAGE_DONE = 9;
+
+    private final MoveGenerator generator;
+    private final MoveHistory history;
+    private final See see;
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final int[] scores = new int[MoveGenerator.MAX_MOVES];
+    // 被推迟到最后的亏本吃子，已经按 MVV-LVA 排好
+    private final int[] badCaptures = new int[MoveGenerator.MAX_MOVES];
+    private int badCount;
+    private int badIndex;
+
+    private Position position;
+    private int stage;
+    private int index;
+    private int end;
+    private boolean capturesOnly;
+    private int hashMove;
+    private int killer1;
+    private int killer2;
+    private int counterMove;
+    private int previous;
+
+    MovePicker(MoveGenerator generator, MoveHistory history, See see) {
+        this.generator = generator;
+        this.history = history;
+        this.see = see;
+    }
+
+    /**
+     * 全宽节点：所有走法
+     */
+    void init(Position position, int ply, int hashMove) {
+        this.position = position;
+        this.capturesOnly = false;
+        this.previous = position.lastMove(1);
+        this.hashMove = generator.isPseudoLegal(position, hashMove) ? hashMove : Move.NONE;
+        this.killer1 = history.killer(ply, 0);
+        this.killer2 = history.killer(ply, 1);
+        this.counterMove = history.counterMove(previous);
+        stage = STAGE_HASH;
+    }
+
+    /**
+     * 静态搜索：只给吃子走法
+     */
+    void initCaptures(Position position) {
+        this.position = position;
+        this.capturesOnly = true;
+        this.hashMove = Move.NONE;
+        stage = STAGE_GEN_CAPTURES;
+    }
+
+    int next() {
+        // 每个阶段要么给出走法，要么 break 进入下一阶段
+        while (true) {
+            switch (stage) {
+                case STAGE_HASH:
+                    stage = STAGE_GEN_CAPTURES;
+                    if (hashMove != Move.NONE) return hashMove;
+                    break;
+                case STAGE_GEN_CAPTURES:
+                    end = generator.generateCaptures(position, position.sideToMove(), moves, 0);
+                    index = 0;
+                    badCount = 0;
+                    badIndex = 0;
+                    scoreCaptures();
+                    stage = STAGE_CAPTURES;
+                    break;
+                case STAGE_CAPTURES:
+                    while (index < end) {
+                        int move = pickBest();
+                        if (move == hashMove) continue;
+                        if (isGoodCapture(move)) return move;
+                        badCaptures[badCount++] = move;
+                    }
+                    if (capturesOnly) {
+                        stage = STAGE_DONE;
+                        return Move.NONE;
+                    }
+                    stage = STAGE_KILLER_1;
+                    break;
+                case STAGE_KILLER_1:
+                    stage = STAGE_KILLER_2;
+                    if (killer1 != hashMove && isQuiet(killer1)) return killer1;
+                    break;
+                case STAGE_KILLER_2:
+                    stage = STAGE_COUNTER;
+                    if (killer2 != hashMove && isQuiet(killer2)) return killer2;
+                    break;
+                case STAGE_COUNTER:
+                    stage = STAGE_GEN_QUIETS;
+                    if (counterMove != hashMove && counterMove != killer1 && counterMove != killer2
+                            && isQuiet(counterMove)) {
+                        return counterMove;
+                    }
+                    break;
+                case STAGE_GEN_QUIETS:
+                    end = generator.generateQuiets(position, position.sideToMove(), moves, 0);
+                    index = 0;
+                    scoreQuiets();
+                    stage = STAGE_QUIETS;
+                    break;
+                case STAGE_QUIETS:
+                    while (index < end) {
+                        int move = pickBest();
+                        if (move != hashMove && move != killer1 && move != killer2 && move != counterMove) return move;
+                    }
+                    stage = STAGE_BAD_CAPTURES;
+                    break;
+                case STAGE_BAD_CAPTURES:
+                    if (badIndex < badCount) return badCaptures[badIndex++];
+                    stage = STAGE_DONE;
+                    break;
+                default:
+                    return Move.NONE;
+            }
+        }
+    }
+
+    /**
+     * 杀手走法和反击走法来自别的局面，要确认在这里是伪合法的不吃子走法
+     */
+    private boolean isQuiet(int move) {
+        return move != Move.NONE && !Move.isCapture(move) && generator.isPseudoLegal(position, move);
+    }
+
+    /**
+     * 用便宜的子吃贵的子肯定不亏，其余的看 SEE
+     */
+    private boolean isGoodCapture(int move) {
+        return See.value(Move.captured(move)) >= See.value(Move.piece(move)) || see.see(position, move) >= 0;
+    }
+
+    /**
+     * MVV-LVA：先吃价值高的，同样的被吃子先用价值低的去吃
+     */
+    private void scoreCaptures() {
+        for (int i = 0; i < end; i++) {
+            int move = moves[i];
+            scores[i] = Piece.VALUE[Piece.type(Move.captured(move))] * 16 - Piece.type(Move.piece(move));
+        }
+    }
+
+    private void scoreQuiets() {
+        int color = position.sideToMove();
+        for (int i = 0; i < end; i++) {
+            scores[i] = history.quietScore(color, moves[i], previous);
+        }
+    }
+
+    /**
+     * 取出 [index, end) 中分数最高的走法（选择排序，截断后剩下的不用排）
+     */
+    private int pickBest() {
+        int bestIndex = index;
+        for (int i = index + 1; i < end; i++) {
+            if (scores[i] > scores[bestIndex]) bestIndex = i;
+        }
+        int move = moves[bestIndex];
+        // index 之前的位置不会再看，只需要把被占的位置补上
+        moves[bestIndex] = moves[index];
+        scores[bestIndex] = scores[index];
+        index++;
+        return move;
+    }
+}
@@ -0,0 +1,217 @@
+package edu.sustech.xiangqi.model.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 开局库：BookCompiler 生成的二进制文件，用内存映射打开，按局面键二分查找，文件内容不进 Java 堆
+ * <pre>
+ * 文件头 16 字节：魔数 MAGIC、版本 VERSION、条目数、保留
+ * 条目 ENTRY_SIZE 字节：局面键 long、走法 int、权重 int、胜 int、和 int、负 int
+ * </pre>
+ * 条目按局面键（有符号 long）升序、同一局面内按权重降序排列；胜和负都是对走这步的一方而言
+ * 查询一次是 log2(条目数) 次随机读，映射页在内存里时只要几微秒
+ * probe 可以多线程同时调用；pickMove、bestMove 要校验走法，用到实例里的走法生成器，只能在一个线程上调用
+ */
+public final class OpeningBook implements Closeable {
+    public static final int MAGIC = 0x58514248; // "XQBH"
+    public static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int ENTRY_SIZE = 28;
+
+    private final MoveGenerator generator = new MoveGenerator();
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int count;
+
+    /**
+     * 一个局面下的一步库内走法
+     */
+    public static final class Entry {
+        private final int move;
+        private final int weight;
+        private final int wins;
+        private final int draws;
+        private final int losses;
+
+        Entry(int move, int weight, int wins, int draws, int losses) {
+            this.move = move;
+            this.weight = weight;
+            this.wins = wins;
+            this.draws = draws;
+            this.losses = losses;
+        }
+
+        public int getMove() {
+            return move;
+        }
+
+        /**
+         * 棋谱里这步出现的次数
+         */
+        public int getWeight() {
+            return weight;
+        }
+
+        public int getWins() {
+            return wins;
+        }
+
+        public int getDraws() {
+            return draws;
+        }
+
+        public int getLosses() {
+            return losses;
+        }
+    }
+
+    private OpeningBook(FileChannel channel, MappedByteBuffer buffer, int count) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.count = count;
+    }
+
+    /**
+     * 打开开局库文件；文件格式不对时抛 IOException
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_SIZE) throw new IOException("开局库文件太短: " + path);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int count = buffer.getInt(8);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("不是开局库文件或版本不对: " + path);
+            }
+            if (count < 0 || HEADER_SIZE + (long) count * ENTRY_SIZE > size) {
+                throw new IOException("开局库文件不完整: " + path);
+            }
+            return new OpeningBook(channel, buffer, count);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 局面键为 key 的第一个条目的下标，库里没有这个局面时返回 -1
+     */
+    int find(long key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keyAt(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < count && keyAt(low) == key ? low : -1;
+    }
+
+    /**
+     * 局面键为 key 的全部库内走法，按权重从高到低
+     */
+    public List<Entry> probe(long key) {
+        List<Entry> entries = new ArrayList<>();
+        int index = find(key);
+        if (index < 0) return entries;
+        for (; index < count && keyAt(index) == key; index++) {
+            int offset = offset(index);
+            entries.add(new Entry(buffer.getInt(offset + 8), buffer.getInt(offset + 12),
+                    buffer.getInt(offset + 16), buffer.getInt(offset + 20), buffer.getInt(offset + 24)));
+        }
+        return entries;
+    }
+
+    /**
+     * 按权重随机选一步库内走法（胜率高的走法权重会放大），没有或者都不合法时返回 Move.NONE
+     * 不创建对象，可以在每步走子前直接调用
+     */
+    public int pickMove(Position position, Random random) {
+        int first = find(position.key());
+        if (first < 0) return Move.NONE;
+        long total = 0;
+        int end = first;
+        for (; end < count && keyAt(end) == position.key(); end++) {
+            if (isLegal(position, moveAt(end))) total += score(end);
+        }
+        if (total == 0) return Move.NONE;
+        long target = (long) (random.nextDouble() * total);
+        for (int i = first; i < end; i++) {
+            int move = moveAt(i);
+            if (!isLegal(position, move)) continue;
+            target -= score(i);
+            if (target < 0) return move;
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * 出现次数最多的合法库内走法，没有时返回 Move.NONE
+     */
+    public int bestMove(Position position) {
+        int index = find(position.key());
+        if (index < 0) return Move.NONE;
+        for (; index < count && keyAt(index) == position.key(); index++) {
+            if (isLegal(position, moveAt(index))) return moveAt(index);
+        }
+        return Move.NONE;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static int offset(int index) {
+        return HEADER_SIZE + index * ENTRY_SIZE;
+    }
+
+    private long keyAt(int index) {
+        return buffer.getLong(offset(index));
+    }
+
+    private int moveAt(int index) {
+        return buffer.getInt(offset(index) + 8);
+    }
+
+    /**
+     * 选择用的分数：出现次数乘以 (2 胜 + 和 + 1) / (2 局数 + 2)，没有结果的走法按五成算
+     */
+    private long score(int index) {
+        int offset = offset(index);
+        long weight = buffer.getInt(offset + 12);
+        long wins = buffer.getInt(offset + 16);
+        long draws = buffer.getInt(offset + 20);
+        long losses = buffer.getInt(offset + 24);
+        long games = wins + draws + losses;
+        return Math.max(1, weight * 64 * (2 * wins + draws + 1) / (2 * games + 2));
+    }
+
+    /**
+     * 防止哈希碰撞或者文件损坏给出不合法的走法
+     */
+    private boolean isLegal(Position position, int move) {
+        if (!generator.isPseudoLegal(position, move)) return false;
+        int side = position.sideToMove();
+        position.makeMove(move);
+        boolean legal = !position.inCheck(side);
+        position.unmakeMove(move);
+        return legal;
+    }
+}
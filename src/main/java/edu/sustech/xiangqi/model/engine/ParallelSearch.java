@@ -0,0 +1,182 @@
+package edu.sustech.xiangqi.model.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * 多线程搜索（Lazy SMP）：主线程和若干辅助线程搜同一个局面，只通过共用的置换表交换信息
+ * 辅助线程错开搜索深度，先搜完的分支存进置换表，主线程再搜到时直接截断或拿到更好的走法顺序
+ * 结果以主线程为准；杀手走法、历史表、局面副本都是每个线程各自一份
+ * 调用 search 的线程就是主线程，它持有调用方传进来的根局面，辅助线程各拿一份拷贝
+ */
+public class ParallelSearch {
+    private final TranspositionTable tt;
+    private final Search main;
+    private Search[] helpers = new Search[0];
+    private ExecutorService pool;
+    private Consumer<SearchResult> iterationListener;
+
+    /**
+     * 线程数等于 CPU 核数
+     */
+    public ParallelSearch() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelSearch(int threads) {
+        this(threads, new TranspositionTable());
+    }
+
+    public ParallelSearch(int threads, TranspositionTable tt) {
+        this.tt = tt;
+        this.main = new Search(tt);
+        main.setIterationListener(this::onIteration);
+        setThreads(threads);
+    }
+
+    /**
+     * 设置总线程数（含主线程），至少为 1；不能和搜索同时调用
+     */
+    public void setThreads(int threads) {
+        threads = Math.max(1, threads);
+        if (threads == getThreads()) return;
+        shutdown();
+        helpers = new Search[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new Search(tt);
+            helpers[i].setHelperId(i + 1);
+            helpers[i].setOptions(main.getOptions());
+            helpers[i].setTablebases(main.getTablebases());
+        }
+        if (helpers.length > 0) {
+            pool = Executors.newFixedThreadPool(helpers.length, runnable -> {
+                Thread thread = new Thread(runnable, "search-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public int getThreads() {
+        return helpers.length + 1;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return tt;
+    }
+
+    /**
+     * 所有线程共用同一组选择性搜索开关
+     */
+    public void setOptions(SearchOptions options) {
+        main.setOptions(options);
+        for (Search helper : helpers) {
+            helper.setOptions(options);
+        }
+    }
+
+    /**
+     * 所有线程共用同一个残局库（可以为 null）
+     */
+    public void setTablebases(Tablebases tablebases) {
+        main.setTablebases(tablebases);
+        for (Search helper : helpers) {
+            helper.setTablebases(tablebases);
+        }
+    }
+
+    /**
+     * 主线程上一次搜索的第一步截断率（见 Search.getFirstMoveCutoffRate）
+     */
+    public double getFirstMoveCutoffRate() {
+        return main.getFirstMoveCutoffRate();
+    }
+
+    /**
+     * 上一次搜索所有线程合计的置换表命中率：各线程自己计数，搜索结束后在这里相加
+     */
+    public double getTtHitRate() {
+        long probes = main.getTtProbes();
+        long hits = main.getTtHits();
+        for (Search helper : helpers) {
+            probes += helper.getTtProbes();
+            hits += helper.getTtHits();
+        }
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    /**
+     * 主线程每搜完一轮回调一次，节点数是所有线程的合计
+     */
+    public void setIterationListener(Consumer<SearchResult> listener) {
+        this.iterationListener = listener;
+    }
+
+    public void stop() {
+        main.stop();
+        for (Search helper : helpers) {
+            helper.stop();
+        }
+    }
+
+    /**
+     * 搜索 root 局面走子方的最佳走法，root 本身不会被修改；时间、深度、节点限制只看主线程
+     */
+    public SearchResult search(Position root, SearchLimits limits) {
+        List<Future<SearchResult>> futures = new ArrayList<>(helpers.length);
+        SearchLimits helperLimits = SearchLimits.infinite().withDepth(limits.getDepth());
+        for (Search helper : helpers) {
+            Position copy = new Position(root);
+            helper.clearStop();
+            futures.add(pool.submit(() -> helper.run(copy, helperLimits)));
+        }
+
+        SearchResult result = main.search(root, limits);
+
+        for (Search helper : helpers) {
+            helper.stop();
+        }
+        for (Future<SearchResult> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("辅助搜索线程出错", e.getCause());
+            }
+        }
+        return withTotalNodes(result);
+    }
+
+    /**
+     * 结束辅助线程；之后可以再调用 setThreads 重新创建
+     */
+    public void shutdown() {
+        if (pool != null) {
+            stop();
+            pool.shutdownNow();
+            pool = null;
+        }
+        helpers = new Search[0];
+    }
+
+    private void onIteration(SearchResult result) {
+        Consumer<SearchResult> listener = iterationListener;
+        if (listener != null) listener.accept(withTotalNodes(result));
+    }
+
+    private SearchResult withTotalNodes(SearchResult result) {
+        long nodes = result.getNodes();
+        for (Search helper : helpers) {
+            nodes += helper.getNodes();
+        }
+        return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(), result.getPv(),
+                nodes, result.getTimeMillis());
+    }
+}
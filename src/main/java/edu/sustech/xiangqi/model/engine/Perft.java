@@ -0,0 +1,198 @@
+package edu.sustech.xiangqi.model.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Perft：把合法走法树完整走到指定深度，按层统计节点、吃子、将军、将死数
+ * 用来核对走法生成器（和基于 canMoveTo 的模型规则比对，见 ReferencePerft），也用来衡量生成器的速度
+ */
+public class Perft {
+    private final MoveGenerator generator = new MoveGenerator();
+    private int[][] buffers = new int[0][];
+
+    /**
+     * 每层的统计结果，下标 0 是第 1 层
+     */
+    public static class Result {
+        public final long[] nodes;
+        public final long[] captures;
+        public final long[] checks;
+        public final long[] mates;
+        public long elapsedNanos;
+
+        public Result(int depth) {
+            nodes = new long[depth];
+            captures = new long[depth];
+            checks = new long[depth];
+            mates = new long[depth];
+        }
+
+        public int depth() {
+            return nodes.length;
+        }
+
+        public long totalNodes() {
+            long total = 0;
+            for (long n : nodes) total += n;
+            return total;
+        }
+
+        public double nodesPerSecond() {
+            return elapsedNanos == 0 ? 0 : totalNodes() * 1e9 / elapsedNanos;
+        }
+
+        void add(Result other, int offset) {
+            for (int i = 0; i + offset < depth() && i < other.depth(); i++) {
+                nodes[i + offset] += other.nodes[i];
+                captures[i + offset] += other.captures[i];
+                checks[i + offset] += other.checks[i];
+                mates[i + offset] += other.mates[i];
+            }
+        }
+
+        /**
+         * 两次结果是否逐层一致
+         */
+        public boolean sameCounts(Result other) {
+            return Arrays.equals(nodes, other.nodes)
+                    && Arrays.equals(captures, other.captures)
+                    && Arrays.equals(checks, other.checks)
+                    && Arrays.equals(mates, other.mates);
+        }
+    }
+
+    /**
+     * 单线程 perft，结束后 position 恢复原样
+     */
+    public Result run(Position position, int depth) {
+        Result result = new Result(depth);
+        ensureBuffers(depth + 1);
+        long start = System.nanoTime();
+        if (depth > 0) {
+            walk(position, 0, depth, result);
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * 只数叶子节点（最后一层不真正走子），用于衡量生成器吞吐
+     */
+    public long countLeaves(Position position, int depth) {
+        ensureBuffers(depth + 1);
+        return depth <= 0 ? 1 : countLeaves(position, 0, depth);
+    }
+
+    /**
+     * 在根节点拆分、用 fork-join 并行的 perft
+     */
+    public static Result runParallel(Position position, int depth, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        Result result = pool.invoke(new RootTask(position, depth));
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private void ensureBuffers(int size) {
+        if (buffers.length < size) {
+            buffers = new int[size][MoveGenerator.MAX_MOVES];
+        }
+    }
+
+    private void walk(Position position, int ply, int depth, Result result) {
+        int[] moves = buffers[ply];
+        int side = position.sideToMove();
+        int count = generator.generateLegal(position, side, moves, 0);
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            position.makeMove(move);
+            result.nodes[ply]++;
+            if (Move.isCapture(move)) result.captures[ply]++;
+            if (position.inCheck(side ^ 1)) {
+                result.checks[ply]++;
+                if (!generator.hasLegalMove(position, side ^ 1, buffers[ply + 1])) result.mates[ply]++;
+            }
+            if (depth > 1) {
+                walk(position, ply + 1, depth - 1, result);
+            }
+            position.unmakeMove(move);
+        }
+    }
+
+    private long countLeaves(Position position, int ply, int depth) {
+        int[] moves = buffers[ply];
+        int count = generator.generateLegal(position, position.sideToMove(), moves, 0);
+        if (depth == 1) return count;
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            total += countLeaves(position, ply + 1, depth - 1);
+            position.unmakeMove(moves[i]);
+        }
+        return total;
+    }
+
+    /**
+     * 根节点任务：为每个根走法派生一个子任务，子任务各自持有局面副本和生成器
+     */
+    private static class RootTask extends RecursiveTask<Result> {
+        private final Position position;
+        private final int depth;
+
+        RootTask(Position position, int depth) {
+            this.position = position;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Result compute() {
+            Result result = new Result(depth);
+            if (depth == 0) return result;
+
+            MoveGenerator generator = new MoveGenerator();
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int side = position.sideToMove();
+            int count = generator.generateLegal(position, side, moves, 0);
+
+            List<SubtreeTask> tasks = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Position child = new Position(position);
+                child.makeMove(moves[i]);
+                result.nodes[0]++;
+                if (Move.isCapture(moves[i])) result.captures[0]++;
+                if (child.inCheck(side ^ 1)) {
+                    result.checks[0]++;
+                    if (!generator.hasLegalMove(child, side ^ 1, new int[MoveGenerator.MAX_MOVES])) result.mates[0]++;
+                }
+                if (depth > 1) {
+                    SubtreeTask task = new SubtreeTask(child, depth - 1);
+                    task.fork();
+                    tasks.add(task);
+                }
+            }
+            for (SubtreeTask task : tasks) {
+                result.add(task.join(), 1);
+            }
+            return result;
+        }
+    }
+
+    private static class SubtreeTask extends RecursiveTask<Result> {
+        private final Position position;
+        private final int depth;
+
+        SubtreeTask(Position position, int depth) {
+            this.position = position;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Result compute() {
+            return new Perft().run(position, depth);
+        }
+    }
+}
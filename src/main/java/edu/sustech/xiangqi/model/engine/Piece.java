@@ -0,0 +1,107 @@
+package edu.sustech.xiangqi.model.engine;
+
+import edu.sustech.xiangqi.model.pieces.*;
+
+/**
+ * 引擎内部的棋子编码
+ * 一个棋子用一个 int 表示：低 3 位是兵种，第 4 位是颜色（0 红 1 黑），0 表示空格
+ */
+public final class Piece {
+    public static final int EMPTY = 0;
+
+    // 兵种
+    public static final int GENERAL = 1;  // 帅/将
+    public static final int ADVISOR = 2;  // 仕/士
+    public static final int ELEPHANT = 3; // 相/象
+    public static final int HORSE = 4;    // 马
+    public static final int CHARIOT = 5;  // 车
+    public static final int CANNON = 6;   // 炮
+    public static final int SOLDIER = 7;  // 兵/卒
+
+    // 颜色
+    public static final int RED = 0;
+    public static final int BLACK = 1;
+
+    /** 棋子编码的取值范围是 1~15，数组按 16 开即可 */
+    public static final int CODE_COUNT = 16;
+
+    /** 各兵种的子力价值（按兵种下标），帅不计入子力 */
+    public static final int[] VALUE = {0, 0, 200, 200, 400, 900, 450, 100};
+
+    private static final String[] RED_NAMES = {"", "帅", "仕", "相", "马", "车", "炮", "兵"};
+    private static final String[] BLACK_NAMES = {"", "將", "士", "象", "馬", "車", "砲", "卒"};
+
+    private Piece() {
+    }
+
+    public static int make(int color, int type) {
+        return type | (color << 3);
+    }
+
+    public static int type(int piece) {
+        return piece & 7;
+    }
+
+    public static int color(int piece) {
+        return piece >> 3;
+    }
+
+    public static boolean isRed(int piece) {
+        return piece != EMPTY && (piece & 8) == 0;
+    }
+
+    public static int opponent(int color) {
+        return color ^ 1;
+    }
+
+    /**
+     * 模型里的棋子对象 -> 兵种
+     */
+    public static int typeOf(AbstractPiece piece) {
+        if (piece instanceof GeneralPiece) return GENERAL;
+        if (piece instanceof AdvisorPiece) return ADVISOR;
+        if (piece instanceof ElephantPiece) return ELEPHANT;
+        if (piece instanceof HorsePiece) return HORSE;
+        if (piece instanceof ChariotPiece) return CHARIOT;
+        if (piece instanceof CannonPiece) return CANNON;
+        if (piece instanceof SoldierPiece) return SOLDIER;
+        throw new IllegalArgumentException("未知棋子: " + piece.getName());
+    }
+
+    /**
+     * 模型里的棋子对象 -> 编码
+     */
+    public static int codeOf(AbstractPiece piece) {
+        return make(piece.isRed() ? RED : BLACK, typeOf(piece));
+    }
+
+    /**
+     * 编码 -> 模型里的棋子对象（名字和 ChessBoardModel 开局时用的一致）
+     */
+    public static AbstractPiece toAbstractPiece(int piece, int row, int col) {
+        boolean isRed = isRed(piece);
+        String name = name(piece);
+        switch (type(piece)) {
+            case GENERAL:
+                return new GeneralPiece(name, row, col, isRed);
+            case ADVISOR:
+                return new AdvisorPiece(name, row, col, isRed);
+            case ELEPHANT:
+                return new ElephantPiece(name, row, col, isRed);
+            case HORSE:
+                return new HorsePiece(name, row, col, isRed);
+            case CHARIOT:
+                return new ChariotPiece(name, row, col, isRed);
+            case CANNON:
+                return new CannonPiece(name, row, col, isRed);
+            case SOLDIER:
+                return new SoldierPiece(name, row, col, isRed);
+            default:
+                throw new IllegalArgumentException("空格没有棋子对象");
+        }
+    }
+
+    public static String name(int piece) {
+        return isRed(piece) ? RED_NAMES[type(piece)] : BLACK_NAMES[type(piece)];
+    }
+}
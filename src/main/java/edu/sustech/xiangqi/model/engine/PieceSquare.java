@@ -0,0 +1,203 @@
+package edu.sustech.xiangqi.model.engine;
+
+/**
+ * 子力 + 位置分表（中局、残局各一套），Position 在增删棋子时增量累加
+ * 下面的表都按红方视角书写：第 0 行是黑方底线，第 9 行是红方底线；黑方棋子上下翻转后查同一张表
+ * 阶段值：车 2、马炮 1，满子时 16，越小越接近残局
+ */
+public final class PieceSquare {
+    /** 中局子力（按兵种下标），和 Piece.VALUE 一致 */
+    public static final int[] VALUE_MG = Piece.VALUE;
+    /** 残局子力：炮缺炮架变弱，马和过河兵变强 */
+    public static final int[] VALUE_EG = {0, 0, 180, 180, 440, 920, 400, 130};
+
+    public static final int[] PHASE_WEIGHT = {0, 0, 0, 0, 1, 2, 1, 0};
+    public static final int PHASE_MAX = 16;
+
+    /** MG[棋子编码][格子]、EG[棋子编码][格子]：子力 + 位置分 */
+    public static final int[][] MG = new int[Piece.CODE_COUNT][Square.COUNT];
+    public static final int[][] EG = new int[Piece.CODE_COUNT][Square.COUNT];
+
+    private static final int[] GENERAL_MG = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, -12, -10, -12, 0, 0, 0,
+            0, 0, 0, -4, -2, -4, 0, 0, 0,
+            0, 0, 0, 2, 4, 2, 0, 0, 0,
+    };
+
+    private static final int[] GENERAL_EG = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, -2, 2, -2, 0, 0, 0,
+            0, 0, 0, 0, 6, 0, 0, 0, 0,
+            0, 0, 0, -2, 2, -2, 0, 0, 0,
+    };
+
+    private static final int[] ADVISOR = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, -2, 0, -2, 0, 0, 0,
+            0, 0, 0, 0, 4, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+    };
+
+    private static final int[] ELEPHANT = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, -2, 0, 0, 0, -2, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            -3, 0, 0, 0, 4, 0, 0, 0, -3,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+    };
+
+    private static final int[] HORSE_MG = {
+            4, 8, 16, 12, 4, 12, 16, 8, 4,
+            4, 10, 28, 16, 8, 16, 28, 10, 4,
+            12, 14, 16, 20, 18, 20, 16, 14, 12,
+            8, 24, 18, 24, 20, 24, 18, 24, 8,
+            6, 16, 14, 18, 16, 18, 14, 16, 6,
+            4, 12, 16, 14, 12, 14, 16, 12, 4,
+            2, 6, 8, 6, 10, 6, 8, 6, 2,
+            4, 2, 8, 8, 4, 8, 8, 2, 4,
+            0, 2, 4, 4, -2, 4, 4, 2, 0,
+            0, -4, 0, 0, 0, 0, 0, -4, 0,
+    };
+
+    private static final int[] HORSE_EG = {
+            2, 4, 6, 6, 6, 6, 6, 4, 2,
+            4, 8, 12, 12, 12, 12, 12, 8, 4,
+            6, 12, 16, 16, 16, 16, 16, 12, 6,
+            6, 12, 16, 18, 18, 18, 16, 12, 6,
+            4, 10, 14, 16, 16, 16, 14, 10, 4,
+            4, 8, 12, 14, 14, 14, 12, 8, 4,
+            2, 6, 8, 10, 10, 10, 8, 6, 2,
+            0, 4, 6, 6, 6, 6, 6, 4, 0,
+            -2, 0, 2, 2, 2, 2, 2, 0, -2,
+            -6, -4, -2, -2, -2, -2, -2, -4, -6,
+    };
+
+    private static final int[] CHARIOT_MG = {
+            6, 8, 7, 13, 14, 13, 7, 8, 6,
+            6, 12, 9, 16, 33, 16, 9, 12, 6,
+            6, 8, 7, 14, 16, 14, 7, 8, 6,
+            6, 13, 13, 16, 16, 16, 13, 13, 6,
+            8, 11, 11, 14, 15, 14, 11, 11, 8,
+            8, 12, 12, 14, 15, 14, 12, 12, 8,
+            4, 9, 4, 12, 14, 12, 4, 9, 4,
+            -2, 8, 4, 12, 12, 12, 4, 8, -2,
+            5, 8, 6, 12, 0, 12, 6, 8, 5,
+            -6, 6, 4, 12, 0, 12, 4, 6, -6,
+    };
+
+    private static final int[] CHARIOT_EG = {
+            10, 10, 10, 12, 12, 12, 10, 10, 10,
+            12, 14, 14, 16, 16, 16, 14, 14, 12,
+            8, 10, 10, 12, 12, 12, 10, 10, 8,
+            6, 8, 8, 10, 10, 10, 8, 8, 6,
+            4, 6, 6, 8, 8, 8, 6, 6, 4,
+            4, 6, 6, 8, 8, 8, 6, 6, 4,
+            2, 4, 4, 6, 6, 6, 4, 4, 2,
+            0, 2, 2, 4, 4, 4, 2, 2, 0,
+            0, 2, 2, 4, 4, 4, 2, 2, 0,
+            0, 2, 2, 4, 4, 4, 2, 2, 0,
+    };
+
+    private static final int[] CANNON_MG = {
+            4, 4, 0, -5, -6, -5, 0, 4, 4,
+            2, 2, 0, -4, -7, -4, 0, 2, 2,
+            1, 1, 0, -5, -4, -5, 0, 1, 1,
+            0, 3, 3, 2, 4, 2, 3, 3, 0,
+            0, 0, 0, 0, 4, 0, 0, 0, 0,
+            -1, 0, 3, 0, 4, 0, 3, 0, -1,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            1, 0, 4, 3, 5, 3, 4, 0, 1,
+            0, 1, 2, 2, 2, 2, 2, 1, 0,
+            0, 0, 1, 3, 3, 3, 1, 0, 0,
+    };
+
+    private static final int[] CANNON_EG = {
+            0, 0, 0, 2, 4, 2, 0, 0, 0,
+            0, 0, 0, 2, 4, 2, 0, 0, 0,
+            0, 0, 0, 2, 4, 2, 0, 0, 0,
+            0, 0, 0, 2, 4, 2, 0, 0, 0,
+            0, 0, 0, 2, 4, 2, 0, 0, 0,
+            0, 0, 0, 2, 4, 2, 0, 0, 0,
+            0, 0, 0, 2, 4, 2, 0, 0, 0,
+            0, 0, 0, 2, 4, 2, 0, 0, 0,
+            0, 0, 0, 2, 4, 2, 0, 0, 0,
+            0, 0, 0, 2, 4, 2, 0, 0, 0,
+    };
+
+    private static final int[] SOLDIER_MG = {
+            0, 3, 6, 9, 12, 9, 6, 3, 0,
+            18, 36, 56, 80, 120, 80, 56, 36, 18,
+            14, 26, 42, 60, 80, 60, 42, 26, 14,
+            10, 20, 30, 34, 40, 34, 30, 20, 10,
+            6, 12, 18, 18, 20, 18, 18, 12, 6,
+            2, 0, 8, 0, 8, 0, 8, 0, 2,
+            0, 0, -2, 0, 4, 0, -2, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+    };
+
+    // 残局的兵越靠近九宫越好，但沉底兵没用
+    private static final int[] SOLDIER_EG = {
+            0, 0, 0, 10, 15, 10, 0, 0, 0,
+            30, 40, 55, 70, 80, 70, 55, 40, 30,
+            30, 40, 55, 65, 70, 65, 55, 40, 30,
+            25, 35, 45, 50, 55, 50, 45, 35, 25,
+            20, 25, 30, 35, 35, 35, 30, 25, 20,
+            0, 0, 5, 0, 10, 0, 5, 0, 0,
+            0, 0, 0, 0, 5, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+    };
+
+    static {
+        int[][] mg = {null, GENERAL_MG, ADVISOR, ELEPHANT, HORSE_MG, CHARIOT_MG, CANNON_MG, SOLDIER_MG};
+        int[][] eg = {null, GENERAL_EG, ADVISOR, ELEPHANT, HORSE_EG, CHARIOT_EG, CANNON_EG, SOLDIER_EG};
+        for (int type = Piece.GENERAL; type <= Piece.SOLDIER; type++) {
+            int red = Piece.make(Piece.RED, type);
+            int black = Piece.make(Piece.BLACK, type);
+            for (int sq = 0; sq < Square.COUNT; sq++) {
+                int flipped = flip(sq);
+                MG[red][sq] = VALUE_MG[type] + mg[type][sq];
+                EG[red][sq] = VALUE_EG[type] + eg[type][sq];
+                MG[black][sq] = VALUE_MG[type] + mg[type][flipped];
+                EG[black][sq] = VALUE_EG[type] + eg[type][flipped];
+            }
+        }
+    }
+
+    private PieceSquare() {
+    }
+
+    /**
+     * 上下翻转（红黑互换视角）
+     */
+    public static int flip(int sq) {
+        return Square.of(Square.ROWS - 1 - Square.row(sq), Square.col(sq));
+    }
+}
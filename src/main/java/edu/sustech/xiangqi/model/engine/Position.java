@@ -0,0 +1,730 @@
+package edu.sustech.xiangqi.model.engine;
+
+import edu.sustech.xiangqi.model.ChessBoardModel;
+import edu.sustech.xiangqi.model.pieces.AbstractPiece;
+
+import java.util.Arrays;
+
+/**
+ * 引擎用的局面表示：格子数组 + 位棋盘 + 每行/每列的占用掩码
+ * 三者在 putPiece / removePiece / movePiece 里同步更新，攻击集全部查表得到
+ */
+public class Position {
+    private final int[] squares = new int[Square.COUNT];
+    private final long[] pieceLo = new long[Piece.CODE_COUNT];
+    private final long[] pieceHi = new long[Piece.CODE_COUNT];
+    private final long[] colorLo = new long[2];
+    private final long[] colorHi = new long[2];
+    private final int[] rankOcc = new int[Square.ROWS]; // 每行 9 位
+    private final int[] fileOcc = new int[Square.COLS]; // 每列 10 位
+    private final int[] kingSquare = {Square.NONE, Square.NONE};
+    private final int[] material = new int[2];
+    // 子力 + 位置分（PieceSquare 表）和阶段值，随增删棋子增量更新
+    private final int[] psqMg = new int[2];
+    private final int[] psqEg = new int[2];
+    private int phase;
+    private int sideToMove = Piece.RED;
+    private long key; // Zobrist 局面键，随增删棋子、换边增量更新
+    private long materialKey; // 子力键（见 Material），随增删棋子增量更新
+
+    // 走子栈：makeMove 压入、unmakeMove 弹出，预先分配，不够时才扩容
+    private int[] moveStack = new int[INITIAL_STACK_SIZE];
+    private long[] keyStack = new long[INITIAL_STACK_SIZE]; // 走这一步之前的局面键
+    private int[] reversibleStack = new int[INITIAL_STACK_SIZE]; // 走这一步之前的 reversible
+    private byte[] flagStack = new byte[INITIAL_STACK_SIZE]; // 这一步是否将军、捉子（Repetition 按需算好后缓存）
+    private int ply;
+    // 上一次吃子或兵卒前进（不可逆的走法）以来的步数，重复局面只需往回查这么远
+    private int reversible;
+    // 走子栈里各局面键低位的计数：计数为 0 时当前局面一定没有出现过，不用往回查
+    private final short[] keyFilter = new short[KEY_FILTER_SIZE];
+
+    private static final int INITIAL_STACK_SIZE = 1024;
+    private static final int KEY_FILTER_SIZE = 4096;
+    private static final int KEY_FILTER_MASK = KEY_FILTER_SIZE - 1;
+
+    public Position() {
+    }
+
+    public Position(Position other) {
+        copyFrom(other);
+    }
+
+    /**
+     * 从界面用的棋盘模型构造局面
+     */
+    public static Position fromModel(ChessBoardModel model) {
+        Position position = new Position();
+        position.setFromModel(model);
+        return position;
+    }
+
+    public void setFromModel(ChessBoardModel model) {
+        clear();
+        for (AbstractPiece piece : model.getPieces()) {
+            putPiece(Square.of(piece.getRow(), piece.getCol()), Piece.codeOf(piece));
+        }
+        setSideToMove(model.isRedTurn() ? Piece.RED : Piece.BLACK);
+    }
+
+    public void copyFrom(Position other) {
+        System.arraycopy(other.squares, 0, squares, 0, squares.length);
+        System.arraycopy(other.pieceLo, 0, pieceLo, 0, pieceLo.length);
+        System.arraycopy(other.pieceHi, 0, pieceHi, 0, pieceHi.length);
+        System.arraycopy(other.colorLo, 0, colorLo, 0, 2);
+        System.arraycopy(other.colorHi, 0, colorHi, 0, 2);
+        System.arraycopy(other.rankOcc, 0, rankOcc, 0, rankOcc.length);
+        System.arraycopy(other.fileOcc, 0, fileOcc, 0, fileOcc.length);
+        System.arraycopy(other.kingSquare, 0, kingSquare, 0, 2);
+        System.arraycopy(other.material, 0, material, 0, 2);
+        System.arraycopy(other.psqMg, 0, psqMg, 0, 2);
+        System.arraycopy(other.psqEg, 0, psqEg, 0, 2);
+        phase = other.phase;
+        sideToMove = other.sideToMove;
+        key = other.key;
+        materialKey = other.materialKey;
+        if (moveStack.length < other.moveStack.length) {
+            moveStack = new int[other.moveStack.length];
+            keyStack = new long[other.keyStack.length];
+            reversibleStack = new int[other.reversibleStack.length];
+            flagStack = new byte[other.flagStack.length];
+        }
+        System.arraycopy(other.moveStack, 0, moveStack, 0, other.ply);
+        System.arraycopy(other.keyStack, 0, keyStack, 0, other.ply);
+        System.arraycopy(other.reversibleStack, 0, reversibleStack, 0, other.ply);
+        System.arraycopy(other.flagStack, 0, flagStack, 0, other.ply);
+        System.arraycopy(other.keyFilter, 0, keyFilter, 0, KEY_FILTER_SIZE);
+        reversible = other.reversible;
+        ply = other.ply;
+    }
+
+    public void clear() {
+        // 只清掉用过的计数，局面里没走过棋时不用碰整张表
+        for (int i = 0; i < ply; i++) {
+            keyFilter[(int) keyStack[i] & KEY_FILTER_MASK]--;
+        }
+        Arrays.fill(squares, Piece.EMPTY);
+        Arrays.fill(pieceLo, 0L);
+        Arrays.fill(pieceHi, 0L);
+        Arrays.fill(colorLo, 0L);
+        Arrays.fill(colorHi, 0L);
+        Arrays.fill(rankOcc, 0);
+        Arrays.fill(fileOcc, 0);
+        kingSquare[0] = kingSquare[1] = Square.NONE;
+        material[0] = material[1] = 0;
+        psqMg[0] = psqMg[1] = 0;
+        psqEg[0] = psqEg[1] = 0;
+        phase = 0;
+        sideToMove = Piece.RED;
+        key = 0L;
+        materialKey = 0L;
+        ply = 0;
+        reversible = 0;
+    }
+
+    // ---------------------------------------------------------------- 增删棋子
+
+    /**
+     * 在空格上放一个棋子
+     */
+    public void putPiece(int sq, int piece) {
+        long lo = Bitboard.loBit(sq);
+        long hi = Bitboard.hiBit(sq);
+        int color = Piece.color(piece);
+        squares[sq] = piece;
+        key ^= Zobrist.PIECE_SQUARE[piece][sq];
+        materialKey += Material.unit(piece);
+        pieceLo[piece] |= lo;
+        pieceHi[piece] |= hi;
+        colorLo[color] |= lo;
+        colorHi[color] |= hi;
+        rankOcc[Square.row(sq)] |= 1 << Square.col(sq);
+        fileOcc[Square.col(sq)] |= 1 << Square.row(sq);
+        material[color] += Piece.VALUE[Piece.type(piece)];
+        psqMg[color] += PieceSquare.MG[piece][sq];
+        psqEg[color] += PieceSquare.EG[piece][sq];
+        phase += PieceSquare.PHASE_WEIGHT[Piece.type(piece)];
+        if (Piece.type(piece) == Piece.GENERAL) {
+            kingSquare[color] = sq;
+        }
+    }
+
+    /**
+     * 拿掉格子上的棋子，返回被拿掉的棋子编码
+     */
+    public int removePiece(int sq) {
+        int piece = squares[sq];
+        if (piece == Piece.EMPTY) return Piece.EMPTY;
+        long lo = ~Bitboard.loBit(sq);
+        long hi = ~Bitboard.hiBit(sq);
+        int color = Piece.color(piece);
+        squares[sq] = Piece.EMPTY;
+        key ^= Zobrist.PIECE_SQUARE[piece][sq];
+        materialKey -= Material.unit(piece);
+        pieceLo[piece] &= lo;
+        pieceHi[piece] &= hi;
+        colorLo[color] &= lo;
+        colorHi[color] &= hi;
+        rankOcc[Square.row(sq)] &= ~(1 << Square.col(sq));
+        fileOcc[Square.col(sq)] &= ~(1 << Square.row(sq));
+        material[color] -= Piece.VALUE[Piece.type(piece)];
+        psqMg[color] -= PieceSquare.MG[piece][sq];
+        psqEg[color] -= PieceSquare.EG[piece][sq];
+        phase -= PieceSquare.PHASE_WEIGHT[Piece.type(piece)];
+        if (Piece.type(piece) == Piece.GENERAL) {
+            kingSquare[color] = Square.NONE;
+        }
+        return piece;
+    }
+
+    /**
+     * 把 from 上的棋子移到空格 to
+     */
+    public void movePiece(int from, int to) {
+        putPiece(to, removePiece(from));
+    }
+
+    /**
+     * 走一步（走法必须由当前局面生成），吃子、换边、压栈
+     */
+    public void makeMove(int move) {
+        push(move);
+        boolean advance = Piece.type(Move.piece(move)) == Piece.SOLDIER
+                && Square.row(Move.from(move)) != Square.row(Move.to(move));
+        reversible = Move.isCapture(move) || advance ? 0 : reversible + 1;
+
+        int to = Move.to(move);
+        if (Move.captured(move) != Piece.EMPTY) {
+            removePiece(to);
+        }
+        movePiece(Move.from(move), to);
+        sideToMove ^= 1;
+        key ^= Zobrist.SIDE;
+    }
+
+    /**
+     * 撤销 makeMove，必须按相反的顺序调用
+     */
+    public void unmakeMove(int move) {
+        sideToMove ^= 1;
+        int to = Move.to(move);
+        movePiece(to, Move.from(move));
+        int captured = Move.captured(move);
+        if (captured != Piece.EMPTY) {
+            putPiece(to, captured);
+        }
+        pop();
+    }
+
+    /**
+     * 空着：只换边，不动棋子（搜索的空着裁剪用），走法栈里记为 Move.NONE
+     */
+    public void makeNullMove() {
+        push(Move.NONE);
+        // 空着两边的局面不算重复
+        reversible = 0;
+        sideToMove ^= 1;
+        key ^= Zobrist.SIDE;
+    }
+
+    public void unmakeNullMove() {
+        sideToMove ^= 1;
+        pop();
+    }
+
+    private void push(int move) {
+        if (ply == moveStack.length) {
+            moveStack = Arrays.copyOf(moveStack, moveStack.length * 2);
+            keyStack = Arrays.copyOf(keyStack, keyStack.length * 2);
+            reversibleStack = Arrays.copyOf(reversibleStack, reversibleStack.length * 2);
+            flagStack = Arrays.copyOf(flagStack, flagStack.length * 2);
+        }
+        keyFilter[(int) key & KEY_FILTER_MASK]++;
+        keyStack[ply] = key;
+        reversibleStack[ply] = reversible;
+        flagStack[ply] = 0;
+        moveStack[ply++] = move;
+    }
+
+    private void pop() {
+        ply--;
+        key = keyStack[ply];
+        reversible = reversibleStack[ply];
+        keyFilter[(int) key & KEY_FILTER_MASK]--;
+    }
+
+    // ---------------------------------------------------------------- 查询
+
+    public int pieceAt(int sq) {
+        return squares[sq];
+    }
+
+    public int sideToMove() {
+        return sideToMove;
+    }
+
+    public void setSideToMove(int color) {
+        if (color != sideToMove) {
+            key ^= Zobrist.SIDE;
+        }
+        this.sideToMove = color;
+    }
+
+    /**
+     * Zobrist 局面键（增量维护）
+     */
+    public long key() {
+        return key;
+    }
+
+    /**
+     * 子力键（见 Material）：每种棋子的个数
+     */
+    public long materialKey() {
+        return materialKey;
+    }
+
+    /**
+     * 倒数第 n 步走之前的局面键（n = 1 是上一步走之前），用于重复局面检测
+     */
+    public long keyBefore(int n) {
+        return keyStack[ply - n];
+    }
+
+    public int kingSquare(int color) {
+        return kingSquare[color];
+    }
+
+    public long piecesLo(int piece) {
+        return pieceLo[piece];
+    }
+
+    public long piecesHi(int piece) {
+        return pieceHi[piece];
+    }
+
+    public long colorLo(int color) {
+        return colorLo[color];
+    }
+
+    public long colorHi(int color) {
+        return colorHi[color];
+    }
+
+    public long occupiedLo() {
+        return colorLo[0] | colorLo[1];
+    }
+
+    public long occupiedHi() {
+        return colorHi[0] | colorHi[1];
+    }
+
+    /**
+     * color 方的子力总和
+     */
+    public int material(int color) {
+        return material[color];
+    }
+
+    /**
+     * color 方中局的子力 + 位置分
+     */
+    public int psqMg(int color) {
+        return psqMg[color];
+    }
+
+    /**
+     * color 方残局的子力 + 位置分
+     */
+    public int psqEg(int color) {
+        return psqEg[color];
+    }
+
+    /**
+     * 对局阶段：满子时 PieceSquare.PHASE_MAX，车马炮换光时 0（自由摆放的局面可能超过上限，用时自己截断）
+     */
+    public int phase() {
+        return phase;
+    }
+
+    /**
+     * 从 clear 以来走过的步数
+     */
+    public int ply() {
+        return ply;
+    }
+
+    /**
+     * 倒数第 n 步走法（n = 1 是上一步），没有时返回 Move.NONE
+     */
+    public int lastMove(int n) {
+        return n <= ply ? moveStack[ply - n] : Move.NONE;
+    }
+
+    /**
+     * 上一次吃子或兵卒前进以来的步数（空着也算一次中断）
+     */
+    public int reversiblePlies() {
+        return reversible;
+    }
+
+    /**
+     * 当前局面上一次出现在几步之前（同一方走、不跨过不可逆的走法），没有出现过返回 0
+     * 多数局面只查一次计数表就返回
+     */
+    public int repetitionDistance() {
+        if (keyFilter[(int) key & KEY_FILTER_MASK] == 0) return 0;
+        for (int d = 4; d <= reversible; d += 2) {
+            if (keyStack[ply - d] == key) return d;
+        }
+        return 0;
+    }
+
+    /**
+     * 当前局面之前出现过几次（范围同 repetitionDistance）
+     */
+    public int repetitionCount() {
+        if (keyFilter[(int) key & KEY_FILTER_MASK] == 0) return 0;
+        int count = 0;
+        for (int d = 4; d <= reversible; d += 2) {
+            if (keyStack[ply - d] == key) count++;
+        }
+        return count;
+    }
+
+    /**
+     * 倒数第 n 步的将军、捉子标志（见 Repetition），0 表示还没算过
+     */
+    int moveFlags(int n) {
+        return flagStack[ply - n];
+    }
+
+    void setMoveFlags(int n, int flags) {
+        flagStack[ply - n] = (byte) flags;
+    }
+
+    public int pieceCount(int piece) {
+        return Long.bitCount(pieceLo[piece]) + Long.bitCount(pieceHi[piece]);
+    }
+
+    // ---------------------------------------------------------------- 攻击集
+
+    /**
+     * 蹩马腿掩码：第 i 位表示 ORTH_NEIGHBOR[sq][i] 上有子
+     */
+    private int orthBlockMask(int sq) {
+        int[] neighbors = Attacks.ORTH_NEIGHBOR[sq];
+        int mask = 0;
+        for (int i = 0; i < 4; i++) {
+            int n = neighbors[i];
+            if (n != Square.NONE && squares[n] != Piece.EMPTY) mask |= 1 << i;
+        }
+        return mask;
+    }
+
+    /**
+     * 塞象眼掩码：第 i 位表示 DIAG_NEIGHBOR[sq][i] 上有子
+     */
+    private int diagBlockMask(int sq) {
+        int[] neighbors = Attacks.DIAG_NEIGHBOR[sq];
+        int mask = 0;
+        for (int i = 0; i < 4; i++) {
+            int n = neighbors[i];
+            if (n != Square.NONE && squares[n] != Piece.EMPTY) mask |= 1 << i;
+        }
+        return mask;
+    }
+
+    /**
+     * 车在 sq 上的攻击集（含第一个挡路的子，不分敌我）
+     */
+    public void rookAttacks(int sq, Bitboard out) {
+        int row = Square.row(sq);
+        int col = Square.col(sq);
+        int rank = Attacks.RANK_ROOK[col][rankOcc[row]];
+        int file = Attacks.FILE_ROOK[row][fileOcc[col]];
+        out.set(Bitboard.rankLo(row, rank) | Attacks.FILE_LO[col][file],
+                Bitboard.rankHi(row, rank) | Attacks.FILE_HI[col][file]);
+    }
+
+    /**
+     * 炮在 sq 上隔一个炮架能打到的格子（不分敌我）
+     */
+    public void cannonAttacks(int sq, Bitboard out) {
+        int row = Square.row(sq);
+        int col = Square.col(sq);
+        int rank = Attacks.RANK_CANNON[col][rankOcc[row]];
+        int file = Attacks.FILE_CANNON[row][fileOcc[col]];
+        out.set(Bitboard.rankLo(row, rank) | Attacks.FILE_LO[col][file],
+                Bitboard.rankHi(row, rank) | Attacks.FILE_HI[col][file]);
+    }
+
+    /**
+     * 炮在 sq 上不吃子时能平移到的空格
+     */
+    public void cannonQuiets(int sq, Bitboard out) {
+        rookAttacks(sq, out);
+        out.andNot(occupiedLo(), occupiedHi());
+    }
+
+    /**
+     * sq 上棋子控制的格子（吃子意义上的攻击，包括保护己方棋子的格子）
+     */
+    public void attacks(int sq, Bitboard out) {
+        int piece = squares[sq];
+        int color = Piece.color(piece);
+        switch (Piece.type(piece)) {
+            case Piece.GENERAL:
+                out.set(Attacks.GENERAL_LO[color][sq], Attacks.GENERAL_HI[color][sq]);
+                break;
+            case Piece.ADVISOR:
+                out.set(Attacks.ADVISOR_LO[color][sq], Attacks.ADVISOR_HI[color][sq]);
+                break;
+            case Piece.ELEPHANT: {
+                int mask = diagBlockMask(sq);
+                out.set(Attacks.ELEPHANT_LO[color][sq][mask], Attacks.ELEPHANT_HI[color][sq][mask]);
+                break;
+            }
+            case Piece.HORSE: {
+                int mask = orthBlockMask(sq);
+                out.set(Attacks.HORSE_LO[sq][mask], Attacks.HORSE_HI[sq][mask]);
+                break;
+            }
+            case Piece.CHARIOT:
+                rookAttacks(sq, out);
+                break;
+            case Piece.CANNON:
+                cannonAttacks(sq, out);
+                break;
+            case Piece.SOLDIER:
+                out.set(Attacks.SOLDIER_LO[color][sq], Attacks.SOLDIER_HI[color][sq]);
+                break;
+            default:
+                out.clear();
+        }
+    }
+
+    /**
+     * sq 上棋子按走法规则能到达的格子（不含己方棋子，炮包括平移）
+     * 只是伪合法走法，没有检查走后是否送将或将帅对面
+     */
+    public void moveTargets(int sq, Bitboard out) {
+        int piece = squares[sq];
+        int color = Piece.color(piece);
+        attacks(sq, out);
+        if (Piece.type(piece) == Piece.CANNON) {
+            out.and(colorLo[color ^ 1], colorHi[color ^ 1]);
+            int row = Square.row(sq);
+            int col = Square.col(sq);
+            int rank = Attacks.RANK_ROOK[col][rankOcc[row]] & ~rankOcc[row];
+            int file = Attacks.FILE_ROOK[row][fileOcc[col]] & ~fileOcc[col];
+            out.or(Bitboard.rankLo(row, rank) | Attacks.FILE_LO[col][file],
+                    Bitboard.rankHi(row, rank) | Attacks.FILE_HI[col][file]);
+        } else {
+            out.andNot(colorLo[color], colorHi[color]);
+        }
+    }
+
+    /**
+     * 所有 byColor 方能吃到 sq 的棋子所在格子
+     * 按"sq 上站着一个对方棋子"来算：sq 为空时，炮的结果是假设该格有子时能打到它的炮
+     */
+    public void attackersTo(int sq, int byColor, Bitboard out) {
+        int row = Square.row(sq);
+        int col = Square.col(sq);
+        long lo;
+        long hi;
+
+        // 车
+        int rank = Attacks.RANK_ROOK[col][rankOcc[row]];
+        int file = Attacks.FILE_ROOK[row][fileOcc[col]];
+        int chariot = Piece.make(byColor, Piece.CHARIOT);
+        lo = (Bitboard.rankLo(row, rank) | Attacks.FILE_LO[col][file]) & pieceLo[chariot];
+        hi = (Bitboard.rankHi(row, rank) | Attacks.FILE_HI[col][file]) & pieceHi[chariot];
+
+        // 炮
+        rank = Attacks.RANK_CANNON[col][rankOcc[row]];
+        file = Attacks.FILE_CANNON[row][fileOcc[col]];
+        int cannon = Piece.make(byColor, Piece.CANNON);
+        lo |= (Bitboard.rankLo(row, rank) | Attacks.FILE_LO[col][file]) & pieceLo[cannon];
+        hi |= (Bitboard.rankHi(row, rank) | Attacks.FILE_HI[col][file]) & pieceHi[cannon];
+
+        // 马（反查马腿）
+        int horse = Piece.make(byColor, Piece.HORSE);
+        int diag = diagBlockMask(sq);
+        lo |= Attacks.HORSE_ATTACKER_LO[sq][diag] & pieceLo[horse];
+        hi |= Attacks.HORSE_ATTACKER_HI[sq][diag] & pieceHi[horse];
+
+        // 兵
+        int soldier = Piece.make(byColor, Piece.SOLDIER);
+        lo |= Attacks.SOLDIER_ATTACKER_LO[byColor][sq] & pieceLo[soldier];
+        hi |= Attacks.SOLDIER_ATTACKER_HI[byColor][sq] & pieceHi[soldier];
+
+        // 相、仕、帅的走法是对称的，直接用 sq 出发的表
+        int elephant = Piece.make(byColor, Piece.ELEPHANT);
+        lo |= Attacks.ELEPHANT_LO[byColor][sq][diag] & pieceLo[elephant];
+        hi |= Attacks.ELEPHANT_HI[byColor][sq][diag] & pieceHi[elephant];
+        int advisor = Piece.make(byColor, Piece.ADVISOR);
+        lo |= Attacks.ADVISOR_LO[byColor][sq] & pieceLo[advisor];
+        hi |= Attacks.ADVISOR_HI[byColor][sq] & pieceHi[advisor];
+        int general = Piece.make(byColor, Piece.GENERAL);
+        lo |= Attacks.GENERAL_LO[byColor][sq] & pieceLo[general];
+        hi |= Attacks.GENERAL_HI[byColor][sq] & pieceHi[general];
+
+        out.set(lo, hi);
+    }
+
+    public boolean isAttacked(int sq, int byColor) {
+        int row = Square.row(sq);
+        int col = Square.col(sq);
+
+        int rank = Attacks.RANK_ROOK[col][rankOcc[row]];
+        int file = Attacks.FILE_ROOK[row][fileOcc[col]];
+        int chariot = Piece.make(byColor, Piece.CHARIOT);
+        if (((Bitboard.rankLo(row, rank) | Attacks.FILE_LO[col][file]) & pieceLo[chariot]) != 0
+                || ((Bitboard.rankHi(row, rank) | Attacks.FILE_HI[col][file]) & pieceHi[chariot]) != 0) {
+            return true;
+        }
+
+        rank = Attacks.RANK_CANNON[col][rankOcc[row]];
+        file = Attacks.FILE_CANNON[row][fileOcc[col]];
+        int cannon = Piece.make(byColor, Piece.CANNON);
+        if (((Bitboard.rankLo(row, rank) | Attacks.FILE_LO[col][file]) & pieceLo[cannon]) != 0
+                || ((Bitboard.rankHi(row, rank) | Attacks.FILE_HI[col][file]) & pieceHi[cannon]) != 0) {
+            return true;
+        }
+
+        int diag = diagBlockMask(sq);
+        int horse = Piece.make(byColor, Piece.HORSE);
+        if ((Attacks.HORSE_ATTACKER_LO[sq][diag] & pieceLo[horse]) != 0
+                || (Attacks.HORSE_ATTACKER_HI[sq][diag] & pieceHi[horse]) != 0) {
+            return true;
+        }
+
+        int soldier = Piece.make(byColor, Piece.SOLDIER);
+        if ((Attacks.SOLDIER_ATTACKER_LO[byColor][sq] & pieceLo[soldier]) != 0
+                || (Attacks.SOLDIER_ATTACKER_HI[byColor][sq] & pieceHi[soldier]) != 0) {
+            return true;
+        }
+
+        int elephant = Piece.make(byColor, Piece.ELEPHANT);
+        int advisor = Piece.make(byColor, Piece.ADVISOR);
+        int general = Piece.make(byColor, Piece.GENERAL);
+        return (Attacks.ELEPHANT_LO[byColor][sq][diag] & pieceLo[elephant]) != 0
+                || (Attacks.ELEPHANT_HI[byColor][sq][diag] & pieceHi[elephant]) != 0
+                || (Attacks.ADVISOR_LO[byColor][sq] & pieceLo[advisor]) != 0
+                || (Attacks.ADVISOR_HI[byColor][sq] & pieceHi[advisor]) != 0
+                || (Attacks.GENERAL_LO[byColor][sq] & pieceLo[general]) != 0
+                || (Attacks.GENERAL_HI[byColor][sq] & pieceHi[general]) != 0;
+    }
+
+    /**
+     * 两个将帅是否在同一列上直接对面
+     */
+    public boolean generalsFacing() {
+        int red = kingSquare[Piece.RED];
+        int black = kingSquare[Piece.BLACK];
+        if (red == Square.NONE || black == Square.NONE) return false;
+        int col = Square.col(red);
+        if (col != Square.col(black)) return false;
+        // 黑将往下看的第一个子就是红帅
+        int between = Attacks.FILE_ROOK[Square.row(black)][fileOcc[col]];
+        return (between & (1 << Square.row(red))) != 0;
+    }
+
+    /**
+     * color 方是否处于被将军（或将帅对面）的状态
+     * 从将帅所在格往外查，只看能进九宫的车、炮、马、兵；对面的将帅按车处理（同列之间无子即"飞将"）
+     */
+    public boolean inCheck(int color) {
+        int king = kingSquare[color];
+        if (king == Square.NONE) return false;
+        int by = color ^ 1;
+        int row = Square.row(king);
+        int col = Square.col(king);
+
+        // 车、将帅对面：沿行列的第一个子
+        int rank = Attacks.RANK_ROOK[col][rankOcc[row]];
+        int file = Attacks.FILE_ROOK[row][fileOcc[col]];
+        int chariot = Piece.make(by, Piece.CHARIOT);
+        int general = Piece.make(by, Piece.GENERAL);
+        if (((Bitboard.rankLo(row, rank) | Attacks.FILE_LO[col][file]) & (pieceLo[chariot] | pieceLo[general])) != 0
+                || ((Bitboard.rankHi(row, rank) | Attacks.FILE_HI[col][file]) & (pieceHi[chariot] | pieceHi[general])) != 0) {
+            return true;
+        }
+
+        // 炮：隔一个炮架
+        rank = Attacks.RANK_CANNON[col][rankOcc[row]];
+        file = Attacks.FILE_CANNON[row][fileOcc[col]];
+        int cannon = Piece.make(by, Piece.CANNON);
+        if (((Bitboard.rankLo(row, rank) | Attacks.FILE_LO[col][file]) & pieceLo[cannon]) != 0
+                || ((Bitboard.rankHi(row, rank) | Attacks.FILE_HI[col][file]) & pieceHi[cannon]) != 0) {
+            return true;
+        }
+
+        // 马：马腿在马和将帅之间的斜角上，所以按将帅周围的斜角占用反查
+        int diag = diagBlockMask(king);
+        int horse = Piece.make(by, Piece.HORSE);
+        if ((Attacks.HORSE_ATTACKER_LO[king][diag] & pieceLo[horse]) != 0
+                || (Attacks.HORSE_ATTACKER_HI[king][diag] & pieceHi[horse]) != 0) {
+            return true;
+        }
+
+        // 兵：相邻格
+        int soldier = Piece.make(by, Piece.SOLDIER);
+        return (Attacks.SOLDIER_ATTACKER_LO[by][king] & pieceLo[soldier]) != 0
+                || (Attacks.SOLDIER_ATTACKER_HI[by][king] & pieceHi[soldier]) != 0;
+    }
+
+    /**
+     * 正在将 color 方的棋子所在格子写进 out（将帅对面时包括对方将帅），返回将军的子数
+     */
+    public int checkers(int color, Bitboard out) {
+        int king = kingSquare[color];
+        if (king == Square.NONE) {
+            out.clear();
+            return 0;
+        }
+        int by = color ^ 1;
+        int row = Square.row(king);
+        int col = Square.col(king);
+
+        int rank = Attacks.RANK_ROOK[col][rankOcc[row]];
+        int file = Attacks.FILE_ROOK[row][fileOcc[col]];
+        int chariot = Piece.make(by, Piece.CHARIOT);
+        int general = Piece.make(by, Piece.GENERAL);
+        long lo = (Bitboard.rankLo(row, rank) | Attacks.FILE_LO[col][file]) & (pieceLo[chariot] | pieceLo[general]);
+        long hi = (Bitboard.rankHi(row, rank) | Attacks.FILE_HI[col][file]) & (pieceHi[chariot] | pieceHi[general]);
+
+        rank = Attacks.RANK_CANNON[col][rankOcc[row]];
+        file = Attacks.FILE_CANNON[row][fileOcc[col]];
+        int cannon = Piece.make(by, Piece.CANNON);
+        lo |= (Bitboard.rankLo(row, rank) | Attacks.FILE_LO[col][file]) & pieceLo[cannon];
+        hi |= (Bitboard.rankHi(row, rank) | Attacks.FILE_HI[col][file]) & pieceHi[cannon];
+
+        int diag = diagBlockMask(king);
+        int horse = Piece.make(by, Piece.HORSE);
+        lo |= Attacks.HORSE_ATTACKER_LO[king][diag] & pieceLo[horse];
+        hi |= Attacks.HORSE_ATTACKER_HI[king][diag] & pieceHi[horse];
+
+        int soldier = Piece.make(by, Piece.SOLDIER);
+        lo |= Attacks.SOLDIER_ATTACKER_LO[by][king] & pieceLo[soldier];
+        hi |= Attacks.SOLDIER_ATTACKER_HI[by][king] & pieceHi[soldier];
+
+        out.set(lo, hi);
+        return Long.bitCount(lo) + Long.bitCount(hi);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int row = 0; row < Square.ROWS; row++) {
+            for (int col = 0; col < Square.COLS; col++) {
+                int piece = squares[Square.of(row, col)];
+                sb.append(piece == Piece.EMPTY ? "．" : Piece.name(piece));
+            }
+            sb.append('\n');
+        }
+        sb.append(sideToMove == Piece.RED ? "红方走" : "黑方走");
+        return sb.toString();
+    }
+}
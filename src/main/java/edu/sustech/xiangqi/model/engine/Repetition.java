@@ -0,0 +1,147 @@
+package edu.sustech.xiangqi.model.engine;
+
+/**
+ * 重复局面的裁决（亚洲规则的简化版）：在从上一次出现到现在的这一圈走法里
+ * 一方每步都在将军而另一方不是，将军的一方（长将）判负；双方都长将判和；
+ * 都不是长将时，一方每步都在将军或捉子而另一方不是，捉子的一方（长捉）判负；其余判和
+ * 捉子：走完后走动的棋子新攻击到对方一个没有保护的棋子，或者价值比自己高的棋子（将帅、没过河的兵卒不算被捉，
+ * 将帅和兵卒去捉子不算，对方也能吃回来的等值兑子不算）；不看闪击和牵制
+ * 每步的将军、捉子标志只看这一步前后走动棋子的攻击范围之差，算过一次就缓存在 Position 的走子栈里，
+ * 所以同一圈走法反复裁决（搜索里很常见）不会重复计算
+ * 实例里有临时位棋盘，一个实例只能在一个线程上用
+ */
+public final class Repetition {
+    /** 没有重复 */
+    public static final int NONE = 0;
+    public static final int DRAW = 1;
+    /** 走棋方胜：对方长将 */
+    public static final int WIN_CHECK = 2;
+    /** 走棋方胜：对方长捉 */
+    public static final int WIN_CHASE = 3;
+    /** 走棋方负：自己长将 */
+    public static final int LOSS_CHECK = 4;
+    /** 走棋方负：自己长捉 */
+    public static final int LOSS_CHASE = 5;
+
+    static final int FLAG_KNOWN = 1;
+    static final int FLAG_CHECK = 2;
+    static final int FLAG_CHASE = 4;
+
+    private final Bitboard before = new Bitboard();
+    private final Bitboard after = new Bitboard();
+    private final Bitboard back = new Bitboard();
+    private int[] cycle = new int[64];
+    private int[] cycleFlags = new int[64];
+
+    public static boolean isWin(int result) {
+        return result == WIN_CHECK || result == WIN_CHASE;
+    }
+
+    public static boolean isLoss(int result) {
+        return result == LOSS_CHECK || result == LOSS_CHASE;
+    }
+
+    /**
+     * 当前局面如果和之前的局面重复，按这一圈走法裁决，否则返回 NONE
+     */
+    public int adjudicate(Position position) {
+        int distance = position.repetitionDistance();
+        return distance == 0 ? NONE : adjudicate(position, distance);
+    }
+
+    /**
+     * 按最近 distance 步（position.repetitionDistance() 的结果）裁决
+     */
+    public int adjudicate(Position position, int distance) {
+        computeFlags(position, distance);
+        // n 为奇数的是对方的走法，偶数的是走棋方自己的
+        boolean opponentChecks = true;
+        boolean ownChecks = true;
+        boolean opponentChases = true;
+        boolean ownChases = true;
+        for (int n = 1; n <= distance; n++) {
+            int flags = position.moveFlags(n);
+            boolean check = (flags & FLAG_CHECK) != 0;
+            boolean attack = (flags & (FLAG_CHECK | FLAG_CHASE)) != 0;
+            if ((n & 1) != 0) {
+                opponentChecks &= check;
+                opponentChases &= attack;
+            } else {
+                ownChecks &= check;
+                ownChases &= attack;
+            }
+        }
+        if (opponentChecks != ownChecks) return opponentChecks ? WIN_CHECK : LOSS_CHECK;
+        if (opponentChecks) return DRAW;
+        if (opponentChases != ownChases) return opponentChases ? WIN_CHASE : LOSS_CHASE;
+        return DRAW;
+    }
+
+    /**
+     * 补算最近 distance 步里还没算过的标志：先退回去，再一步步走回来，每步比较走前走后的攻击范围
+     */
+    private void computeFlags(Position position, int distance) {
+        int first = 0;
+        for (int n = distance; n >= 1; n--) {
+            if (position.moveFlags(n) == 0) {
+                first = n;
+                break;
+            }
+        }
+        if (first == 0) return;
+
+        if (cycle.length < first) {
+            cycle = new int[Math.max(first, cycle.length * 2)];
+            cycleFlags = new int[cycle.length];
+        }
+        for (int n = 1; n <= first; n++) {
+            cycle[n - 1] = position.lastMove(1);
+            cycleFlags[n - 1] = position.moveFlags(1);
+            position.unmakeMove(cycle[n - 1]);
+        }
+        // 重新走一遍会清掉栈里的标志，已经算过的直接放回去
+        for (int n = first; n >= 1; n--) {
+            int move = cycle[n - 1];
+            if (cycleFlags[n - 1] != 0) {
+                position.makeMove(move);
+                position.setMoveFlags(1, cycleFlags[n - 1]);
+                continue;
+            }
+            position.attacks(Move.from(move), before);
+            position.makeMove(move);
+            position.setMoveFlags(1, flags(position, move));
+        }
+    }
+
+    /**
+     * 刚走完的 move 的标志，before 是走之前它在 from 上的攻击范围
+     */
+    private int flags(Position position, int move) {
+        int mover = Move.piece(move);
+        int color = Piece.color(mover);
+        int opponent = color ^ 1;
+        int flags = FLAG_KNOWN;
+        if (position.inCheck(opponent)) flags |= FLAG_CHECK;
+
+        int type = Piece.type(mover);
+        if (type == Piece.GENERAL || type == Piece.SOLDIER) return flags;
+        int to = Move.to(move);
+        position.attacks(to, after);
+        after.andNot(before.lo, before.hi);
+        after.and(position.colorLo(opponent), position.colorHi(opponent));
+        for (int target = after.poll(); target != Square.NONE; target = after.poll()) {
+            int victim = position.pieceAt(target);
+            int victimType = Piece.type(victim);
+            if (victimType == Piece.GENERAL) continue;
+            if (victimType == Piece.SOLDIER && Square.isOwnSide(Square.row(target), opponent)) continue;
+            int gain = Piece.VALUE[victimType] - Piece.VALUE[type];
+            if (gain > 0) return flags | FLAG_CHASE;
+            if (position.isAttacked(target, opponent)) continue;
+            // 对方也能吃回来的等值棋子是兑子，不是捉
+            position.attacks(target, back);
+            if (gain == 0 && back.contains(to)) continue;
+            return flags | FLAG_CHASE;
+        }
+        return flags;
+    }
+}
@@ -0,0 +1,586 @@
+package edu.sustech.xiangqi.model.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 搜索引擎：迭代加深的 PVS（主要变例搜索）alpha-beta
+ * 根节点用渴望窗口，被将军的节点延伸一层，叶子接吃子的静态搜索；每一轮的主要变例保存在三角形 PV 表里，下一轮优先走
+ * 零窗口节点上做空着裁剪、反向 futility、futility、razoring，靠后的不吃子走法减少深度（LMR），各项可以用 SearchOptions 关掉
+ * 搜过的局面记在置换表里，多个 Search 可以共用一张表（见 ParallelSearch）；走法由 MovePicker 分阶段给出，
+ * 排序用的杀手走法、反击走法和历史表（MoveHistory）是每个实例自己的
+ * 和之前重复的局面按长将、长捉规则（Repetition）给分，其余算和
+ * 设置了残局库（Tablebases）时，子力在库里的非根节点直接返回库里的胜负和步数
+ * 用时由 TimeManager 按每一轮的结果决定：走法稳定就早停，分数下跌就多想
+ * 后台思考（SearchLimits.withPonder）时一直加深，ponderHit 之后才开始计时，已经想过的时间算在这一步里
+ * 一个实例同一时间只跑一个搜索，内部数组都预先分配好；stop() 可以从别的线程调用
+ */
+public class Search {
+    public static final int MAX_DEPTH = 64;
+    public static final int MAX_PLY = 128;
+    public static final int INFINITY = 32000;
+    /** 在 ply 层被将死的分数是 -(MATE - ply) */
+    public static final int MATE = 30000;
+    /** 绝对值超过它就是杀棋分 */
+    public static final int MATE_BOUND = MATE - MAX_PLY;
+    // 对方长将、长捉（重复局面判对方负）的分数，比任何估值都高、但不算杀棋，减去 ply 让近的排前面
+    private static final int PERPETUAL_WIN = MATE_BOUND - 1;
+
+    private static final int ASPIRATION_WINDOW = 50;
+    private static final int ASPIRATION_MIN_DEPTH = 4;
+    // 静态搜索的 delta 剪枝余量：吃到的子加上它还不够 alpha 就不吃
+    private static final int DELTA_MARGIN = 200;
+    // 空着裁剪：至少这么深才做；己方车马炮少于 NULL_SAFE_ATTACKERS 个或深度达到 NULL_VERIFY_DEPTH 时要验证
+    private static final int NULL_MIN_DEPTH = 3;
+    private static final int NULL_SAFE_ATTACKERS = 2;
+    private static final int NULL_VERIFY_DEPTH = 8;
+    // 反向 futility：深度不超过 RFP_MAX_DEPTH 时，每层的余量
+    private static final int RFP_MAX_DEPTH = 6;
+    private static final int RFP_MARGIN = 80;
+    // futility 和 razoring 的余量（按剩余深度 1~3）
+    private static final int[] FUTILITY_MARGIN = {0, 150, 300, 450};
+    private static final int[] RAZOR_MARGIN = {0, 300, 450, 600};
+    // LMR 减少的层数：[深度][第几步合法走法]
+    private static final int[][] LMR = new int[MAX_DEPTH][MoveGenerator.MAX_MOVES];
+    // 每搜这么多个节点检查一次时间和停止标志
+    private static final int CHECK_INTERVAL = 1023;
+
+    static {
+        for (int depth = 1; depth < MAX_DEPTH; depth++) {
+            for (int count = 1; count < MoveGenerator.MAX_MOVES; count++) {
+                LMR[depth][count] = (int) (0.75 + Math.log(depth) * Math.log(count) / 2.25);
+            }
+        }
+    }
+
+    private final TranspositionTable tt;
+    private final Position position = new Position();
+    private final MoveGenerator generator = new MoveGenerator();
+    private final Evaluator evaluator = new Evaluator();
+    private final See see = new See();
+    private final Repetition repetition = new Repetition();
+    private final MoveHistory history = new MoveHistory();
+    private final TimeManager timeManager = new TimeManager();
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY + 1];
+    // 每层已经试过、没引起截断的不吃子走法，截断时给它们扣历史分
+    private final int[][] quietsTried = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+    private final int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+
+    // 三角形 PV 表：pvTable[ply] 存从 ply 开始的主要变例
+    private final int[][] pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    // 上一轮的主要变例，本轮沿着它先搜
+    private final int[] previousPv = new int[MAX_PLY + 1];
+    private int previousPvLength;
+    private boolean followPv;
+
+    // 并行搜索的辅助线程编号，0 是主线程
+    private int helperId;
+
+    private volatile boolean stopRequested;
+    private boolean stopped;
+    private boolean canStop;
+    private long nodes;
+    // 走法排序的效果：beta 截断次数，以及其中第一步就截断的次数
+    private long cutoffs;
+    private long firstMoveCutoffs;
+    // 置换表查询和命中次数，每个线程各记各的，不共享
+    private long ttProbes;
+    private long ttHits;
+    private long nodeLimit;
+    private long deadline;
+    private long startTime;
+    private SearchLimits limits;
+    // 本次搜索是否是后台思考且还没处理 ponderHit
+    private boolean pondering;
+
+    private Consumer<SearchResult> iterationListener;
+
+    private SearchOptions options = SearchOptions.defaults();
+    private Tablebases tablebases;
+    private int tablebasePieces;
+    private long tablebaseHits;
+    // 每次搜索开始时从 options 读出来，搜索中不再变
+    private boolean useNullMove;
+    private boolean useLmr;
+    private boolean useReverseFutility;
+    private boolean useFutility;
+    private boolean useRazoring;
+    // 空着验证搜索期间不再做空着
+    private boolean verifyingNullMove;
+
+    public Search() {
+        this(new TranspositionTable());
+    }
+
+    public Search(TranspositionTable tt) {
+        this.tt = tt;
+        for (int i = 0; i < pickers.length; i++) {
+            pickers[i] = new MovePicker(generator, history, see);
+        }
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return tt;
+    }
+
+    /**
+     * 设为并行搜索的辅助线程：隔轮跳过一些深度，让各线程错开，结果只用来填充置换表
+     */
+    void setHelperId(int helperId) {
+        this.helperId = helperId;
+    }
+
+    /**
+     * 本次搜索中第一步走法就引起 beta 截断的比例，越接近 1 说明走法排序越好
+     */
+    public double getFirstMoveCutoffRate() {
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    /**
+     * 本次搜索中查置换表的次数
+     */
+    public long getTtProbes() {
+        return ttProbes;
+    }
+
+    /**
+     * 本次搜索中置换表命中的次数
+     */
+    public long getTtHits() {
+        return ttHits;
+    }
+
+    /**
+     * 当前搜索已经搜过的节点数，可以从别的线程读（读到的值可能略旧）
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * 设置选择性搜索的开关，下一次搜索开始时生效
+     */
+    public void setOptions(SearchOptions options) {
+        this.options = options;
+    }
+
+    public SearchOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * 设置残局库（可以为 null），子力在库里的非根节点直接用库里的结果，下一次搜索开始时生效
+     */
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    public Tablebases getTablebases() {
+        return tablebases;
+    }
+
+    /**
+     * 本次搜索中残局库命中的次数
+     */
+    public long getTablebaseHits() {
+        return tablebaseHits;
+    }
+
+    /**
+     * 每搜完一轮回调一次（在搜索线程上调用，回调里不要做耗时的事）
+     */
+    public void setIterationListener(Consumer<SearchResult> listener) {
+        this.iterationListener = listener;
+    }
+
+    /**
+     * 请求停止正在进行的搜索，search 会尽快返回已完成的最深一轮的结果
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * 搜索 root 局面走子方的最佳走法，root 本身不会被修改
+     */
+    public SearchResult search(Position root, SearchLimits limits) {
+        stopRequested = false;
+        return run(root, limits);
+    }
+
+    /**
+     * 复位停止标志；并行搜索在提交辅助线程之前调用，这样提交之后的 stop() 不会被 run 覆盖
+     */
+    void clearStop() {
+        stopRequested = false;
+    }
+
+    /**
+     * 同 search，但不复位停止标志
+     */
+    SearchResult run(Position root, SearchLimits limits) {
+        position.copyFrom(root);
+        startTime = System.nanoTime();
+        this.limits = limits;
+        timeManager.start(limits, root);
+        pondering = limits.isPondering();
+        deadline = pondering ? Long.MAX_VALUE : deadlineFrom(startTime);
+        nodeLimit = limits.getNodes() > 0 ? limits.getNodes() : Long.MAX_VALUE;
+        nodes = 0;
+        stopped = false;
+        canStop = false;
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+        ttProbes = 0;
+        ttHits = 0;
+        useNullMove = options.isNullMove();
+        useLmr = options.isLateMoveReductions();
+        useReverseFutility = options.isReverseFutility();
+        useFutility = options.isFutility();
+        useRazoring = options.isRazoring();
+        tablebasePieces = tablebases != null ? tablebases.maxPieces() : 0;
+        tablebaseHits = 0;
+        verifyingNullMove = false;
+        previousPvLength = 0;
+        history.newSearch();
+        if (helperId == 0) tt.newSearch();
+
+        // 兜底：至少给出一步合法走法
+        int rootCount = generator.generateLegal(position, position.sideToMove(), rootMoves, 0);
+        if (rootCount == 0) {
+            return new SearchResult(Move.NONE, -MATE, 0, new int[0], 0, 0);
+        }
+        SearchResult result = new SearchResult(rootMoves[0], 0, 0, new int[]{rootMoves[0]}, 0, 0);
+
+        int score = 0;
+        for (int depth = 1; depth <= limits.getDepth(); depth++) {
+            // 辅助线程：编号为奇数的跳过偶数层，偶数的跳过奇数层
+            if (helperId > 0 && depth > 1 && ((depth + helperId) & 1) == 0) continue;
+            int delta = ASPIRATION_WINDOW;
+            int alpha = -INFINITY;
+            int beta = INFINITY;
+            if (depth >= ASPIRATION_MIN_DEPTH) {
+                alpha = Math.max(score - delta, -INFINITY);
+                beta = Math.min(score + delta, INFINITY);
+            }
+
+            while (true) {
+                followPv = true;
+                int value = search(depth, alpha, beta, 0);
+                if (stopped) break;
+                if (value <= alpha) {
+                    alpha = Math.max(value - delta, -INFINITY);
+                } else if (value >= beta) {
+                    beta = Math.min(value + delta, INFINITY);
+                } else {
+                    score = value;
+                    break;
+                }
+                delta *= 2;
+            }
+            // 这一轮没搜完就用上一轮的结果
+            if (stopped) break;
+            canStop = true;
+
+            previousPvLength = pvLength[0];
+            System.arraycopy(pvTable[0], 0, previousPv, 0, previousPvLength);
+            result = new SearchResult(previousPv[0], score, depth,
+                    Arrays.copyOf(previousPv, previousPvLength), nodes, elapsedMillis());
+            if (iterationListener != null) {
+                iterationListener.accept(result);
+            }
+
+            // 已经找到不超过当前深度的杀棋，再搜也不会变
+            if (Math.abs(score) >= MATE_BOUND && MATE - Math.abs(score) <= depth) break;
+            boolean enough = timeManager.iterationDone(depth, result.getBestMove(), score, elapsedMillis());
+            // 后台思考时时间是对方的，能多想就多想
+            if (enough && !ponderActive()) break;
+            if (stopRequested || limits.isStopped() || (nodes >= nodeLimit && !ponderActive())) break;
+        }
+        // 搜满了深度或者找到了杀棋，还在后台思考就等对方走完
+        while (limits.isPondering() && !stopRequested && !limits.isStopped()) {
+            LockSupport.parkNanos(1_000_000L);
+        }
+        return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(), result.getPv(),
+                nodes, elapsedMillis());
+    }
+
+    private long elapsedMillis() {
+        return (System.nanoTime() - startTime) / 1_000_000L;
+    }
+
+    private long deadlineFrom(long clockStart) {
+        return timeManager.hardMillis() != Long.MAX_VALUE
+                ? clockStart + timeManager.hardMillis() * 1_000_000L
+                : Long.MAX_VALUE;
+    }
+
+    /**
+     * 还在后台思考时返回 true；刚收到 ponderHit 时从那一刻开始算硬限制，已经想得够久就立即停
+     */
+    private boolean ponderActive() {
+        if (!pondering) return false;
+        if (limits.isPondering()) return true;
+        pondering = false;
+        deadline = deadlineFrom(limits.getPonderHitNanos());
+        if (canStop && elapsedMillis() >= timeManager.softMillis()) stopped = true;
+        return false;
+    }
+
+    private void checkLimits() {
+        if (stopRequested || limits.isStopped()) {
+            stopped = true;
+        } else if (canStop && !ponderActive() && (nodes >= nodeLimit || System.nanoTime() >= deadline)) {
+            stopped = true;
+        }
+    }
+
+    private int search(int depth, int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        int side = position.sideToMove();
+        boolean inCheck = position.inCheck(side);
+        if (inCheck) {
+            depth++; // 将军延伸
+        }
+        if (ply >= MAX_PLY) return evaluate();
+        if (depth <= 0) return quiesce(alpha, beta, ply);
+
+        if ((++nodes & CHECK_INTERVAL) == 0) checkLimits();
+        if (stopped) return 0;
+
+        // 重复局面：按长将、长捉裁决，其余判和；只有计数表说可能重复时才往回查
+        if (ply > 0 && position.repetitionDistance() > 0) return repetitionScore(ply);
+
+        // 双方都只剩将帅士象：死局
+        if (ply > 0 && Material.isInsufficient(position.materialKey())) return 0;
+
+        // 残局库：棋子够少时先数一下棋子，子力在库里就直接返回（库里的步数从这一层算起）
+        if (ply > 0 && tablebasePieces > 0
+                && Long.bitCount(position.occupiedLo()) + Long.bitCount(position.occupiedHi()) <= tablebasePieces) {
+            int score = tablebases.probe(position);
+            if (score != Tablebases.UNKNOWN) {
+                tablebaseHits++;
+                return score > 0 ? score - ply : score < 0 ? score + ply : 0;
+            }
+        }
+
+        int pvMove = Move.NONE;
+        if (followPv) {
+            followPv = false;
+            if (ply < previousPvLength) pvMove = previousPv[ply];
+        }
+
+        // 置换表：零窗口节点上深度够的结果可以直接用；表里的走法最先搜（沿上一轮主要变例时换成主要变例的走法）
+        boolean pvNode = beta - alpha > 1;
+        long key = position.key();
+        long entry = tt.probe(key);
+        ttProbes++;
+        int hashMove = Move.NONE;
+        if (entry != 0) {
+            ttHits++;
+            hashMove = TranspositionTable.move(entry);
+            if (!pvNode && ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = TranspositionTable.score(entry, ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        // 零窗口节点上的前向剪枝，都要用到静态分
+        int staticEval = -INFINITY;
+        if (!pvNode && !inCheck && ply > 0) {
+            staticEval = evaluate();
+
+            if (useReverseFutility && depth <= RFP_MAX_DEPTH && Math.abs(beta) < MATE_BOUND
+                    && staticEval - RFP_MARGIN * depth >= beta) {
+                return staticEval;
+            }
+
+            if (useRazoring && depth < RAZOR_MARGIN.length && staticEval + RAZOR_MARGIN[depth] < alpha) {
+                int score = quiesce(alpha, beta, ply);
+                if (score < alpha) return score;
+            }
+
+            if (useNullMove && !verifyingNullMove && depth >= NULL_MIN_DEPTH && staticEval >= beta
+                    && Math.abs(beta) < MATE_BOUND && position.lastMove(1) != Move.NONE) {
+                int attackers = Material.majorPieces(position.materialKey(), side);
+                // 没有车马炮时很容易"谁走谁亏"，空着的前提不成立
+                if (attackers > 0) {
+                    int r = 2 + depth / 4 + Math.min(2, (staticEval - beta) / 200);
+                    position.makeNullMove();
+                    int score = -search(depth - 1 - r, -beta, -beta + 1, ply + 1);
+                    position.unmakeNullMove();
+                    if (stopped) return 0;
+                    if (score >= beta) {
+                        if (score >= MATE_BOUND) score = beta;
+                        if (attackers >= NULL_SAFE_ATTACKERS && depth < NULL_VERIFY_DEPTH) return score;
+                        // 子少或者很深时，关掉空着再正常搜一遍确认
+                        verifyingNullMove = true;
+                        int verified = search(depth - 1 - r, beta - 1, beta, ply);
+                        verifyingNullMove = false;
+                        if (stopped) return 0;
+                        if (verified >= beta) return score;
+                    }
+                }
+            }
+        }
+        boolean futilityPruning = useFutility && !pvNode && !inCheck && depth < FUTILITY_MARGIN.length
+                && Math.abs(alpha) < MATE_BOUND && staticEval + FUTILITY_MARGIN[depth] <= alpha;
+
+        MovePicker picker = pickers[ply];
+        picker.init(position, ply, pvMove != Move.NONE ? pvMove : hashMove);
+        int[] tried = quietsTried[ply];
+        int triedCount = 0;
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        int legal = 0;
+        for (int move = picker.next(); move != Move.NONE; move = picker.next()) {
+            position.makeMove(move);
+            if (position.inCheck(side)) {
+                position.unmakeMove(move);
+                continue;
+            }
+            legal++;
+            boolean quiet = !Move.isCapture(move);
+            boolean givesCheck = position.inCheck(side ^ 1);
+
+            // futility：静态分加上余量都够不到 alpha，不吃子也不将军的走法不会有用
+            if (futilityPruning && legal > 1 && quiet && !givesCheck) {
+                position.unmakeMove(move);
+                best = Math.max(best, staticEval + FUTILITY_MARGIN[depth]);
+                continue;
+            }
+            followPv = move == pvMove;
+
+            int score;
+            if (legal == 1) {
+                score = -search(depth - 1, -beta, -alpha, ply + 1);
+            } else {
+                int reduction = 0;
+                if (useLmr && depth >= 3 && quiet && !inCheck && !givesCheck && legal > (pvNode ? 3 : 2)
+                        && move != history.killer(ply, 0) && move != history.killer(ply, 1)) {
+                    reduction = LMR[Math.min(depth, MAX_DEPTH - 1)][Math.min(legal, MoveGenerator.MAX_MOVES - 1)];
+                    if (pvNode) reduction--;
+                    reduction = Math.max(0, Math.min(reduction, depth - 2));
+                }
+                // 先用零窗口（可能减了深度）证明它不比当前最好的走法好，证明失败再按原深度、全窗口重搜
+                score = -search(depth - 1 - reduction, -alpha - 1, -alpha, ply + 1);
+                if (reduction > 0 && score > alpha) {
+                    score = -search(depth - 1, -alpha - 1, -alpha, ply + 1);
+                }
+                if (score > alpha && score < beta) {
+                    score = -search(depth - 1, -beta, -alpha, ply + 1);
+                }
+            }
+            position.unmakeMove(move);
+            followPv = false;
+            if (stopped) return 0;
+
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = move;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        cutoffs++;
+                        if (legal == 1) firstMoveCutoffs++;
+                        if (!Move.isCapture(move)) {
+                            history.updateQuietCutoff(side, ply, move, position.lastMove(1), depth, tried, triedCount);
+                        }
+                        break;
+                    }
+                }
+            }
+            if (!Move.isCapture(move)) tried[triedCount++] = move;
+        }
+
+        // 将死和困毙在象棋里都算输
+        if (legal == 0) return -MATE + ply;
+
+        int bound = best >= beta ? TranspositionTable.BOUND_LOWER
+                : best > originalAlpha ? TranspositionTable.BOUND_EXACT
+                : TranspositionTable.BOUND_UPPER;
+        tt.store(key, bestMove, best, depth, bound, ply);
+        return best;
+    }
+
+    /**
+     * 重复局面的分数（单独成方法，不让很少走到的裁决代码占用 search 的内联预算）
+     */
+    private int repetitionScore(int ply) {
+        int result = repetition.adjudicate(position);
+        return Repetition.isWin(result) ? PERPETUAL_WIN - ply
+                : Repetition.isLoss(result) ? -PERPETUAL_WIN + ply : 0;
+    }
+
+    /**
+     * 静态搜索：只搜 SEE 不亏的吃子（被将军时搜全部应将），避免在交换进行到一半时估值
+     * delta 剪枝：吃到的子力加上余量仍够不到 alpha 的吃子不搜
+     */
+    private int quiesce(int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        if ((++nodes & CHECK_INTERVAL) == 0) checkLimits();
+        if (stopped) return 0;
+        if (ply >= MAX_PLY) return evaluate();
+
+        int side = position.sideToMove();
+        boolean inCheck = position.inCheck(side);
+        MovePicker picker = pickers[ply];
+        int best;
+        if (inCheck) {
+            best = -MATE + ply;
+            picker.init(position, ply, Move.NONE);
+        } else {
+            best = evaluate();
+            if (best >= beta) return best;
+            if (best > alpha) alpha = best;
+            picker.initCaptures(position);
+        }
+
+        int standPat = best;
+        for (int move = picker.next(); move != Move.NONE; move = picker.next()) {
+            if (!inCheck && standPat + Piece.VALUE[Piece.type(Move.captured(move))] + DELTA_MARGIN <= alpha) continue;
+            position.makeMove(move);
+            if (position.inCheck(side)) {
+                position.unmakeMove(move);
+                continue;
+            }
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            position.unmakeMove(move);
+            if (stopped) return 0;
+
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta) break;
+                }
+            }
+        }
+        return best;
+    }
+
+    private int evaluate() {
+        return evaluator.evaluate(position);
+    }
+
+    private void updatePv(int ply, int move) {
+        int[] row = pvTable[ply];
+        int[] next = pvTable[ply + 1];
+        row[ply] = move;
+        int length = pvLength[ply + 1];
+        System.arraycopy(next, ply + 1, row, ply + 1, length - ply - 1);
+        pvLength[ply] = Math.max(length, ply + 1);
+    }
+}
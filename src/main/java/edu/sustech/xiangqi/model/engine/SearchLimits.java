@@ -0,0 +1,161 @@
+package edu.sustech.xiangqi.model.engine;
+
+import edu.sustech.xiangqi.model.GameConfig;
+
+/**
+ * 一次搜索的限制条件：最大深度、每步用时、节点数，任意一个先到就停
+ * 0 表示不限制
+ * 也可以给出棋钟（剩余时间、加秒、赛制），由 TimeManager 自己决定这一步用多久
+ * 后台思考（ponder）时搜索不受时间、节点限制，直到 ponderHit()（猜中了，开始按上面的限制计时）或 abort()（猜错了）；
+ * stop() 让搜索提前结束并照常给出结果；这三个方法可以从别的线程调用，搜索还没开始时调用也有效
+ */
+public class SearchLimits {
+    private int depth = Search.MAX_DEPTH;
+    private long moveTimeMillis;
+    private long nodes;
+    private long remainingMillis;
+    private long incrementMillis;
+    private GameConfig.TimeControl timeControl = GameConfig.TimeControl.SUDDEN_DEATH;
+    private int movesToGo;
+    private volatile boolean pondering;
+    private volatile long ponderHitNanos;
+    private volatile boolean aborted;
+    private volatile boolean stopped;
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits().withDepth(depth);
+    }
+
+    public static SearchLimits moveTime(long millis) {
+        return new SearchLimits().withMoveTime(millis);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits().withNodes(nodes);
+    }
+
+    /**
+     * 按棋钟走：remainingMillis 是走子方剩余时间，加秒制下每走一步加 incrementMillis
+     */
+    public static SearchLimits clock(long remainingMillis, long incrementMillis, GameConfig.TimeControl timeControl) {
+        return new SearchLimits().withClock(remainingMillis, incrementMillis, timeControl);
+    }
+
+    /**
+     * 不限时间和节点，直到 Search.stop() 或搜满最大深度
+     */
+    public static SearchLimits infinite() {
+        return new SearchLimits();
+    }
+
+    public SearchLimits withDepth(int depth) {
+        this.depth = Math.max(1, Math.min(depth, Search.MAX_DEPTH));
+        return this;
+    }
+
+    public SearchLimits withMoveTime(long millis) {
+        this.moveTimeMillis = Math.max(0, millis);
+        return this;
+    }
+
+    public SearchLimits withNodes(long nodes) {
+        this.nodes = Math.max(0, nodes);
+        return this;
+    }
+
+    public SearchLimits withClock(long remainingMillis, long incrementMillis, GameConfig.TimeControl timeControl) {
+        // 剩余时间为 0 也要算"有棋钟"，按最少的用时走
+        this.remainingMillis = Math.max(1, remainingMillis);
+        this.incrementMillis = Math.max(0, incrementMillis);
+        this.timeControl = timeControl;
+        return this;
+    }
+
+    /**
+     * 距下一次加时还要走的步数，不知道时为 0（按局面估计）
+     */
+    public SearchLimits withMovesToGo(int movesToGo) {
+        this.movesToGo = Math.max(0, movesToGo);
+        return this;
+    }
+
+    /**
+     * 标记为后台思考
+     */
+    public SearchLimits withPonder() {
+        this.pondering = true;
+        return this;
+    }
+
+    /**
+     * 对方走了预想的那步：从现在开始计时，后台思考已经用掉的时间也算进这一步的用时
+     */
+    public void ponderHit() {
+        ponderHitNanos = System.nanoTime();
+        pondering = false;
+    }
+
+    /**
+     * 放弃这次搜索，搜索尽快返回（结果不应再使用）
+     */
+    public void abort() {
+        aborted = true;
+    }
+
+    /**
+     * 提前结束：搜索尽快返回已经搜完的最深一轮的结果（同 Search.stop()，但只作用于这一次搜索）
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    public boolean isPondering() {
+        return pondering;
+    }
+
+    /**
+     * ponderHit() 的时刻（System.nanoTime），没有调用过时为 0
+     */
+    public long getPonderHitNanos() {
+        return ponderHitNanos;
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * 调用过 stop() 或 abort()
+     */
+    public boolean isStopped() {
+        return stopped || aborted;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getMoveTimeMillis() {
+        return moveTimeMillis;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getRemainingMillis() {
+        return remainingMillis;
+    }
+
+    public long getIncrementMillis() {
+        return incrementMillis;
+    }
+
+    public GameConfig.TimeControl getTimeControl() {
+        return timeControl;
+    }
+
+    public int getMovesToGo() {
+        return movesToGo;
+    }
+}
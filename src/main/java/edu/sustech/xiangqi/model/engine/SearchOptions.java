@@ -0,0 +1,100 @@
+package edu.sustech.xiangqi.model.engine;
+
+/**
+ * 选择性搜索的开关，默认全部打开；逐个关掉可以用基准测试比较各项对节点数和棋力的影响
+ */
+public class SearchOptions {
+    private boolean nullMove = true;
+    private boolean lateMoveReductions = true;
+    private boolean reverseFutility = true;
+    private boolean futility = true;
+    private boolean razoring = true;
+
+    public static SearchOptions defaults() {
+        return new SearchOptions();
+    }
+
+    /**
+     * 全部关闭，只剩普通的 PVS
+     */
+    public static SearchOptions none() {
+        return new SearchOptions().withNullMove(false).withLateMoveReductions(false)
+                .withReverseFutility(false).withFutility(false).withRazoring(false);
+    }
+
+    /**
+     * 按名字开关一项：nullmove / lmr / rfp / futility / razoring，名字不认识时抛 IllegalArgumentException
+     */
+    public SearchOptions with(String name, boolean enabled) {
+        switch (name) {
+            case "nullmove":
+                return withNullMove(enabled);
+            case "lmr":
+                return withLateMoveReductions(enabled);
+            case "rfp":
+                return withReverseFutility(enabled);
+            case "futility":
+                return withFutility(enabled);
+            case "razoring":
+                return withRazoring(enabled);
+            default:
+                throw new IllegalArgumentException("未知的搜索选项: " + name);
+        }
+    }
+
+    /** 空着裁剪：让对方连走两步仍然 >= beta 就直接截断 */
+    public SearchOptions withNullMove(boolean enabled) {
+        this.nullMove = enabled;
+        return this;
+    }
+
+    /** 后面的不吃子走法减少搜索深度，分数超过 alpha 再按原深度重搜 */
+    public SearchOptions withLateMoveReductions(boolean enabled) {
+        this.lateMoveReductions = enabled;
+        return this;
+    }
+
+    /** 反向 futility：浅层静态分减去余量仍 >= beta 就截断 */
+    public SearchOptions withReverseFutility(boolean enabled) {
+        this.reverseFutility = enabled;
+        return this;
+    }
+
+    /** futility：浅层静态分加上余量仍 <= alpha 时不搜不吃子、不将军的走法 */
+    public SearchOptions withFutility(boolean enabled) {
+        this.futility = enabled;
+        return this;
+    }
+
+    /** razoring：浅层静态分远低于 alpha 时先用静态搜索确认，确实不够就直接返回 */
+    public SearchOptions withRazoring(boolean enabled) {
+        this.razoring = enabled;
+        return this;
+    }
+
+    public boolean isNullMove() {
+        return nullMove;
+    }
+
+    public boolean isLateMoveReductions() {
+        return lateMoveReductions;
+    }
+
+    public boolean isReverseFutility() {
+        return reverseFutility;
+    }
+
+    public boolean isFutility() {
+        return futility;
+    }
+
+    public boolean isRazoring() {
+        return razoring;
+    }
+
+    @Override
+    public String toString() {
+        return "nullmove=" + nullMove + " lmr=" + lateMoveReductions + " rfp=" + reverseFutility
+                + " futility=" + futility + " razoring=" + razoring;
+    }
+}
@@ -0,0 +1,85 @@
+package edu.sustech.xiangqi.model.engine;
+
+/**
+ * 一次搜索（或迭代加深的一轮）的结果
+ * 分数以走子方为正，单位与 Piece.VALUE 相同；杀棋分见 {@link #isMate()}
+ */
+public class SearchResult {
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final int[] pv;
+    private final long nodes;
+    private final long timeMillis;
+
+    public SearchResult(int bestMove, int score, int depth, int[] pv, long nodes, long timeMillis) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.pv = pv;
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+    }
+
+    /**
+     * 最佳走法，没有合法走法时为 Move.NONE
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 主要变例（第一步就是最佳走法）
+     */
+    public int[] getPv() {
+        return pv.clone();
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public long getNodesPerSecond() {
+        return timeMillis == 0 ? nodes * 1000 : nodes * 1000 / timeMillis;
+    }
+
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE_BOUND;
+    }
+
+    /**
+     * 杀棋步数（按双方各走一步算一回合），正数表示走子方能杀，负数表示被杀；不是杀棋分时返回 0
+     */
+    public int getMateIn() {
+        if (!isMate()) return 0;
+        int plies = Search.MATE - Math.abs(score);
+        return score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2;
+    }
+
+    public String getPvString() {
+        StringBuilder sb = new StringBuilder();
+        for (int move : pv) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(Move.toString(move));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("depth %d score %s nodes %d time %dms pv %s",
+                depth, isMate() ? "mate " + getMateIn() : String.valueOf(score), nodes, timeMillis, getPvString());
+    }
+}
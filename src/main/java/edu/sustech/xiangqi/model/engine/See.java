@@ -0,0 +1,110 @@
+package edu.sustech.xiangqi.model.engine;
+
+/**
+ * 静态交换评估（SEE）：双方轮流用最便宜的子在同一格上互吃，算出一步吃子最终净得多少子力
+ * 每吃一次都真的在局面上拿掉、放上棋子，再用 Position.attackersTo 重新找攻击者，
+ * 所以炮架的增减（吃掉炮架后炮打不到、吃子的子成了新炮架）和蹩马腿都自动算对；算完把局面恢复原样
+ * 不考虑牵制和走后送将（帅去吃时会检查那一格是否还被攻击）
+ * 实例里有临时数组，一个线程用一个；过程中不分配对象
+ */
+public class See {
+    /** SEE 用的子力：帅按无穷大算，保证不会被当成可以换掉的子 */
+    private static final int[] VALUE = {0, 10000, 200, 200, 400, 900, 450, 100};
+    /** 找最便宜攻击者的顺序 */
+    private static final int[] ORDER = {
+            Piece.SOLDIER, Piece.ADVISOR, Piece.ELEPHANT, Piece.HORSE, Piece.CANNON, Piece.CHARIOT, Piece.GENERAL
+    };
+    // 一格上最多发生的吃子次数不会超过棋子总数
+    private static final int MAX_SWAPS = 33;
+
+    private final Bitboard attackers = new Bitboard();
+    private final Bitboard pending = new Bitboard();
+    private final int[] gain = new int[MAX_SWAPS];
+    private final int[] swapFrom = new int[MAX_SWAPS];
+    private final int[] swapPiece = new int[MAX_SWAPS];
+    private final int[] swapCaptured = new int[MAX_SWAPS];
+
+    public static int value(int piece) {
+        return VALUE[Piece.type(piece)];
+    }
+
+    /**
+     * 吃子走法 move 的交换结果（走子方视角）：正数是净赚，负数是亏；不吃子的走法算的是走过去之后会不会被白吃
+     */
+    public int see(Position pos, int move) {
+        int to = Move.to(move);
+        int onSquare = Move.piece(move);
+        int side = Piece.color(onSquare) ^ 1;
+        int swaps = 0;
+        gain[0] = VALUE[Piece.type(pos.pieceAt(to))];
+        swap(pos, swaps++, Move.from(move), to);
+
+        int d = 0;
+        while (d + 1 < MAX_SWAPS) {
+            int from = leastValuableAttacker(pos, to, side);
+            if (from == Square.NONE) break;
+            int attacker = pos.pieceAt(from);
+            swap(pos, swaps++, from, to);
+            if (Piece.type(attacker) == Piece.GENERAL && pos.isAttacked(to, side ^ 1)) {
+                // 帅不能吃进被保护的格子
+                unswap(pos, --swaps, to);
+                break;
+            }
+            d++;
+            gain[d] = VALUE[Piece.type(onSquare)] - gain[d - 1];
+            onSquare = attacker;
+            side ^= 1;
+        }
+
+        // 从最后一次吃子往回推：每一方都可以选择不再吃
+        while (d > 0) {
+            gain[d - 1] = -Math.max(-gain[d - 1], gain[d]);
+            d--;
+        }
+        while (swaps > 0) {
+            unswap(pos, --swaps, to);
+        }
+        return gain[0];
+    }
+
+    /**
+     * sq 上的棋子是否被捉：对方有一步吃它的走法按 SEE 能净赚
+     */
+    public boolean isHanging(Position pos, int sq) {
+        int piece = pos.pieceAt(sq);
+        if (piece == Piece.EMPTY || Piece.type(piece) == Piece.GENERAL) return false;
+        int enemy = Piece.color(piece) ^ 1;
+        // see 会改写 attackers，所以攻击者放在另一个位棋盘里
+        pos.attackersTo(sq, enemy, pending);
+        for (int from = pending.poll(); from != Square.NONE; from = pending.poll()) {
+            if (see(pos, Move.encode(from, sq, pos.pieceAt(from), piece)) > 0) return true;
+        }
+        return false;
+    }
+
+    private int leastValuableAttacker(Position pos, int sq, int side) {
+        pos.attackersTo(sq, side, attackers);
+        for (int type : ORDER) {
+            int piece = Piece.make(side, type);
+            long lo = attackers.lo & pos.piecesLo(piece);
+            if (lo != 0) return Long.numberOfTrailingZeros(lo);
+            long hi = attackers.hi & pos.piecesHi(piece);
+            if (hi != 0) return Long.numberOfTrailingZeros(hi) + Bitboard.SPLIT;
+        }
+        return Square.NONE;
+    }
+
+    private void swap(Position pos, int index, int from, int to) {
+        int piece = pos.removePiece(from);
+        swapFrom[index] = from;
+        swapPiece[index] = piece;
+        swapCaptured[index] = pos.removePiece(to);
+        pos.putPiece(to, piece);
+    }
+
+    private void unswap(Position pos, int index, int to) {
+        pos.removePiece(to);
+        pos.putPiece(swapFrom[index], swapPiece[index]);
+        if (swapCaptured[index] != Piece.EMPTY) pos.putPiece(to, swapCaptured[index]);
+    }
+}
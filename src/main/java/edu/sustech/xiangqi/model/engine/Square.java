@@ -0,0 +1,45 @@
+package edu.sustech.xiangqi.model.engine;
+
+/**
+ * 格子编号：sq = row * 9 + col，row 0 是黑方底线，row 9 是红方底线（和 ChessBoardModel 的坐标一致）
+ */
+public final class Square {
+    public static final int ROWS = 10;
+    public static final int COLS = 9;
+    public static final int COUNT = ROWS * COLS;
+    public static final int NONE = -1;
+
+    private Square() {
+    }
+
+    public static int of(int row, int col) {
+        return row * COLS + col;
+    }
+
+    public static int row(int sq) {
+        return sq / COLS;
+    }
+
+    public static int col(int sq) {
+        return sq % COLS;
+    }
+
+    public static boolean isValid(int row, int col) {
+        return row >= 0 && row < ROWS && col >= 0 && col < COLS;
+    }
+
+    /**
+     * 是否在己方一侧（没过河）
+     */
+    public static boolean isOwnSide(int row, int color) {
+        return color == Piece.RED ? row >= 5 : row <= 4;
+    }
+
+    /**
+     * 是否在该方九宫内
+     */
+    public static boolean isInPalace(int row, int col, int color) {
+        if (col < 3 || col > 5) return false;
+        return color == Piece.RED ? row >= 7 : row <= 2;
+    }
+}
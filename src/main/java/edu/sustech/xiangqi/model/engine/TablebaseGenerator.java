@@ -0,0 +1,260 @@
+package edu.sustech.xiangqi.model.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * 残局库生成器：对一种子力组合的全部局面做逆向分析，求出每个局面的胜负和到将死的步数（DTM），写成 Tablebases 读取的文件
+ * 做法是逐轮推进：第 0 轮标出无子可走（将死或困毙，象棋里都算输）的局面；
+ * 第 k 轮（k 奇数）里有一步走到"k - 1 步输"的局面就是 k 步赢，第 k 轮（k 偶数）里每一步都走到"不超过 k - 1 步赢"的局面就是 k 步输；
+ * 吃子后的局面去子库里查，所以先递归生成缺的子库。两轮都没有新结果、且已经超过子库里最长的步数时，剩下的都是和棋
+ * 每一轮按编号分块，用 ForkJoinPool 在所有核上并行；一轮里只会写入本轮的结果，读的都是前几轮的结果，所以不用加锁
+ * 不考虑重复局面和长将、长捉（见 Tablebases）
+ * 用法: java edu.sustech.xiangqi.model.engine.TablebaseGenerator [-d 目录] [--threads n] 组合名...
+ * 组合名如 KRvKAABB，默认写到 resources/tablebase
+ */
+public final class TablebaseGenerator {
+    /** 单个库每方最多的局面数：两方合起来要能放进一个 byte[] 和一段内存映射 */
+    public static final long MAX_SIZE = (Integer.MAX_VALUE - Tablebases.HEADER_SIZE) / 2;
+    private static final int CHUNK = 1 << 14;
+    private static final int MAX_VALUE = Tablebases.INVALID - 1;
+
+    private final Path dir;
+    private final ForkJoinPool pool;
+    private final Tablebases tablebases;
+
+    /**
+     * 每个线程自己的局面和走法缓冲
+     */
+    private static final class Worker {
+        final Position position = new Position();
+        final MoveGenerator generator = new MoveGenerator();
+        final int[] moves = new int[MoveGenerator.MAX_MOVES];
+        final int[] slots = new int[TablebaseSignature.LETTERS.length()];
+    }
+
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+    public TablebaseGenerator(Path dir, int threads) throws IOException {
+        this.dir = dir;
+        this.pool = new ForkJoinPool(threads);
+        this.tablebases = Tablebases.open(dir);
+    }
+
+    /**
+     * 生成过程中打开的全部库（包括目录里原有的）
+     */
+    public Tablebases getTablebases() {
+        return tablebases;
+    }
+
+    /**
+     * 生成一种组合（会换成库里存的方向）和它缺的子库；已经有了就直接返回
+     */
+    public void generate(String name) throws IOException {
+        int[] counts = counts(TablebaseSignature.of(name));
+        if (!TablebaseSignature.isCanonical(counts)) counts = TablebaseSignature.flipCounts(counts);
+        generate(counts);
+    }
+
+    private void generate(int[] counts) throws IOException {
+        TablebaseSignature signature = TablebaseSignature.fromCounts(counts);
+        if (tablebases.contains(signature.name())) return;
+        if (signature.size() > MAX_SIZE) {
+            throw new IllegalArgumentException(signature.name() + " 太大: " + signature.size() + " 个局面");
+        }
+
+        // 先生成吃掉一个子之后的各个子库
+        int maxSubDtm = 0;
+        for (int piece = 0; piece < Piece.CODE_COUNT; piece++) {
+            if (Piece.type(piece) <= Piece.GENERAL || counts[piece] == 0) continue;
+            int[] sub = counts.clone();
+            sub[piece]--;
+            if (!TablebaseSignature.isCanonical(sub)) sub = TablebaseSignature.flipCounts(sub);
+            generate(sub);
+            maxSubDtm = Math.max(maxSubDtm, tablebases.maxDtm(TablebaseSignature.name(sub)));
+        }
+
+        long start = System.nanoTime();
+        byte[][] table = {new byte[(int) signature.size()], new byte[(int) signature.size()]};
+        long[] stats = solve(signature, table, maxSubDtm);
+        Path file = write(signature, table, (int) stats[0]);
+        tablebases.add(file);
+        System.out.printf("%s：%d 个合法局面，先走赢 %d、输 %d、和 %d，最长 %d 步，用时 %d 毫秒%n",
+                signature.name(), stats[1] + stats[2] + stats[3], stats[1], stats[2], stats[3], stats[0],
+                (System.nanoTime() - start) / 1_000_000L);
+    }
+
+    /**
+     * 逐轮求解，返回 {最长步数, 赢, 输, 和}
+     */
+    private long[] solve(TablebaseSignature signature, byte[][] table, int maxSubDtm) throws IOException {
+        int chunks = (int) ((signature.size() + CHUNK - 1) / CHUNK);
+        AtomicLong changed = new AtomicLong();
+
+        // 第 0 轮：不合法的编号、无子可走的局面
+        run(chunks, chunk -> {
+            Worker w = workers.get();
+            for (int side = Piece.RED; side <= Piece.BLACK; side++) {
+                for (long index = (long) chunk * CHUNK; index < Math.min(signature.size(), (long) (chunk + 1) * CHUNK); index++) {
+                    if (!signature.decode(index, side, w.position, w.slots) || w.position.inCheck(side ^ 1)) {
+                        table[side][(int) index] = (byte) Tablebases.INVALID;
+                    } else if (!w.generator.hasLegalMove(w.position, side, w.moves)) {
+                        table[side][(int) index] = 1;
+                    }
+                }
+            }
+        });
+
+        int maxDtm = 0;
+        int quietPasses = 0;
+        for (int k = 1; quietPasses < 2 || k <= maxSubDtm + 2; k++) {
+            if (k + 1 > MAX_VALUE) throw new IllegalStateException(signature.name() + " 的步数超过 " + (MAX_VALUE - 1));
+            int pass = k;
+            changed.set(0);
+            run(chunks, chunk -> {
+                Worker w = workers.get();
+                long found = 0;
+                for (int side = Piece.RED; side <= Piece.BLACK; side++) {
+                    for (long index = (long) chunk * CHUNK; index < Math.min(signature.size(), (long) (chunk + 1) * CHUNK); index++) {
+                        if (table[side][(int) index] != Tablebases.DRAW) continue;
+                        signature.decode(index, side, w.position, w.slots);
+                        if (resolve(signature, table, w, side, pass)) {
+                            table[side][(int) index] = (byte) (pass + 1);
+                            found++;
+                        }
+                    }
+                }
+                changed.addAndGet(found);
+            });
+            if (changed.get() > 0) {
+                maxDtm = k;
+                quietPasses = 0;
+            } else {
+                quietPasses++;
+            }
+        }
+
+        long[] stats = {maxDtm, 0, 0, 0};
+        for (byte[] side : table) {
+            for (byte b : side) {
+                int value = b & 0xff;
+                if (value == Tablebases.INVALID) continue;
+                stats[value == Tablebases.DRAW ? 3 : (value - 1) % 2 == 1 ? 1 : 2]++;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * 第 pass 轮里这个还没有结果的局面是否有了结果
+     * 奇数轮：有一步走到"pass - 1 步输"；偶数轮：每一步都走到"不超过 pass - 1 步赢"
+     */
+    private boolean resolve(TablebaseSignature signature, byte[][] table, Worker w, int side, int pass) {
+        boolean win = (pass & 1) != 0;
+        Position position = w.position;
+        int end = w.generator.generateLegal(position, side, w.moves, 0);
+        for (int i = 0; i < end; i++) {
+            int move = w.moves[i];
+            position.makeMove(move);
+            int value = Move.isCapture(move)
+                    ? tablebases.probeValue(position)
+                    : table[side ^ 1][(int) signature.index(position, false)] & 0xff;
+            position.unmakeMove(move);
+            if (value < 0) throw new IllegalStateException("缺少子库: " + Fen.toFen(position) + " " + Move.toString(move));
+            if (win) {
+                if (value == pass) return true;
+            } else if (value == Tablebases.DRAW || (value - 1) % 2 == 0 || value > pass) {
+                return false;
+            }
+        }
+        return !win;
+    }
+
+    private void run(int chunks, IntConsumer task) throws IOException {
+        try {
+            pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(task)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("生成被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    private Path write(TablebaseSignature signature, byte[][] table, int maxDtm) throws IOException {
+        Files.createDirectories(dir);
+        Path file = dir.resolve(signature.name() + Tablebases.SUFFIX);
+        Path temp = dir.resolve(signature.name() + Tablebases.SUFFIX + ".tmp");
+        ByteBuffer header = ByteBuffer.allocate(Tablebases.HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+        header.putInt(Tablebases.MAGIC).putInt(Tablebases.VERSION).putLong(signature.size()).putInt(maxDtm);
+        header.put(signature.name().getBytes(StandardCharsets.US_ASCII));
+        header.rewind();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (ByteBuffer buffer : new ByteBuffer[]{header, ByteBuffer.wrap(table[0]), ByteBuffer.wrap(table[1])}) {
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+        }
+        return Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int[] counts(TablebaseSignature signature) {
+        int[] counts = new int[Piece.CODE_COUNT];
+        for (int g = 0; g < signature.groups(); g++) {
+            counts[signature.groupPiece(g)] = signature.groupCount(g);
+        }
+        return counts;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String dir = Tablebases.DEFAULT_DIR;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-d":
+                    dir = args[++i];
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    names.add(args[i]);
+            }
+        }
+        if (names.isEmpty()) {
+            System.out.println("用法: TablebaseGenerator [-d 目录] [--threads n] 组合名...（如 KRvKAABB）");
+            return;
+        }
+
+        long start = System.nanoTime();
+        TablebaseGenerator generator = new TablebaseGenerator(Paths.get(dir), threads);
+        try {
+            for (String name : names) {
+                generator.generate(name);
+            }
+        } finally {
+            generator.pool.shutdown();
+            generator.tablebases.close();
+        }
+        System.out.printf("%d 个线程，合计用时 %d 毫秒%n", threads, (System.nanoTime() - start) / 1_000_000L);
+    }
+}
@@ -0,0 +1,291 @@
+package edu.sustech.xiangqi.model.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 残局库的子力组合（如 "KRvKAABB"：红车帅对黑双士双象将）和它的局面编号
+ * 字母按兵种编码排列：K 帅将、A 仕士、B 相象、N 马、R 车、C 炮、P 兵卒，"v" 前是红方
+ * 编号只数每种棋子能到的格子：将帅 9 个、仕士 5 个、相象 7 个、兵卒 55 个、车马炮 90 个；
+ * 同一种棋子有几个时按组合数编号（不分先后），所以每方到走时的局面数是 9 * 9 * 各组 C(格子数, 个数) 的乘积
+ * 库只存"强的一方是红方"的一种方向，查黑方强的局面时把棋盘上下翻转、红黑对调再查（见 flip）
+ */
+final class TablebaseSignature {
+    static final String LETTERS = "_KABNRCP";
+    private static final int MAX_GROUP = 5;
+    // 组合数表 C(n, k)，n < 90，k <= MAX_GROUP
+    private static final long[][] BINOMIAL = new long[Square.COUNT + 1][MAX_GROUP + 1];
+    // [棋子编码] -> 能到的格子
+    private static final int[][] SQUARES = new int[Piece.CODE_COUNT][];
+    // [棋子编码][格子] -> 在 SQUARES 里的序号，不能到为 -1
+    private static final int[][] SLOT = new int[Piece.CODE_COUNT][Square.COUNT];
+
+    static {
+        for (int n = 0; n <= Square.COUNT; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= MAX_GROUP && k <= n; k++) {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+            }
+        }
+        for (int color = Piece.RED; color <= Piece.BLACK; color++) {
+            for (int type = Piece.GENERAL; type <= Piece.SOLDIER; type++) {
+                int piece = Piece.make(color, type);
+                List<Integer> squares = new ArrayList<>();
+                for (int sq = 0; sq < Square.COUNT; sq++) {
+                    if (canReach(color, type, Square.row(sq), Square.col(sq))) squares.add(sq);
+                }
+                SQUARES[piece] = squares.stream().mapToInt(Integer::intValue).toArray();
+                Arrays.fill(SLOT[piece], -1);
+                for (int i = 0; i < SQUARES[piece].length; i++) {
+                    SLOT[piece][SQUARES[piece][i]] = i;
+                }
+            }
+        }
+    }
+
+    private final String name;
+    // 除两个将帅以外的棋子分组：同一编码的棋子一组
+    private final int[] groupPiece;
+    private final int[] groupCount;
+    private final long[] groupSize;
+    private final long size;
+    private final int pieceCount;
+
+    private TablebaseSignature(String name, int[] groupPiece, int[] groupCount) {
+        this.name = name;
+        this.groupPiece = groupPiece;
+        this.groupCount = groupCount;
+        this.groupSize = new long[groupPiece.length];
+        long total = 9L * 9L;
+        int pieces = 2;
+        for (int i = 0; i < groupPiece.length; i++) {
+            groupSize[i] = BINOMIAL[SQUARES[groupPiece[i]].length][groupCount[i]];
+            total *= groupSize[i];
+            pieces += groupCount[i];
+        }
+        this.size = total;
+        this.pieceCount = pieces;
+    }
+
+    /**
+     * 解析 "KRvKAABB" 这样的名字；两边都要以 K 开头，同种棋子最多 5 个
+     */
+    static TablebaseSignature of(String name) {
+        String[] sides = name.toUpperCase().split("V");
+        if (sides.length != 2) throw new IllegalArgumentException("子力组合格式不对: " + name);
+        int[] counts = new int[Piece.CODE_COUNT];
+        for (int color = Piece.RED; color <= Piece.BLACK; color++) {
+            String side = sides[color];
+            if (side.isEmpty() || side.charAt(0) != 'K' || side.indexOf('K', 1) >= 0) {
+                throw new IllegalArgumentException("每方要有且只有一个 K: " + name);
+            }
+            for (int i = 1; i < side.length(); i++) {
+                int type = LETTERS.indexOf(side.charAt(i));
+                if (type <= Piece.GENERAL) throw new IllegalArgumentException("无法识别的棋子 " + side.charAt(i) + ": " + name);
+                counts[Piece.make(color, type)]++;
+            }
+        }
+        return fromCounts(counts);
+    }
+
+    /**
+     * 按棋子编码的个数建（将帅的个数不看）
+     */
+    static TablebaseSignature fromCounts(int[] counts) {
+        int groups = 0;
+        for (int piece = 0; piece < Piece.CODE_COUNT; piece++) {
+            if (Piece.type(piece) > Piece.GENERAL && counts[piece] > 0) {
+                if (counts[piece] > MAX_GROUP) throw new IllegalArgumentException("同种棋子太多: " + counts[piece]);
+                groups++;
+            }
+        }
+        int[] groupPiece = new int[groups];
+        int[] groupCount = new int[groups];
+        int g = 0;
+        for (int piece = 0; piece < Piece.CODE_COUNT; piece++) {
+            if (Piece.type(piece) > Piece.GENERAL && counts[piece] > 0) {
+                groupPiece[g] = piece;
+                groupCount[g++] = counts[piece];
+            }
+        }
+        return new TablebaseSignature(name(counts), groupPiece, groupCount);
+    }
+
+    static String name(int[] counts) {
+        StringBuilder sb = new StringBuilder();
+        for (int color = Piece.RED; color <= Piece.BLACK; color++) {
+            if (color == Piece.BLACK) sb.append('v');
+            sb.append('K');
+            for (int type = Piece.ADVISOR; type <= Piece.SOLDIER; type++) {
+                for (int i = 0; i < counts[Piece.make(color, type)]; i++) {
+                    sb.append(LETTERS.charAt(type));
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 红黑对调后的子力个数
+     */
+    static int[] flipCounts(int[] counts) {
+        int[] flipped = new int[Piece.CODE_COUNT];
+        for (int piece = 0; piece < Piece.CODE_COUNT; piece++) {
+            if (Piece.type(piece) != Piece.EMPTY) flipped[piece ^ 8] = counts[piece];
+        }
+        return flipped;
+    }
+
+    /**
+     * 库里存的方向：红方子力价值不低于黑方（相等时比名字），两边一样时两种方向是同一个库
+     */
+    static boolean isCanonical(int[] counts) {
+        int red = 0;
+        int black = 0;
+        for (int type = Piece.ADVISOR; type <= Piece.SOLDIER; type++) {
+            red += Piece.VALUE[type] * counts[Piece.make(Piece.RED, type)];
+            black += Piece.VALUE[type] * counts[Piece.make(Piece.BLACK, type)];
+        }
+        if (red != black) return red > black;
+        String name = name(counts);
+        int v = name.indexOf('v');
+        return name.substring(0, v).compareTo(name.substring(v + 1)) >= 0;
+    }
+
+    String name() {
+        return name;
+    }
+
+    /**
+     * 每方到走时的局面数（包括棋子重叠等不合法的编号）
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * 棋子总数（含将帅）
+     */
+    int pieceCount() {
+        return pieceCount;
+    }
+
+    /**
+     * 各组棋子的编码和个数，生成器找吃子后的子库用
+     */
+    int groups() {
+        return groupPiece.length;
+    }
+
+    int groupPiece(int group) {
+        return groupPiece[group];
+    }
+
+    int groupCount(int group) {
+        return groupCount[group];
+    }
+
+    /**
+     * 局面的编号；flip 为 true 时局面是这个组合的红黑对调（黑方强），按翻转后的棋盘编号
+     * 局面的子力必须和组合一致，不检查；有棋子在它走不到的格子上（如摆出来的残局）时返回 -1
+     */
+    long index(Position position, boolean flip) {
+        int colorFlip = flip ? 8 : 0;
+        int redKing = SLOT[Piece.make(Piece.RED, Piece.GENERAL)][square(position.kingSquare(flip ? Piece.BLACK : Piece.RED), flip)];
+        int blackKing = SLOT[Piece.make(Piece.BLACK, Piece.GENERAL)][square(position.kingSquare(flip ? Piece.RED : Piece.BLACK), flip)];
+        if (redKing < 0 || blackKing < 0) return -1;
+        long index = redKing * 9L + blackKing;
+        for (int g = 0; g < groupPiece.length; g++) {
+            int piece = groupPiece[g];
+            // 先把各棋子的序号记到位集里（序号小于 90），再从小到大累加组合数，不用排序也不用数组
+            long slotLo = 0;
+            long slotHi = 0;
+            long lo = position.piecesLo(piece ^ colorFlip);
+            long hi = position.piecesHi(piece ^ colorFlip);
+            while (lo != 0) {
+                int slot = SLOT[piece][square(Long.numberOfTrailingZeros(lo), flip)];
+                if (slot < 0) return -1;
+                if (slot < 64) slotLo |= 1L << slot; else slotHi |= 1L << (slot - 64);
+                lo &= lo - 1;
+            }
+            while (hi != 0) {
+                int slot = SLOT[piece][square(Long.numberOfTrailingZeros(hi) + Bitboard.SPLIT, flip)];
+                if (slot < 0) return -1;
+                if (slot < 64) slotLo |= 1L << slot; else slotHi |= 1L << (slot - 64);
+                hi &= hi - 1;
+            }
+            long rank = 0;
+            int i = 1;
+            for (; slotLo != 0; slotLo &= slotLo - 1) {
+                rank += BINOMIAL[Long.numberOfTrailingZeros(slotLo)][i++];
+            }
+            for (; slotHi != 0; slotHi &= slotHi - 1) {
+                rank += BINOMIAL[Long.numberOfTrailingZeros(slotHi) + 64][i++];
+            }
+            index = index * groupSize[g] + rank;
+        }
+        return index;
+    }
+
+    /**
+     * 把编号还原成局面（side 方走）；棋子重叠的编号返回 false，此时 position 的内容没有意义
+     */
+    boolean decode(long index, int side, Position position, int[] slots) {
+        position.clear();
+        for (int g = groupPiece.length - 1; g >= 0; g--) {
+            long rank = index % groupSize[g];
+            index /= groupSize[g];
+            int piece = groupPiece[g];
+            // 组合数编号的逆：从大到小依次取最大的 c 使 C(c, i + 1) <= rank
+            int c = SQUARES[piece].length - 1;
+            for (int i = groupCount[g] - 1; i >= 0; i--) {
+                while (BINOMIAL[c][i + 1] > rank) c--;
+                slots[i] = c;
+                rank -= BINOMIAL[c][i + 1];
+                c--;
+            }
+            for (int i = 0; i < groupCount[g]; i++) {
+                int sq = SQUARES[piece][slots[i]];
+                if (position.pieceAt(sq) != Piece.EMPTY) return false;
+                position.putPiece(sq, piece);
+            }
+        }
+        int blackKing = SQUARES[Piece.make(Piece.BLACK, Piece.GENERAL)][(int) (index % 9)];
+        int redKing = SQUARES[Piece.make(Piece.RED, Piece.GENERAL)][(int) (index / 9)];
+        if (position.pieceAt(blackKing) != Piece.EMPTY || position.pieceAt(redKing) != Piece.EMPTY) return false;
+        position.putPiece(blackKing, Piece.make(Piece.BLACK, Piece.GENERAL));
+        position.putPiece(redKing, Piece.make(Piece.RED, Piece.GENERAL));
+        position.setSideToMove(side);
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * 上下翻转棋盘时格子的对应
+     */
+    static int square(int sq, boolean flip) {
+        return flip ? Square.of(Square.ROWS - 1 - Square.row(sq), Square.col(sq)) : sq;
+    }
+
+    private static boolean canReach(int color, int type, int row, int col) {
+        // 按红方算，黑方上下翻转
+        int r = color == Piece.RED ? row : Square.ROWS - 1 - row;
+        switch (type) {
+            case Piece.GENERAL:
+                return r >= 7 && col >= 3 && col <= 5;
+            case Piece.ADVISOR:
+                return (r == 9 || r == 7) && (col == 3 || col == 5) || r == 8 && col == 4;
+            case Piece.ELEPHANT:
+                return (r == 9 || r == 5) && (col == 2 || col == 6) || r == 7 && (col == 0 || col == 4 || col == 8);
+            case Piece.SOLDIER:
+                return r <= 4 || (r == 5 || r == 6) && col % 2 == 0;
+            default:
+                return true;
+        }
+    }
+}
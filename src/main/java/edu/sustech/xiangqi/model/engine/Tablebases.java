@@ -0,0 +1,209 @@
+package edu.sustech.xiangqi.model.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 残局库：TablebaseGenerator 生成的 .xtb 文件，每个文件是一种子力组合，用内存映射打开，文件内容不进 Java 堆
+ * <pre>
+ * 文件头 32 字节：魔数 MAGIC、版本 VERSION、每方局面数 long、最长步数 int、组合名（ASCII，补 0 到 12 字节）
+ * 之后是红方走的全部局面，再是黑方走的全部局面，每个局面 1 字节（编号见 TablebaseSignature）：
+ * 0 和棋，1~254 为"到将死还要走的步数（半回合）+ 1"，奇数步是走棋方赢、偶数步是走棋方输，255 是不合法的编号
+ * </pre>
+ * 查一个局面只读一个字节；按局面增量维护的子力键（Material）选库，不创建对象，可以多线程同时调用
+ * 库里不考虑重复局面和长将、长捉，靠这些规则才能赢的局面在库里是和棋
+ */
+public final class Tablebases implements Closeable {
+    public static final int MAGIC = 0x58515442; // "XQTB"
+    public static final int VERSION = 1;
+    public static final String DEFAULT_DIR = "resources/tablebase";
+    public static final String SUFFIX = ".xtb";
+    /** probe 在库里查不到时的返回值 */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+    static final int HEADER_SIZE = 32;
+    static final int NAME_OFFSET = 20;
+    static final int NAME_LENGTH = 12;
+    static final int DRAW = 0;
+    static final int INVALID = 255;
+
+    /**
+     * 一个映射好的库文件
+     */
+    private static final class Table {
+        final TablebaseSignature signature;
+        final long materialKey;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final int maxDtm;
+
+        Table(TablebaseSignature signature, FileChannel channel, MappedByteBuffer buffer, int maxDtm) {
+            this.signature = signature;
+            this.materialKey = materialKey(signature);
+            this.channel = channel;
+            this.buffer = buffer;
+            this.maxDtm = maxDtm;
+        }
+
+        int value(long index, int side) {
+            return buffer.get((int) (HEADER_SIZE + side * signature.size() + index)) & 0xff;
+        }
+    }
+
+    // 追加库时整体替换，查询不加锁
+    private volatile Table[] tables = new Table[0];
+    private volatile int maxPieces;
+
+    /**
+     * 打开目录下的全部库文件；目录不存在时得到一个空的残局库
+     */
+    public static Tablebases open(Path dir) throws IOException {
+        Tablebases tablebases = new Tablebases();
+        if (!Files.isDirectory(dir)) return tablebases;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                tablebases.add(file);
+            }
+        } catch (IOException | RuntimeException e) {
+            tablebases.close();
+            throw e;
+        }
+        return tablebases;
+    }
+
+    /**
+     * 加入一个库文件；文件格式不对时抛 IOException，同名的库已经有了就忽略
+     */
+    public synchronized void add(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_SIZE) throw new IOException("残局库文件太短: " + file);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("不是残局库文件或版本不对: " + file);
+            }
+            byte[] nameBytes = new byte[NAME_LENGTH];
+            buffer.get(NAME_OFFSET, nameBytes);
+            TablebaseSignature signature = TablebaseSignature.of(new String(nameBytes, StandardCharsets.US_ASCII).trim());
+            if (buffer.getLong(8) != signature.size() || HEADER_SIZE + 2 * signature.size() != size) {
+                throw new IOException("残局库文件不完整: " + file);
+            }
+            if (find(signature.name()) != null) {
+                channel.close();
+                return;
+            }
+            Table[] grown = Arrays.copyOf(tables, tables.length + 1);
+            grown[tables.length] = new Table(signature, channel, buffer, buffer.getInt(16));
+            tables = grown;
+            maxPieces = Math.max(maxPieces, signature.pieceCount());
+        } catch (IllegalArgumentException e) {
+            channel.close();
+            throw new IOException("残局库文件里的组合名不对: " + file, e);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int size() {
+        return tables.length;
+    }
+
+    /**
+     * 库里最多的棋子数（含将帅），棋子比它多的局面不用查
+     */
+    public int maxPieces() {
+        return maxPieces;
+    }
+
+    public List<String> names() {
+        List<String> names = new ArrayList<>();
+        for (Table table : tables) {
+            names.add(table.signature.name());
+        }
+        return names;
+    }
+
+    public boolean contains(String name) {
+        return find(name) != null;
+    }
+
+    /**
+     * 库里最长的将死步数，组合不在库里时返回 -1
+     */
+    int maxDtm(String name) {
+        Table table = find(name);
+        return table == null ? -1 : table.maxDtm;
+    }
+
+    /**
+     * 走棋方的分数：和棋 0，n 步后将死对方 Search.MATE - n，n 步后被将死 -(Search.MATE - n)；库里没有时返回 UNKNOWN
+     */
+    public int probe(Position position) {
+        int value = probeValue(position);
+        if (value < 0 || value == INVALID) return UNKNOWN;
+        if (value == DRAW) return 0;
+        int dtm = value - 1;
+        return (dtm & 1) != 0 ? Search.MATE - dtm : -(Search.MATE - dtm);
+    }
+
+    /**
+     * 库里的原始字节（见类注释），库里没有时返回 -1
+     */
+    int probeValue(Position position) {
+        Table[] tables = this.tables;
+        if (tables.length == 0) return -1;
+        int pieces = Long.bitCount(position.occupiedLo()) + Long.bitCount(position.occupiedHi());
+        if (pieces > maxPieces) return -1;
+        // 子力键里含将帅，少了将帅的局面不会和任何库对上
+        long key = position.materialKey();
+        long flippedKey = Material.flip(key);
+        for (Table table : tables) {
+            boolean flip = table.materialKey != key;
+            if (flip && table.materialKey != flippedKey) continue;
+            long index = table.signature.index(position, flip);
+            return index < 0 ? -1 : table.value(index, flip ? position.sideToMove() ^ 1 : position.sideToMove());
+        }
+        return -1;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        IOException error = null;
+        for (Table table : tables) {
+            try {
+                table.channel.close();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        tables = new Table[0];
+        maxPieces = 0;
+        if (error != null) throw error;
+    }
+
+    private Table find(String name) {
+        for (Table table : tables) {
+            if (table.signature.name().equals(name)) return table;
+        }
+        return null;
+    }
+
+    private static long materialKey(TablebaseSignature signature) {
+        int[] counts = new int[Piece.CODE_COUNT];
+        for (int g = 0; g < signature.groups(); g++) {
+            counts[signature.groupPiece(g)] = signature.groupCount(g);
+        }
+        return Material.key(counts);
+    }
+}
@@ -0,0 +1,108 @@
+package edu.sustech.xiangqi.model.engine;
+
+import edu.sustech.xiangqi.model.GameConfig;
+
+/**
+ * 按棋钟分配每步用时：软限制是"正常情况下用这么多"，硬限制是"无论如何不能超过"
+ * 每搜完一轮看一次：最佳走法连续几轮不变就提前停，换了走法或者分数下跌就多想一会儿，但不超过硬限制
+ * 固定每步用时（SearchLimits.moveTime）时软、硬限制相同；不限时间时永远不停
+ */
+final class TimeManager {
+    // 留给落子、界面刷新和线程调度的时间
+    private static final long OVERHEAD_MILLIS = 300;
+    private static final long MIN_SOFT_MILLIS = 10;
+    // 估计还要走的步数：残局 MIN_MOVES_TO_GO，满子时再多 2 * PHASE_MAX
+    private static final int MIN_MOVES_TO_GO = 20;
+    private static final int MAX_MOVES_TO_GO = 60;
+    // 硬限制最多是软限制的这么多倍，且不超过剩余时间的 HARD_FRACTION
+    private static final int HARD_MULTIPLIER = 4;
+    private static final double HARD_FRACTION = 0.4;
+    // 已用时间超过（调整后的）软限制的这个比例就不再开新的一轮：新的一轮通常比前面所有轮加起来还慢
+    private static final double NEW_ITERATION_FRACTION = 0.6;
+
+    private long softMillis;
+    private long hardMillis;
+    private boolean fixed;
+    private boolean unlimited;
+
+    private int lastBestMove;
+    private int lastScore;
+    private int stableIterations;
+
+    /**
+     * 一次搜索开始时按 limits 和根局面算出软、硬限制
+     */
+    void start(SearchLimits limits, Position root) {
+        lastBestMove = Move.NONE;
+        stableIterations = 0;
+        fixed = false;
+        unlimited = false;
+
+        if (limits.getRemainingMillis() > 0) {
+            long available = Math.max(0, limits.getRemainingMillis() - OVERHEAD_MILLIS);
+            int movesToGo = limits.getMovesToGo() > 0
+                    ? Math.min(limits.getMovesToGo(), MAX_MOVES_TO_GO)
+                    : MIN_MOVES_TO_GO + 2 * Math.min(root.phase(), PieceSquare.PHASE_MAX);
+            long increment = limits.getTimeControl() == GameConfig.TimeControl.INCREMENT
+                    ? limits.getIncrementMillis() : 0;
+
+            long soft = available / movesToGo + increment * 3 / 4;
+            long hard = Math.min(soft * HARD_MULTIPLIER, (long) (available * HARD_FRACTION) + increment / 2);
+            hardMillis = Math.max(MIN_SOFT_MILLIS, Math.min(hard, available));
+            softMillis = Math.max(MIN_SOFT_MILLIS, Math.min(soft, hardMillis));
+        } else if (limits.getMoveTimeMillis() > 0) {
+            fixed = true;
+            softMillis = limits.getMoveTimeMillis();
+            hardMillis = limits.getMoveTimeMillis();
+        } else {
+            unlimited = true;
+            softMillis = Long.MAX_VALUE;
+            hardMillis = Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * 硬限制（毫秒），不限时间时为 Long.MAX_VALUE
+     */
+    long hardMillis() {
+        return hardMillis;
+    }
+
+    long softMillis() {
+        return softMillis;
+    }
+
+    /**
+     * 搜完一轮后调用，返回 true 表示该停了
+     */
+    boolean iterationDone(int depth, int bestMove, int score, long elapsedMillis) {
+        if (unlimited) return false;
+
+        boolean changed = depth > 1 && bestMove != lastBestMove;
+        stableIterations = bestMove == lastBestMove ? stableIterations + 1 : 0;
+        int drop = depth > 1 ? lastScore - score : 0;
+        lastBestMove = bestMove;
+        lastScore = score;
+
+        // 固定用时：剩下的时间不够再搜完一轮
+        if (fixed) return elapsedMillis > softMillis / 2;
+
+        double scale = 1.0;
+        if (changed) {
+            scale *= 1.4;
+        } else if (stableIterations >= 6) {
+            scale *= 0.5;
+        } else if (stableIterations >= 3) {
+            scale *= 0.75;
+        }
+        if (drop >= 100) {
+            scale *= 2.0;
+        } else if (drop >= 40) {
+            scale *= 1.5;
+        } else if (drop >= 15) {
+            scale *= 1.2;
+        }
+        long target = Math.min((long) (softMillis * scale), hardMillis);
+        return elapsedMillis >= target * NEW_ITERATION_FRACTION;
+    }
+}
@@ -0,0 +1,202 @@
+package edu.sustech.xiangqi.model.engine;
+
+import java.util.Arrays;
+
+/**
+ * 置换表：记录搜过的局面（按 Zobrist 键）的分数、深度、边界类型和最佳走法
+ * <p>
+ * 整张表是一个 long[]，不存对象，GC 不需要扫描里面的内容。每 4 个条目组成一个桶（64 字节，一条缓存行），
+ * 一个条目占两个 long：(键 ^ 数据, 数据)。读写都不加锁，多个搜索线程可以同时访问：
+ * 两个 long 被别的线程写了一半时，键 ^ 数据 对不上，读出来就当作没命中
+ * <pre>
+ * 数据位布局
+ *  0~23  最佳走法（Move 编码）
+ *  24~39 分数（有符号 16 位，杀棋分存的是到本节点的距离）
+ *  40~47 深度
+ *  48~49 边界类型（EXACT / LOWER / UPPER，非 0，所以有效数据不会是 0）
+ *  50~55 写入时的代数（每次搜索加一，用于淘汰旧条目）
+ * </pre>
+ */
+public class TranspositionTable {
+    public static final int BOUND_EXACT = 1;
+    /** 分数是下界（发生了 beta 截断） */
+    public static final int BOUND_LOWER = 2;
+    /** 分数是上界（所有走法都没超过 alpha） */
+    public static final int BOUND_UPPER = 3;
+
+    public static final int DEFAULT_SIZE_MB = 16;
+
+    private static final int ENTRIES_PER_BUCKET = 4;
+    private static final int LONGS_PER_BUCKET = ENTRIES_PER_BUCKET * 2;
+    private static final int BYTES_PER_BUCKET = LONGS_PER_BUCKET * Long.BYTES;
+    private static final int AGE_MASK = 63;
+
+    private long[] table;
+    private int bucketMask;
+    private volatile int age;
+
+    public TranspositionTable() {
+        this(DEFAULT_SIZE_MB);
+    }
+
+    public TranspositionTable(int megabytes) {
+        resize(megabytes);
+    }
+
+    /**
+     * 重新分配为不超过 megabytes 的最大 2 的幂个桶，内容清空；不能和搜索同时调用
+     */
+    public void resize(int megabytes) {
+        long bytes = Math.max(1, megabytes) * (1L << 20);
+        long buckets = Long.highestOneBit(bytes / BYTES_PER_BUCKET);
+        // long[] 的长度上限
+        buckets = Math.min(buckets, 1L << 27);
+        table = new long[(int) buckets * LONGS_PER_BUCKET];
+        bucketMask = (int) buckets - 1;
+    }
+
+    /**
+     * 清空内容（新对局时调用）；不能和搜索同时调用
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        age = 0;
+    }
+
+    /**
+     * 开始一次新搜索：代数加一，之后写入的条目比旧条目更不容易被替换
+     */
+    public void newSearch() {
+        age = (age + 1) & AGE_MASK;
+    }
+
+    public int sizeMegabytes() {
+        return (int) ((long) table.length * Long.BYTES >> 20);
+    }
+
+    /**
+     * 查表，命中时返回数据（用 move / score / depth / bound 解码），没命中返回 0
+     * 命中率由各搜索线程自己统计（见 Search.getTtProbes），这里不写共享计数，免得多线程互相争抢缓存行
+     */
+    public long probe(long key) {
+        long[] t = table;
+        int base = bucketIndex(key);
+        for (int i = 0; i < ENTRIES_PER_BUCKET; i++) {
+            long data = t[base + 2 * i + 1];
+            if ((t[base + 2 * i] ^ data) == key && data != 0) {
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * 写入一个条目。score 是以当前节点为根的分数，ply 是当前节点到搜索根的距离
+     * 同一局面已有条目时：新结果更深、是精确值或旧条目来自之前的搜索才覆盖；没有新走法时保留旧走法
+     * 否则在桶里挑"深度减去陈旧程度"最小的条目替换
+     */
+    public void store(long key, int move, int score, int depth, int bound, int ply) {
+        long[] t = table;
+        int base = bucketIndex(key);
+        int currentAge = age;
+
+        int victim = -1;
+        int victimValue = Integer.MAX_VALUE;
+        for (int i = 0; i < ENTRIES_PER_BUCKET; i++) {
+            int slot = base + 2 * i;
+            long data = t[slot + 1];
+            if (data == 0) {
+                // 空位优先，但后面如果有同一局面的条目，还是覆盖那个
+                if (victimValue != Integer.MIN_VALUE) {
+                    victim = slot;
+                    victimValue = Integer.MIN_VALUE;
+                }
+                continue;
+            }
+            if ((t[slot] ^ data) == key) {
+                if (depth < depth(data) - 2 && bound != BOUND_EXACT && age(data) == currentAge) return;
+                if (move == Move.NONE) move = move(data);
+                victim = slot;
+                break;
+            }
+            int value = depth(data) - 4 * ((currentAge - age(data)) & AGE_MASK);
+            if (value < victimValue) {
+                victim = slot;
+                victimValue = value;
+            }
+        }
+
+        long data = pack(move, toTableScore(score, ply), depth, bound, currentAge);
+        t[victim + 1] = data;
+        t[victim] = key ^ data;
+    }
+
+    // ---------------------------------------------------------------- 解码
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFFFF);
+    }
+
+    /**
+     * 分数，杀棋分换算回以 ply 层节点为根
+     */
+    public static int score(long data, int ply) {
+        int score = (short) (data >>> 24);
+        if (score >= Search.MATE_BOUND) return score - ply;
+        if (score <= -Search.MATE_BOUND) return score + ply;
+        return score;
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 40) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 48) & 3;
+    }
+
+    private static int age(long data) {
+        return (int) (data >>> 50) & AGE_MASK;
+    }
+
+    private static long pack(int move, int score, int depth, int bound, int age) {
+        return (move & 0xFFFFFFL)
+                | ((score & 0xFFFFL) << 24)
+                | ((long) Math.max(0, Math.min(depth, 255)) << 40)
+                | ((long) bound << 48)
+                | ((long) age << 50);
+    }
+
+    /**
+     * 杀棋分存成"到本节点的距离"，这样同一局面在不同深度被查到时都正确
+     */
+    private static int toTableScore(int score, int ply) {
+        if (score >= Search.MATE_BOUND) return score + ply;
+        if (score <= -Search.MATE_BOUND) return score - ply;
+        return score;
+    }
+
+    private int bucketIndex(long key) {
+        // 用高位选桶，低位和桶内校验一起用，减少相关性
+        return ((int) (key >>> 32) & bucketMask) * LONGS_PER_BUCKET;
+    }
+
+    // ---------------------------------------------------------------- 统计
+
+    /**
+     * 填充率：抽样前 1000 个桶里本次搜索写入的条目比例（千分比，与 UCI/UCCI 的 hashfull 一致）
+     */
+    public int hashfull() {
+        long[] t = table;
+        int buckets = Math.min(1000, bucketMask + 1);
+        int used = 0;
+        int currentAge = age;
+        for (int b = 0; b < buckets; b++) {
+            for (int i = 0; i < ENTRIES_PER_BUCKET; i++) {
+                long data = t[b * LONGS_PER_BUCKET + 2 * i + 1];
+                if (data != 0 && age(data) == currentAge) used++;
+            }
+        }
+        return used * 1000 / (buckets * ENTRIES_PER_BUCKET);
+    }
+}
@@ -0,0 +1,48 @@
+package edu.sustech.xiangqi.model.engine;
+
+/**
+ * Zobrist 哈希的随机数表
+ * 局面键 = 所有 (棋子, 格子) 对应随机数的异或，黑方走时再异或 SIDE
+ * 随机数由固定种子的 splitmix64 生成，保证每次运行、每台机器得到的键都相同（开局库等文件依赖这一点）
+ */
+public final class Zobrist {
+    /** [棋子编码][格子] */
+    public static final long[][] PIECE_SQUARE = new long[Piece.CODE_COUNT][Square.COUNT];
+    /** 轮到黑方走 */
+    public static final long SIDE;
+
+    private static long seed = 0x5851F42D4C957F2DL;
+
+    static {
+        for (int piece = 0; piece < Piece.CODE_COUNT; piece++) {
+            for (int sq = 0; sq < Square.COUNT; sq++) {
+                PIECE_SQUARE[piece][sq] = Piece.type(piece) == Piece.EMPTY ? 0L : next();
+            }
+        }
+        SIDE = next();
+    }
+
+    private Zobrist() {
+    }
+
+    private static long next() {
+        long z = (seed += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 从头计算局面键（用于校验增量更新的结果）
+     */
+    public static long compute(Position position) {
+        long key = 0L;
+        for (int sq = 0; sq < Square.COUNT; sq++) {
+            key ^= PIECE_SQUARE[position.pieceAt(sq)][sq];
+        }
+        if (position.sideToMove() == Piece.BLACK) {
+            key ^= SIDE;
+        }
+        return key;
+    }
+}
@@ -0,0 +1,330 @@
+package edu.sustech.xiangqi.ucci;
+
+import edu.sustech.xiangqi.model.GameConfig;
+import edu.sustech.xiangqi.model.engine.EngineService;
+import edu.sustech.xiangqi.model.engine.Fen;
+import edu.sustech.xiangqi.model.engine.Move;
+import edu.sustech.xiangqi.model.engine.MoveGenerator;
+import edu.sustech.xiangqi.model.engine.ParallelSearch;
+import edu.sustech.xiangqi.model.engine.Position;
+import edu.sustech.xiangqi.model.engine.SearchLimits;
+import edu.sustech.xiangqi.model.engine.SearchResult;
+import edu.sustech.xiangqi.model.engine.Tablebases;
+import edu.sustech.xiangqi.model.engine.TranspositionTable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 无界面的 UCCI 引擎：从标准输入读命令，往标准输出写应答，可以接到象棋界面软件、比赛管理器或批量分析脚本上，不启动 Swing
+ * 支持的命令：ucci、isready、setoption（hashsize/Hash、threads/Threads、newgame）、position {fen ... | startpos} [moves ...]、
+ * go [ponder] [depth n | nodes n | time t [movestogo m] [increment i] | movetime t]、ponderhit、stop、quit；不认识的命令忽略
+ * 着法用 ICCS 坐标（如 h2e2：列 a~i 从红方左边数，行 0~9 从红方底线数）
+ * 搜索在 EngineService 的线程上跑，所有输出都交给单独的输出线程写，读命令和写输出都不会卡住搜索；
+ * 每搜完一轮才输出一次 info，节点上不做任何事
+ * 用法: java -cp target/classes edu.sustech.xiangqi.ucci.UcciEngine
+ */
+public class UcciEngine {
+    public static final String NAME = "SUSTech Xiangqi";
+    public static final int MAX_HASH_MB = 1024;
+    public static final int MAX_THREADS = 64;
+
+    private final BufferedReader in;
+    private final PrintStream out;
+    private final ExecutorService output;
+    private final TranspositionTable tt = new TranspositionTable();
+    private final ParallelSearch search = new ParallelSearch(1, tt);
+    private final EngineService service;
+    private final Tablebases tablebases;
+    private final Position position = Fen.parse(Fen.START);
+    private final MoveGenerator generator = new MoveGenerator();
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private EngineService.Task task;
+
+    public UcciEngine(InputStream in, OutputStream out) {
+        this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.out = new PrintStream(out, false, StandardCharsets.UTF_8);
+        this.output = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ucci-output");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 每一轮都输出，不节流
+        this.service = new EngineService(search, output, 0);
+        this.tablebases = openTablebases();
+        search.setTablebases(tablebases);
+    }
+
+    public static void main(String[] args) throws IOException {
+        new UcciEngine(System.in, System.out).run();
+    }
+
+    /**
+     * 读命令直到 quit 或输入结束
+     */
+    public void run() throws IOException {
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!execute(line.trim())) break;
+            }
+        } finally {
+            shutdown();
+        }
+    }
+
+    /**
+     * 执行一行命令，quit 时返回 false
+     */
+    boolean execute(String line) {
+        if (line.isEmpty()) return true;
+        String[] tokens = line.split("\\s+");
+        switch (tokens[0]) {
+            case "ucci":
+                send("id name " + NAME);
+                send("id author SUSTech");
+                send("option hashsize type spin min 1 max " + MAX_HASH_MB + " default " + TranspositionTable.DEFAULT_SIZE_MB);
+                send("option threads type spin min 1 max " + MAX_THREADS + " default 1");
+                send("option newgame type button");
+                send("ucciok");
+                break;
+            case "isready":
+                send("readyok");
+                break;
+            case "setoption":
+                setOption(tokens);
+                break;
+            case "position":
+                setPosition(tokens);
+                break;
+            case "go":
+                go(tokens);
+                break;
+            case "ponderhit":
+                if (task != null) task.getLimits().ponderHit();
+                break;
+            case "stop":
+                if (task != null) task.getLimits().stop();
+                break;
+            case "quit":
+                send("bye");
+                return false;
+            default:
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * setoption hashsize 64 或 setoption name Hash value 64；搜索进行中的设置忽略
+     */
+    private void setOption(String[] tokens) {
+        String name;
+        String value;
+        if (tokens.length >= 5 && tokens[1].equals("name") && tokens[3].equals("value")) {
+            name = tokens[2];
+            value = tokens[4];
+        } else if (tokens.length >= 2) {
+            name = tokens[1];
+            value = tokens.length >= 3 ? tokens[2] : "";
+        } else {
+            return;
+        }
+        if (isSearching()) return;
+        try {
+            switch (name.toLowerCase()) {
+                case "hash":
+                case "hashsize":
+                    tt.resize(clamp(Integer.parseInt(value), 1, MAX_HASH_MB));
+                    break;
+                case "threads":
+                    search.setThreads(clamp(Integer.parseInt(value), 1, MAX_THREADS));
+                    break;
+                case "newgame":
+                    tt.clear();
+                    break;
+                default:
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            // 值不对就保持原样
+        }
+    }
+
+    /**
+     * position {fen <FEN> | startpos} [moves <着法>...]；有不合法的着法时停在它前面
+     */
+    private void setPosition(String[] tokens) {
+        int i = 1;
+        StringBuilder fen = new StringBuilder();
+        if (i < tokens.length && tokens[i].equals("startpos")) {
+            fen.append(Fen.START);
+            i++;
+        } else if (i < tokens.length && tokens[i].equals("fen")) {
+            for (i++; i < tokens.length && !tokens[i].equals("moves"); i++) {
+                if (fen.length() > 0) fen.append(' ');
+                fen.append(tokens[i]);
+            }
+        } else {
+            return;
+        }
+        try {
+            Fen.load(position, fen.toString());
+        } catch (IllegalArgumentException e) {
+            Fen.load(position, Fen.START);
+            return;
+        }
+        if (i < tokens.length && tokens[i].equals("moves")) {
+            for (i++; i < tokens.length; i++) {
+                int move = Move.parseIccs(tokens[i], position, generator, moves);
+                if (move == Move.NONE) break;
+                position.makeMove(move);
+            }
+        }
+    }
+
+    private void go(String[] tokens) {
+        SearchLimits limits = SearchLimits.infinite();
+        boolean ponder = false;
+        long time = 0;
+        long increment = 0;
+        int movesToGo = 0;
+        try {
+            for (int i = 1; i < tokens.length; i++) {
+                String value = i + 1 < tokens.length ? tokens[i + 1] : "";
+                switch (tokens[i]) {
+                    case "ponder":
+                        ponder = true;
+                        break;
+                    case "depth":
+                        if (!value.equals("infinite")) limits.withDepth(Integer.parseInt(value));
+                        i++;
+                        break;
+                    case "nodes":
+                        limits.withNodes(Long.parseLong(value));
+                        i++;
+                        break;
+                    case "movetime":
+                        limits.withMoveTime(Long.parseLong(value));
+                        i++;
+                        break;
+                    case "time":
+                        time = Long.parseLong(value);
+                        i++;
+                        break;
+                    case "increment":
+                        increment = Long.parseLong(value);
+                        i++;
+                        break;
+                    case "movestogo":
+                        movesToGo = Integer.parseInt(value);
+                        i++;
+                        break;
+                    default:
+                        // draw、opptime 等不用的参数
+                        break;
+                }
+            }
+        } catch (NumberFormatException e) {
+            // 解析到哪算哪
+        }
+        if (time > 0) {
+            limits.withClock(time, increment,
+                    increment > 0 ? GameConfig.TimeControl.INCREMENT : GameConfig.TimeControl.SUDDEN_DEATH);
+            limits.withMovesToGo(movesToGo);
+        }
+        if (ponder) limits.withPonder();
+        task = service.submit(position, limits, this::sendInfo, this::sendBestMove, error -> send("nobestmove"));
+    }
+
+    private boolean isSearching() {
+        return task != null && !task.future().isDone();
+    }
+
+    // ---------------------------------------------------------------- 输出（都在输出线程上）
+
+    private void sendInfo(SearchResult result) {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append("info depth ").append(result.getDepth())
+                .append(" score ").append(result.getScore())
+                .append(" time ").append(result.getTimeMillis())
+                .append(" nodes ").append(result.getNodes())
+                .append(" nps ").append(result.getNodesPerSecond())
+                .append(" pv");
+        for (int move : result.getPv()) {
+            sb.append(' ');
+            Move.appendIccs(sb, move);
+        }
+        write(sb.toString());
+    }
+
+    private void sendBestMove(SearchResult result) {
+        int best = result.getBestMove();
+        if (best == Move.NONE) {
+            write("nobestmove");
+            return;
+        }
+        StringBuilder sb = new StringBuilder(32).append("bestmove ");
+        Move.appendIccs(sb, best);
+        int[] pv = result.getPv();
+        if (pv.length > 1) {
+            sb.append(" ponder ");
+            Move.appendIccs(sb, pv[1]);
+        }
+        write(sb.toString());
+    }
+
+    /**
+     * 从读命令的线程发出的应答也交给输出线程，保证和 info、bestmove 的先后顺序
+     */
+    private void send(String line) {
+        output.execute(() -> write(line));
+    }
+
+    private void write(String line) {
+        out.println(line);
+        out.flush();
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(value, max));
+    }
+
+    private static Tablebases openTablebases() {
+        try {
+            Tablebases tablebases = Tablebases.open(Paths.get(Tablebases.DEFAULT_DIR));
+            return tablebases.size() > 0 ? tablebases : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void shutdown() throws IOException {
+        // 正在搜索的话先让它给出结果
+        if (task != null) {
+            task.getLimits().stop();
+            try {
+                task.future().get(1, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                // 已经取消或出错都不要紧
+            }
+        }
+        service.shutdown();
+        output.shutdown();
+        try {
+            output.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (tablebases != null) tablebases.close();
+    }
+}
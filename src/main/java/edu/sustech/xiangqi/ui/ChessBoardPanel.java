@@ -1,6 +1,9 @@
 package edu.sustech.xiangqi.ui;
 
 import edu.sustech.xiangqi.model.ChessBoardModel;
+import edu.sustech.xiangqi.model.engine.Move;
+import edu.sustech.xiangqi.model.engine.LegalMoves;
+import edu.sustech.xiangqi.model.engine.Square;
 import edu.sustech.xiangqi.model.pieces.AbstractPiece;
 import edu.sustech.xiangqi.model.pieces.GeneralPiece;
 import javax.swing.*;
@@ -35,6 +38,8 @@ public class ChessBoardPanel extends JPanel {
     private int startY;
 
     private AbstractPiece selectedPiece = null;
+    private boolean acceptingInput = true;
+    private boolean showHangingPieces = false;
 
     private ThemeManager.Theme currentTheme;
 
@@ -88,7 +93,7 @@ public class ChessBoardPanel extends JPanel {
             return;
         }
 
-        if (!model.isValidPosition(row, col)) {
+        if (!acceptingInput || !model.isValidPosition(row, col)) {
             return;
         }
 
@@ -108,107 +113,119 @@ public class ChessBoardPanel extends JPanel {
             // 移动棋子
             boolean moveSuccess = model.movePiece(selectedPiece, row, col);
             if (moveSuccess) {
-                // 播放音效
-                AudioManager audioManager = AudioManager.getInstance();
-
-                // 立即检查游戏状态
-                ChessBoardModel.GameState state = model.getGameState();
-
-                updateCheckStatus();
+                afterMove(selectedPiece, targetPieceBeforeMove);
+            } else {
                 if (label != null) {
-                    label.setText((model.isRedTurn() ? "红方" : "黑方") + "回合");
+                    label.setText("非法移动！" + (model.isRedTurn() ? "红方" : "黑方") + "回合");
                 }
+            }
+            selectedPiece = null; // 清空选中状态
+            validMoves.clear(); // 清空高亮路径
+        }
+        repaint(); // 强制刷新面板，显示选中框/高亮路径
+    }
 
-                // 检查是否是吃子（有棋子且颜色不同）
-                if (targetPieceBeforeMove != null && targetPieceBeforeMove.isRed() != selectedPiece.isRed()) {
-                    // 吃子音效
-                    audioManager.playSoundEffect("capture.wav");
-                } else {
-                    // 普通移动音效
-                    audioManager.playSoundEffect("move.wav");
-                }
+    /**
+     * 走子成功后的界面更新：音效、将军提示、棋谱、通知窗口（加秒、电脑应着）、胜负弹窗
+     */
+    private void afterMove(AbstractPiece mover, AbstractPiece targetPieceBeforeMove) {
+        // 播放音效
+        AudioManager audioManager = AudioManager.getInstance();
 
-                // 检查是否将军
-                if (model.isInCheck()) {
-                    audioManager.playSoundEffect("check.wav");
-                }
+        // 立即检查游戏状态
+        ChessBoardModel.GameState state = model.getGameState();
 
-                // 更新棋谱记录
-                if (notationPanel != null) {
-                    notationPanel.updateNotation();
-                }
-                try {
-                    Window window = SwingUtilities.getWindowAncestor(this);
-                    if (window instanceof GameFrame) {
-                        ((GameFrame) window).onMoveMade();
-                    }
-                } catch (Exception e) {
+        updateCheckStatus();
+        if (label != null) {
+            label.setText((model.isRedTurn() ? "红方" : "黑方") + "回合");
+        }
 
-                }
-                // 如果游戏结束，立即显示消息
-                if (state != ChessBoardModel.GameState.PLAYING) {
-                    // 强制UI更新
-                    SwingUtilities.invokeLater(() -> {
-                        // 触发胜利对话框
-                        GameFrame parentFrame = (GameFrame) SwingUtilities.getWindowAncestor(ChessBoardPanel.this);
-                        if (parentFrame != null) {
-                            parentFrame.checkGameState();
-                        }
-                    });
-                }
+        // 检查是否是吃子（有棋子且颜色不同）
+        if (targetPieceBeforeMove != null && targetPieceBeforeMove.isRed() != mover.isRed()) {
+            // 吃子音效
+            audioManager.playSoundEffect("capture.wav");
+        } else {
+            // 普通移动音效
+            audioManager.playSoundEffect("move.wav");
+        }
 
+        // 检查是否将军
+        if (model.isInCheck()) {
+            audioManager.playSoundEffect("check.wav");
+        }
 
-            } else {
-                if (label != null) {
-                    label.setText("非法移动！" + (model.isRedTurn() ? "红方" : "黑方") + "回合");
-                }
+        // 更新棋谱记录
+        if (notationPanel != null) {
+            notationPanel.updateNotation();
+        }
+        try {
+            Window window = SwingUtilities.getWindowAncestor(this);
+            if (window instanceof GameFrame) {
+                ((GameFrame) window).onMoveMade();
             }
-            selectedPiece = null; // 清空选中状态
-            validMoves.clear(); // 清空高亮路径
+        } catch (Exception e) {
+
         }
-        repaint(); // 强制刷新面板，显示选中框/高亮路径
+        // 如果游戏结束，立即显示消息
+        if (state != ChessBoardModel.GameState.PLAYING) {
+            // 强制UI更新
+            SwingUtilities.invokeLater(() -> {
+                // 触发胜利对话框
+                GameFrame parentFrame = (GameFrame) SwingUtilities.getWindowAncestor(ChessBoardPanel.this);
+                if (parentFrame != null) {
+                    parentFrame.checkGameState();
+                }
+            });
+        }
+    }
+
+    /**
+     * 执行一步引擎给出的走法（人机模式电脑走子），走法编码见 Move
+     */
+    public boolean playMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        AbstractPiece mover = model.getPieceAt(Square.row(from), Square.col(from));
+        AbstractPiece targetPieceBeforeMove = model.getPieceAt(Square.row(to), Square.col(to));
+        if (mover == null || !model.movePiece(mover, Square.row(to), Square.col(to))) {
+            return false;
+        }
+        selectedPiece = null;
+        validMoves.clear();
+        afterMove(mover, targetPieceBeforeMove);
+        repaint();
+        return true;
+    }
+
+    /**
+     * 是否响应玩家点击（人机模式电脑思考时关闭）
+     */
+    public void setAcceptingInput(boolean acceptingInput) {
+        this.acceptingInput = acceptingInput;
+        if (!acceptingInput) {
+            selectedPiece = null;
+            validMoves.clear();
+        }
+    }
+
+    /**
+     * 是否用虚线圈标出走子方被捉的棋子
+     */
+    public void setShowHangingPieces(boolean showHangingPieces) {
+        this.showHangingPieces = showHangingPieces;
+        repaint();
     }
 
     private void calculateValidMoves() {
         validMoves.clear();
         if (selectedPiece == null) return;
 
-        // 遍历棋盘所有位置，检查是否可以移动
-        for (int row = 0; row < ChessBoardModel.getRows(); row++) {
-            for (int col = 0; col < ChessBoardModel.getCols(); col++) {
-                if (selectedPiece.canMoveTo(row, col, model)) {
-                    //额外检查移动棋子是否会导致将帅对面 or 导致本方被将军
-
-                    // 保存原始位置
-                    int originalRow = selectedPiece.getRow();
-                    int originalCol = selectedPiece.getCol();
-                    // 获取目标位置的棋子（可能被吃掉）
-                    AbstractPiece targetPiece = model.getPieceAt(row, col);
-                    List<AbstractPiece> pieces = new ArrayList<>(model.getPieces());
-                    // 临时移动棋子检查是否会导致将帅对面
-                    if (targetPiece != null && targetPiece.isRed() != selectedPiece.isRed()) {
-                        // 临时移除被吃的棋子
-                        pieces.remove(targetPiece);
-                    }
-
-                    selectedPiece.moveTo(row, col);
-
-                    // 检查移动后是否会导致将帅对面 or 导致本方被将军
-                    if (model.willCauseFacingGeneralsAfterMove() || model.isInCheckForPlayer(selectedPiece.isRed())) {
-                        // 如果会导致将帅对面，撤回
-                        selectedPiece.moveTo(originalRow, originalCol);
-                        if (targetPiece != null) {
-                            pieces.add(targetPiece);
-                        }
-                        continue;
-                    }
-                    selectedPiece.moveTo(originalRow, originalCol);
-                    if (targetPiece != null) {
-                        pieces.add(targetPiece);
-                    }
-                    validMoves.add(new Point(row, col));
-                }
-            }
+        // 直接读当前局面缓存的合法走法（已排除导致将帅对面 or 导致本方被将军的走法）
+        LegalMoves legalMoves = model.getLegalMoves();
+        int from = Square.of(selectedPiece.getRow(), selectedPiece.getCol());
+        for (int i = legalMoves.fromStart(from); i < legalMoves.fromEnd(from); i++) {
+            int to = Move.to(legalMoves.move(i));
+            validMoves.add(new Point(Square.row(to), Square.col(to)));
         }
     }
 
@@ -407,6 +424,9 @@ public class ChessBoardPanel extends JPanel {
         }
         g.setFont(pieceFont);
 
+        // 将军状态来自模型按局面缓存的规则信息，整次重绘只取一次
+        boolean inCheck = model.isInCheck();
+
         for (AbstractPiece piece : model.getPieces()) {
             int x = startX + piece.getCol() * CELL_SIZE; // 棋子中心X
             int y = startY + piece.getRow() * CELL_SIZE; // 棋子中心Y
@@ -441,8 +461,17 @@ public class ChessBoardPanel extends JPanel {
                 drawSelectedPieceEffect(g, x, y, currentTheme.selectedColor);
             }
 
+            // 走子方被捉的棋子画虚线圈
+            if (showHangingPieces && piece.isRed() == model.isRedTurn() && model.isHanging(piece)) {
+                g.setColor(currentTheme.hangingColor);
+                g.setStroke(new BasicStroke(3, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND,
+                        1, new float[]{6, 6}, 0));
+                g.drawOval(x - PIECE_RADIUS - 4, y - PIECE_RADIUS - 4,
+                        (PIECE_RADIUS + 4) * 2, (PIECE_RADIUS + 4) * 2);
+            }
+
             // 5. 将军时的边框（使用主题颜色）
-            if (piece instanceof GeneralPiece && model.isInCheck()) {
+            if (piece instanceof GeneralPiece && inCheck) {
                 boolean isCheckedGeneralRed = ((piece.isRed() == model.isRedTurn()));
                 boolean isCheckedGeneralBlack = ((!piece.isRed() == !model.isRedTurn()));
                 if (isCheckedGeneralRed || isCheckedGeneralBlack) {
@@ -1,6 +1,18 @@
 package edu.sustech.xiangqi.ui;
 
 import edu.sustech.xiangqi.model.*;
+import edu.sustech.xiangqi.model.engine.BookCompiler;
+import edu.sustech.xiangqi.model.engine.EngineService;
+import edu.sustech.xiangqi.model.engine.Move;
+import edu.sustech.xiangqi.model.engine.MoveGenerator;
+import edu.sustech.xiangqi.model.engine.OpeningBook;
+import edu.sustech.xiangqi.model.engine.Position;
+import edu.sustech.xiangqi.model.engine.ParallelSearch;
+import edu.sustech.xiangqi.model.engine.Search;
+import edu.sustech.xiangqi.model.engine.SearchLimits;
+import edu.sustech.xiangqi.model.engine.SearchResult;
+import edu.sustech.xiangqi.model.engine.Square;
+import edu.sustech.xiangqi.model.engine.Tablebases;
 import edu.sustech.xiangqi.model.pieces.AbstractPiece;
 import edu.sustech.xiangqi.model.user.User;
 
@@ -8,8 +20,11 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 public class GameFrame extends JFrame {
     private ChessBoardModel model;
@@ -45,13 +60,30 @@ public class GameFrame extends JFrame {
     private JCheckBoxMenuItem musicToggle;
     private JSlider volumeSlider;
 
+    // 人机模式：搜索在引擎线程上跑（用上所有核），进度和结果回到 EDT；其余模式不创建（为 null）
+    private ParallelSearch search;
+    private EngineService engine;
+    private EngineService.Task aiTask;
+    // 开局库（没有编译过时为 null）：电脑在库内局面直接走库里的着法，也用于"开局库着法"提示；第一次用到时才打开
+    private OpeningBook book;
+    private boolean bookOpened;
+    private final Random bookRandom = new Random();
+    // 残局库（没有生成过时为 null）：人机模式的搜索会查，也用于"残局库判断"提示；第一次用到时才打开
+    private Tablebases tablebases;
+    private boolean tablebasesOpened;
+    // 后台思考：电脑走完后按预想的玩家应着接着搜；玩家走完还没判定猜没猜中之前 ponderLimits 不为空
+    private boolean ponderEnabled = true;
+    private SearchLimits ponderLimits;
+    private long ponderKey;
+
     public GameFrame(String title, User user, GameConfig config) {
         this.currentUser = user;
         this.saveManager = new SaveManager();
         this.config = config != null ? config : new GameConfig();
 
         this.setTitle(title + " - " + user.getUsername() +
-                (this.config.getMode() == GameConfig.Mode.TIMED ? String.format("[计时 %d分+%d秒]", config.getInitialTimeSeconds() / 60, config.getIncrementSeconds()) : ""));
+                (this.config.getMode() == GameConfig.Mode.TIMED ? String.format("[计时 %d分+%d秒]", config.getInitialTimeSeconds() / 60, config.getIncrementSeconds()) : "") +
+                (this.config.getMode() == GameConfig.Mode.AI ? (this.config.isAiPlaysRed() ? "[人机 电脑执红]" : "[人机 电脑执黑]") : ""));
 
         this.setLayout(new BorderLayout());
         this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -73,6 +105,12 @@ public class GameFrame extends JFrame {
         JPanel mainPanel = new JPanel(new BorderLayout());
 
         model = new ChessBoardModel();
+        // 置换表、引擎线程和残局库只有人机模式用得到
+        if (this.config.getMode() == GameConfig.Mode.AI) {
+            search = new ParallelSearch();
+            search.setTablebases(tablebases());
+            engine = new EngineService(search, SwingUtilities::invokeLater);
+        }
         boardPanel = new ChessBoardPanel(model);
         notationPanel = new NotationPanel(model);
         boardPanel.setNotationPanel(notationPanel);
@@ -84,8 +122,8 @@ public class GameFrame extends JFrame {
         rightPanel.setPreferredSize(new Dimension(220, 600));
         rightPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
-        // 计时模式，先添加计时器到右侧面板顶部
-        if (this.config.getMode() == GameConfig.Mode.TIMED) {
+        // 计时模式（包括带棋钟的人机模式），先添加计时器到右侧面板顶部
+        if (this.config.hasClock()) {
             initTimers(); // 初始化并添加到 rightPanel
         }
 
@@ -145,22 +183,259 @@ public class GameFrame extends JFrame {
         // 计时器
         victoryTimer = new Timer(100, e -> checkGameState());
         victoryTimer.start();
+
+        // 电脑执红时开局先走
+        SwingUtilities.invokeLater(this::requestAiMove);
+    }
+
+    /**
+     * 人机模式下是否轮到电脑走
+     */
+    private boolean isAiTurn() {
+        return config.getMode() == GameConfig.Mode.AI
+                && model.getGameState() == ChessBoardModel.GameState.PLAYING
+                && model.isRedTurn() == config.isAiPlaysRed();
+    }
+
+    /**
+     * 轮到电脑时交给引擎线程搜索，结果回到 EDT 再落子；局面变了（悔棋、重开、读档）会先取消搜索
+     */
+    private void requestAiMove() {
+        if (!isAiTurn() || aiTask != null) return;
+
+        if (playBookMove()) return;
+
+        boardPanel.setAcceptingInput(false);
+        label.setText("电脑思考中...");
+        startSearch(new Position(model.getPosition()), aiLimits());
+    }
+
+    /**
+     * 开局库，第一次调用时才映射文件（只有人机走子和开局库提示会用到）；没有编译过时返回 null
+     */
+    private OpeningBook book() {
+        if (!bookOpened) {
+            bookOpened = true;
+            try {
+                book = OpeningBook.open(Paths.get(BookCompiler.DEFAULT_OUTPUT));
+            } catch (IOException e) {
+                book = null;
+            }
+        }
+        return book;
+    }
+
+    /**
+     * 残局库，第一次调用时才映射文件（人机模式开局时，或者第一次要残局库提示时）；没有生成过时返回 null
+     */
+    private Tablebases tablebases() {
+        if (!tablebasesOpened) {
+            tablebasesOpened = true;
+            try {
+                tablebases = Tablebases.open(Paths.get(Tablebases.DEFAULT_DIR));
+                if (tablebases.size() == 0) {
+                    tablebases.close();
+                    tablebases = null;
+                }
+            } catch (IOException e) {
+                tablebases = null;
+            }
+            model.setTablebases(tablebases);
+        }
+        return tablebases;
+    }
+
+    /**
+     * 当前局面在开局库里就直接走库内着法，不用搜索；走子放到下一次事件里，不在 onMoveMade 的调用栈里嵌套走子
+     */
+    private boolean playBookMove() {
+        OpeningBook book = book();
+        if (book == null) return false;
+        int move = book.pickMove(new Position(model.getPosition()), bookRandom);
+        if (move == Move.NONE) return false;
+
+        long key = model.getZobristKey();
+        label.setText("电脑走开局库着法");
+        SwingUtilities.invokeLater(() -> {
+            if (model.getZobristKey() == key && isAiTurn() && aiTask == null) {
+                boardPanel.playMove(move);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 列出当前局面的开局库着法和战绩（胜负对走这步的一方而言）
+     */
+    private void showBookMoves() {
+        OpeningBook book = book();
+        if (book == null) {
+            JOptionPane.showMessageDialog(this, "没有找到开局库 " + BookCompiler.DEFAULT_OUTPUT
+                    + "，可以用 BookCompiler 从存档生成");
+            return;
+        }
+        List<OpeningBook.Entry> entries = book.probe(model.getZobristKey());
+        if (entries.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "当前局面不在开局库里");
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (OpeningBook.Entry entry : entries) {
+            int from = Move.from(entry.getMove());
+            int to = Move.to(entry.getMove());
+            AbstractPiece piece = model.getPieceAt(Square.row(from), Square.col(from));
+            if (piece == null) continue;
+            String notation = NotationGenerator.generateNotation(piece, Square.row(from), Square.col(from),
+                    Square.row(to), Square.col(to), model);
+            text.append(String.format("%s    出现 %d 次    胜/和/负 %d/%d/%d%n", notation,
+                    entry.getWeight(), entry.getWins(), entry.getDraws(), entry.getLosses()));
+        }
+        JOptionPane.showMessageDialog(this, text.toString(), "开局库着法", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    /**
+     * 显示当前局面在残局库里的胜负和到将死的步数（对走棋方而言）
+     */
+    private void showTablebaseResult() {
+        Tablebases tablebases = tablebases();
+        if (tablebases == null) {
+            JOptionPane.showMessageDialog(this, "没有找到残局库 " + Tablebases.DEFAULT_DIR
+                    + "，可以用 TablebaseGenerator 生成");
+            return;
+        }
+        int score = model.probeTablebase();
+        if (score == Tablebases.UNKNOWN) {
+            JOptionPane.showMessageDialog(this, "当前子力不在残局库里（库里最多 " + tablebases.maxPieces() + " 个子）");
+            return;
+        }
+        String side = model.isRedTurn() ? "红方" : "黑方";
+        String text;
+        if (score == 0) {
+            text = side + "走：和棋";
+        } else if (score > 0) {
+            text = String.format("%s走：必胜，%d 步（半回合）内将死对方", side, Search.MATE - score);
+        } else {
+            text = String.format("%s走：必败，最多坚持 %d 步（半回合）", side, Search.MATE + score);
+        }
+        JOptionPane.showMessageDialog(this, text + "\n（残局库不考虑长将、长捉）", "残局库判断", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    /**
+     * 电脑这一步的搜索限制：有棋钟时按电脑的剩余时间分配，否则固定每步用时
+     */
+    private SearchLimits aiLimits() {
+        return config.hasClock()
+                ? SearchLimits.clock((config.isAiPlaysRed() ? redTimeRemaining : blackTimeRemaining) * 1000L,
+                        config.getIncrementSeconds() * 1000L, config.getTimeControl())
+                : SearchLimits.moveTime(config.getAiMoveTimeMillis());
+    }
+
+    /**
+     * 电脑刚走完：假设玩家走主要变例里的下一步，在那个局面上后台思考（置换表留着，猜中时接着用）
+     */
+    private void startPondering(SearchResult result) {
+        int[] pv = result.getPv();
+        if (!ponderEnabled || pv.length < 2 || aiTask != null
+                || model.getGameState() != ChessBoardModel.GameState.PLAYING) {
+            return;
+        }
+        Position snapshot = new Position(model.getPosition());
+        int reply = pv[1];
+        int player = snapshot.sideToMove();
+        if (!new MoveGenerator().isPseudoLegal(snapshot, reply)) return;
+        snapshot.makeMove(reply);
+        if (snapshot.inCheck(player)) return;
+
+        ponderKey = snapshot.key();
+        ponderLimits = aiLimits().withPonder();
+        startSearch(snapshot, ponderLimits);
+    }
+
+    /**
+     * 玩家走完一步：猜中了就让后台思考转为正式搜索，没猜中就取消，随后 requestAiMove 重新搜
+     */
+    private void checkPonderHit() {
+        if (ponderLimits == null) return;
+        if (model.getZobristKey() == ponderKey && isAiTurn()) {
+            ponderLimits.ponderHit();
+            ponderLimits = null;
+            boardPanel.setAcceptingInput(false);
+            label.setText("电脑思考中...");
+        } else {
+            cancelSearch();
+        }
+    }
+
+    /**
+     * 取消正在进行的搜索（包括后台思考），被取消的任务不会再回调
+     */
+    private void cancelSearch() {
+        if (aiTask != null) {
+            aiTask.cancel();
+            aiTask = null;
+        }
+        ponderLimits = null;
+        if (boardPanel != null) boardPanel.setAcceptingInput(true);
+    }
+
+    private void startSearch(Position snapshot, SearchLimits limits) {
+        long key = snapshot.key();
+        aiTask = engine.submit(snapshot, limits, this::showSearchProgress,
+                result -> onSearchDone(key, result),
+                error -> {
+                    aiTask = null;
+                    ponderLimits = null;
+                    boardPanel.setAcceptingInput(true);
+                    label.setText("电脑走子失败: " + error.getMessage());
+                });
+    }
+
+    /**
+     * 电脑思考时在状态栏显示当前深度和分数（后台思考时不显示，那时是玩家的回合）
+     */
+    private void showSearchProgress(SearchResult result) {
+        if (ponderLimits != null || !isAiTurn()) return;
+        String score = result.isMate()
+                ? (result.getScore() > 0 ? "有杀" : "被杀")
+                : String.valueOf(result.getScore());
+        label.setText(String.format("电脑思考中... 深度 %d 分数 %s", result.getDepth(), score));
+    }
+
+    private void onSearchDone(long key, SearchResult result) {
+        aiTask = null;
+        boardPanel.setAcceptingInput(true);
+        if (model.getZobristKey() != key || !isAiTurn()) {
+            // 局面已经变了，需要的话按新局面重新思考
+            requestAiMove();
+            return;
+        }
+        boardPanel.playMove(result.getBestMove());
+        startPondering(result);
     }
 
     private void handleUndo() {
         if (model.canUndo()) {
             String message = (model.isRedTurn() ? "黑方" : "红方") + "请求悔棋，" + (model.isRedTurn() ? "红方" : "黑方") + "同意吗？";
 
-            int response = JOptionPane.showConfirmDialog(this, message, "悔棋请求", JOptionPane.YES_NO_OPTION);
+            // 人机模式不用征求电脑同意
+            int response = config.getMode() == GameConfig.Mode.AI
+                    ? JOptionPane.YES_OPTION
+                    : JOptionPane.showConfirmDialog(this, message, "悔棋请求", JOptionPane.YES_NO_OPTION);
 
             if (response == JOptionPane.YES_OPTION) {
                 boolean success = model.undoMove();
+                // 人机模式连电脑的应着一起悔，退回到玩家走
+                if (success && isAiTurn() && model.canUndo()) {
+                    model.undoMove();
+                }
                 if (success) {
+                    cancelSearch();
                     label.setText("悔棋成功，" + (model.isRedTurn() ? "红方" : "黑方") + "回合");
                     boardPanel.repaint();
                     notationPanel.updateNotation();
 
                     boardPanel.updateCheckStatus();
+                    requestAiMove();
                 } else {
                     label.setText("悔棋失败");
                 }
@@ -382,7 +657,9 @@ public class GameFrame extends JFrame {
                     victoryDialogShowing = false;
                     if (victoryTimer != null) victoryTimer.start();
 
+                    cancelSearch();
                     JOptionPane.showMessageDialog(this, "读档成功");
+                    requestAiMove();
                 } else {
                     JOptionPane.showMessageDialog(this, "读档失败，存档可能已损坏");
                 }
@@ -445,6 +722,7 @@ public class GameFrame extends JFrame {
         if (state != ChessBoardModel.GameState.PLAYING && !victoryDialogShowing) {
             // 停止计时器
             victoryTimer.stop();
+            cancelSearch();
 
             victoryDialogShowing = true;
 
@@ -608,7 +886,8 @@ public class GameFrame extends JFrame {
 
         if (response == JOptionPane.YES_OPTION) {
             model.resetGame();
-            if (config.getMode() == GameConfig.Mode.TIMED) {
+            cancelSearch();
+            if (config.hasClock()) {
                 redTimeRemaining = config.getInitialTimeSeconds();
                 blackTimeRemaining = config.getInitialTimeSeconds();
                 updateTimerLabels();
@@ -635,6 +914,8 @@ public class GameFrame extends JFrame {
 
             // 重启计时器
             victoryTimer.start();
+
+            requestAiMove();
         }
     }
 
@@ -796,7 +1077,7 @@ public class GameFrame extends JFrame {
      *
      */
     public void onMoveMade() {
-        if (config.getMode() == GameConfig.Mode.TIMED && redTimerLabel != null) {
+        if (config.hasClock() && redTimerLabel != null) {
             // 给刚下完的那一方加秒
             if (!model.isRedTurn()) {
                 redTimeRemaining += config.getIncrementSeconds();
@@ -805,6 +1086,8 @@ public class GameFrame extends JFrame {
             }
             updateTimerLabels();
         }
+        checkPonderHit();
+        requestAiMove();
     }
 
     private void createMenuBar() {
@@ -854,8 +1137,29 @@ public class GameFrame extends JFrame {
             themeMenu.add(themeItem);
         }
 
+        // 提示菜单
+        JMenu hintMenu = new JMenu("提示");
+        JCheckBoxMenuItem hangingToggle = new JCheckBoxMenuItem("标出被捉的棋子", false);
+        hangingToggle.addActionListener(e -> boardPanel.setShowHangingPieces(hangingToggle.isSelected()));
+        hintMenu.add(hangingToggle);
+        JMenuItem bookItem = new JMenuItem("开局库着法");
+        bookItem.addActionListener(e -> showBookMoves());
+        hintMenu.add(bookItem);
+        JMenuItem tablebaseItem = new JMenuItem("残局库判断");
+        tablebaseItem.addActionListener(e -> showTablebaseResult());
+        hintMenu.add(tablebaseItem);
+        if (config.getMode() == GameConfig.Mode.AI) {
+            JCheckBoxMenuItem ponderToggle = new JCheckBoxMenuItem("电脑在玩家思考时后台思考", ponderEnabled);
+            ponderToggle.addActionListener(e -> {
+                ponderEnabled = ponderToggle.isSelected();
+                if (!ponderEnabled && ponderLimits != null) cancelSearch();
+            });
+            hintMenu.add(ponderToggle);
+        }
+
         menuBar.add(musicMenu);
         menuBar.add(themeMenu);
+        menuBar.add(hintMenu);
 
         this.setJMenuBar(menuBar);
     }
@@ -890,6 +1194,22 @@ public class GameFrame extends JFrame {
     // 在关闭时停止音乐
     @Override
     public void dispose() {
+        cancelSearch();
+        if (engine != null) {
+            engine.shutdown();
+        }
+        if (book != null) {
+            try {
+                book.close();
+            } catch (IOException ignored) {
+            }
+        }
+        if (tablebases != null) {
+            try {
+                tablebases.close();
+            } catch (IOException ignored) {
+            }
+        }
         audioManager.stopBackgroundMusic();
         super.dispose();
     }
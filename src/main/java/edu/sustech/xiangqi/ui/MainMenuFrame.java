@@ -48,14 +48,14 @@ public class MainMenuFrame extends JFrame {
 
         styleButton(btnNormal, new Color(70, 130, 180));
         styleButton(btnTimed, new Color(255, 140, 0));
-        styleButton(btnAI, Color.GRAY);
+        styleButton(btnAI, new Color(46, 139, 87));
         styleButton(btnOnline, Color.GRAY);
 
         btnNormal.addActionListener(e -> startGame(new GameConfig()));
 
         btnTimed.addActionListener(e -> showTimeSelectionDialog());
 
-        btnAI.addActionListener(e -> JOptionPane.showMessageDialog(this, "人机功能开发中..."));
+        btnAI.addActionListener(e -> showAiSelectionDialog());
         btnOnline.addActionListener(e -> JOptionPane.showMessageDialog(this, "联网功能开发中..."));
 
         gamePanel.add(btnNormal);
@@ -113,6 +113,29 @@ public class MainMenuFrame extends JFrame {
         btn.setFocusPainted(false);
     }
 
+    // 人机对战：选择执子方和电脑难度（每步思考时间）
+    private void showAiSelectionDialog() {
+        Object[] sides = {"执红先行", "执黑后行"};
+        int side = JOptionPane.showOptionDialog(this, "请选择执子方", "人机对战",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, sides, sides[0]);
+        if (side < 0) return;
+
+        Object[] levels = {"入门 (1秒)", "业余 (3秒)", "专业 (8秒)", "快棋 (10分钟包干)", "超快棋 (5分钟 + 3秒)"};
+        int[] moveTimes = {1000, 3000, 8000};
+        int level = JOptionPane.showOptionDialog(this, "请选择电脑难度", "人机对战",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, levels, levels[1]);
+        if (level < 0) return;
+
+        // 玩家执红则电脑执黑；后两项双方都用棋钟，电脑自己分配每步用时
+        if (level == 3) {
+            startGame(new GameConfig(side == 1, 10, 0));
+        } else if (level == 4) {
+            startGame(new GameConfig(side == 1, 5, 3));
+        } else {
+            startGame(new GameConfig(side == 1, moveTimes[level]));
+        }
+    }
+
     // 弹出时间选择对话框
     private void showTimeSelectionDialog() {
         JDialog dialog = new JDialog(this, "选择赛制", true);
@@ -2,12 +2,11 @@ package edu.sustech.xiangqi.ui;
 
 import edu.sustech.xiangqi.model.ChessBoardModel;
 import edu.sustech.xiangqi.model.MoveRecord;
-import edu.sustech.xiangqi.model.pieces.*;
+import edu.sustech.xiangqi.model.pieces.AbstractPiece;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseListener;
-import java.lang.reflect.Constructor;
 import java.util.List;
 
 public class ReplayDialog extends JDialog {
@@ -72,19 +71,10 @@ public class ReplayDialog extends JDialog {
 
         MoveRecord record = moveHistory.get(currentStepIndex);
 
-        // 在 replayModel 中找到对应的棋子并移动
+        // 在 replayModel 中找到对应的棋子并移动（走模型的接口，保证棋盘索引同步）
         AbstractPiece pieceToMove = replayModel.getPieceAt(record.getFromRow(), record.getFromCol());
 
-        if (pieceToMove != null) {
-            // 模拟吃子
-            AbstractPiece targetPiece = replayModel.getPieceAt(record.getToRow(), record.getToCol());
-            if (targetPiece != null) {
-                replayModel.getPieces().remove(targetPiece);
-            }
-
-            // 移动棋子
-            pieceToMove.moveTo(record.getToRow(), record.getToCol());
-
+        if (pieceToMove != null && replayModel.movePiece(pieceToMove, record.getToRow(), record.getToCol())) {
             // 更新索引
             currentStepIndex++;
             updateStatus();
@@ -98,61 +88,14 @@ public class ReplayDialog extends JDialog {
             return;
         }
 
-        currentStepIndex--;
-        MoveRecord record = moveHistory.get(currentStepIndex);
-
-        // 撤销这一步：把棋子从 to 移回 from
-        AbstractPiece pieceMoved = replayModel.getPieceAt(record.getToRow(), record.getToCol());
-
-        if (pieceMoved != null) {
-            pieceMoved.moveTo(record.getFromRow(), record.getFromCol());
-
-            // 如果这一步吃过子，需要把被吃的子恢复
-            if (record.getCapturedPiece() != null) {
-                restoreCapturedPiece(record.getCapturedPiece(), record.getToRow(), record.getToCol());
-            }
-
+        // 撤销这一步：模型的悔棋会把棋子移回并恢复被吃的子
+        if (replayModel.undoMove()) {
+            currentStepIndex--;
             updateStatus();
             replayPanel.repaint();
         }
     }
 
-    /**
-     * 恢复被吃掉的棋子
-     * 复制一个新的在replayModel里
-     */
-    private void restoreCapturedPiece(AbstractPiece original, int row, int col) {
-        AbstractPiece newPiece = null;
-        String name = original.getName();
-        boolean isRed = original.isRed();
-
-        if (original instanceof ChariotPiece) {
-            newPiece = new ChariotPiece(name, row, col, isRed);
-        }
-        else if (original instanceof HorsePiece) {
-            newPiece = new HorsePiece(name, row, col, isRed);
-        }
-        else if (original instanceof CannonPiece) {
-            newPiece = new CannonPiece(name, row, col, isRed);
-        }
-        else if (original instanceof SoldierPiece) {
-            newPiece = new SoldierPiece(name, row, col, isRed);
-        }
-        else if (original instanceof ElephantPiece) {
-            newPiece = new ElephantPiece(name, row, col, isRed);
-        }
-        else if (original instanceof AdvisorPiece) {
-            newPiece = new AdvisorPiece(name, row, col, isRed);
-        }
-        else if (original instanceof GeneralPiece) {
-            newPiece = new GeneralPiece(name, row, col, isRed);
-        }
-
-        if (newPiece != null) {
-            replayModel.getPieces().add(newPiece);
-        }
-    }
-
     private void updateStatus() {
         statusLabel.setText(String.format("当前步数: %d / %d", currentStepIndex, moveHistory.size()));
     }
@@ -32,6 +32,7 @@ public class ThemeManager {
         classic.highlightColor = new Color(0, 200, 0, 120);
         classic.selectedColor = Color.YELLOW;
         classic.checkColor = Color.RED;
+        classic.hangingColor = new Color(255, 140, 0);
         classic.validMoveColor = new Color(0, 200, 0, 80);
         classic.uiBgColor = new Color(240, 240, 240);
         classic.uiTextColor = Color.BLACK;
@@ -47,6 +48,7 @@ public class ThemeManager {
         dark.highlightColor = new Color(100, 200, 100, 120);
         dark.selectedColor = new Color(255, 255, 100);
         dark.checkColor = new Color(255, 50, 50);
+        dark.hangingColor = new Color(255, 170, 60);
         dark.validMoveColor = new Color(100, 200, 100, 80);
         dark.uiBgColor = new Color(45, 45, 48);
         dark.uiTextColor = new Color(240, 240, 240);
@@ -62,6 +64,7 @@ public class ThemeManager {
         wooden.highlightColor = new Color(255, 215, 0, 120);
         wooden.selectedColor = new Color(255, 255, 100);
         wooden.checkColor = Color.RED;
+        wooden.hangingColor = new Color(255, 120, 0);
         wooden.validMoveColor = new Color(255, 215, 0, 80);
         wooden.uiBgColor = new Color(245, 222, 179);
         wooden.uiTextColor = Color.BLACK;
@@ -77,6 +80,7 @@ public class ThemeManager {
         modern.highlightColor = new Color(30, 144, 255, 120);
         modern.selectedColor = new Color(255, 165, 0);
         modern.checkColor = new Color(220, 20, 60);
+        modern.hangingColor = new Color(255, 140, 0);
         modern.validMoveColor = new Color(30, 144, 255, 80);
         modern.uiBgColor = Color.WHITE;
         modern.uiTextColor = Color.BLACK;
@@ -114,6 +118,7 @@ public class ThemeManager {
         public Color highlightColor;
         public Color selectedColor;
         public Color checkColor;
+        public Color hangingColor;
         public Color validMoveColor;
         public Color uiBgColor;
         public Color uiTextColor;